@@ -0,0 +1,27 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.api;
+
+/**
+ * Generates the ids of the resources and the bundle created for a message. Implementations are
+ * shared by all conversions and must be thread safe.
+ * 
+ *
+ * @see io.github.linuxforhealth.core.id.StandardIdGenerator
+ */
+public interface IdGenerator {
+
+  /**
+   * Returns the id for the next resource of the message.
+   * 
+   * @param messageKey - identifies the message: message type, sending application and facility,
+   *        message time and control id, or a hash of the message if it has no control id
+   * @param sequence - number of ids generated for the message before this one
+   * @return id
+   */
+  String generateId(String messageKey, long sequence);
+
+}
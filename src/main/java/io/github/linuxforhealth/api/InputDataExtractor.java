@@ -6,6 +6,7 @@
 package io.github.linuxforhealth.api;
 
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Represents class that encapsulates how to extract information from a particular source.
@@ -61,4 +62,13 @@ public interface InputDataExtractor {
    * @return String
    */
   String getId();
+
+  /**
+   * Return a new id for a resource generated from this source.
+   * 
+   * @return String
+   */
+  default String generateResourceId() {
+    return UUID.randomUUID().toString();
+  }
 }
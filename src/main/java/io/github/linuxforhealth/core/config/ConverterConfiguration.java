@@ -32,6 +32,7 @@ public class ConverterConfiguration {
   private static final String DEFAULT_ZONE_ID = "default.zoneid";
   private static final String CONFIG_PROPERTIES = "config.properties";
   private static final String ADDITIONAL_CONCEPT_MAPS_FILE = "additional.conceptmap.file";
+  private static final String TEMPLATE_SNAPSHOT_FILE = "template.snapshot.file";
 
   private static ConverterConfiguration configuration;
 
@@ -40,6 +41,7 @@ public class ConverterConfiguration {
   private List<String> supportedMessageTemplates;
   private ZoneId zoneId;
   private String additionalConceptmapFile;
+  private String templateSnapshotFile;
   private ConverterConfiguration() {
     try {
       
@@ -84,6 +86,9 @@ public class ConverterConfiguration {
       // get additional concept map
       additionalConceptmapFile = config.getString(ADDITIONAL_CONCEPT_MAPS_FILE, null);
 
+      // get precompiled template snapshot location
+      templateSnapshotFile = config.getString(TEMPLATE_SNAPSHOT_FILE, null);
+
     } catch (ConfigurationException e) {
       throw new IllegalStateException("Cannot read configuration for resource location", e);
     }
@@ -148,4 +153,9 @@ public class ConverterConfiguration {
   }
 
 
+  public String getTemplateSnapshotFile() {
+    return templateSnapshotFile;
+  }
+
+
 }
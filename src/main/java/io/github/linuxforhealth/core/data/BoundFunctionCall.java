@@ -0,0 +1,246 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.data;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.primitives.Primitives;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.core.exception.DataExtractionException;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+
+/**
+ * A JEXL expression of the form Function.method(arg, ...) bound to the static method when the
+ * template is loaded, for example GeneralUtils.generateName( prefix, given,family, suffix).
+ * Arguments are variable names or string, integer, boolean and null literals, resolved to slots
+ * once so a call reads the variables from the context values and invokes the method handle
+ * directly instead of going through the JEXL interpreter.
+ *
+ * Expressions of any other form, methods that are overloaded for the number of arguments, and
+ * calls whose variables are missing from the context or do not match the parameter types are left
+ * to JEXL, {@link #invoke(Map)} returns null for them.
+ *
+ */
+public final class BoundFunctionCall {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BoundFunctionCall.class);
+
+  private static final Pattern CALL =
+      Pattern.compile("^([A-Za-z_]\\w*)\\.([A-Za-z_]\\w*)\\s*\\((.*)\\)$", Pattern.DOTALL);
+  private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_]\\w*");
+  private static final Pattern INTEGER = Pattern.compile("-?\\d{1,9}");
+
+  private final String expression;
+  private final String function;
+  private final MethodHandle handle;
+  // parameter types of the method, primitives boxed
+  private final Class<?>[] parameterTypes;
+  private final boolean[] primitive;
+  // variable name for each argument, null for literals
+  private final String[] variables;
+  private final Object[] literals;
+
+  private BoundFunctionCall(String expression, String function, MethodHandle method,
+      String[] variables, Object[] literals) {
+    this.expression = expression;
+    this.function = function;
+    int arity = method.type().parameterCount();
+    this.parameterTypes = new Class<?>[arity];
+    this.primitive = new boolean[arity];
+    for (int i = 0; i < arity; i++) {
+      Class<?> type = method.type().parameterType(i);
+      primitive[i] = type.isPrimitive();
+      parameterTypes[i] = Primitives.wrap(type);
+    }
+    this.handle = method.asType(method.type().generic()).asSpreader(Object[].class, arity);
+    this.variables = variables;
+    this.literals = literals;
+  }
+
+
+  /**
+   * Binds the expression to the static method of the function it calls.
+   *
+   * @param jexlExp - expression
+   * @param functions - function name to class with the static methods
+   * @return {@link BoundFunctionCall} or null if the expression cannot be bound
+   */
+  public static BoundFunctionCall bind(String jexlExp, Map<String, Object> functions) {
+    if (StringUtils.isBlank(jexlExp) || functions == null || jexlExp.contains(";")) {
+      return null;
+    }
+    String trimmed = StringUtils.trim(jexlExp);
+    Matcher m = CALL.matcher(trimmed);
+    if (!m.matches() || !(functions.get(m.group(1)) instanceof Class)) {
+      return null;
+    }
+    List<String> args = splitArguments(m.group(3));
+    if (args == null) {
+      return null;
+    }
+    String[] variables = new String[args.size()];
+    Object[] literals = new Object[args.size()];
+    for (int i = 0; i < args.size(); i++) {
+      if (!parseArgument(args.get(i), i, variables, literals)) {
+        return null;
+      }
+    }
+    MethodHandle handle =
+        findMethod((Class<?>) functions.get(m.group(1)), m.group(2), args.size());
+    if (handle == null) {
+      return null;
+    }
+    return new BoundFunctionCall(trimmed, m.group(1), handle, variables, literals);
+  }
+
+
+  private static List<String> splitArguments(String rawArgs) {
+    List<String> args = new ArrayList<>();
+    if (StringUtils.isBlank(rawArgs)) {
+      return args;
+    }
+    StringBuilder current = new StringBuilder();
+    char quote = 0;
+    for (char c : rawArgs.toCharArray()) {
+      if (quote != 0) {
+        if (c == '\\') {
+          // escapes are left to JEXL
+          return null;
+        }
+        quote = c == quote ? 0 : quote;
+        current.append(c);
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+        current.append(c);
+      } else if (c == ',') {
+        args.add(StringUtils.trim(current.toString()));
+        current.setLength(0);
+      } else {
+        current.append(c);
+      }
+    }
+    if (quote != 0) {
+      return null;
+    }
+    args.add(StringUtils.trim(current.toString()));
+    return args;
+  }
+
+
+  private static boolean parseArgument(String arg, int slot, String[] variables,
+      Object[] literals) {
+    if (arg.length() >= 2 && (arg.charAt(0) == '"' || arg.charAt(0) == '\'')
+        && arg.charAt(arg.length() - 1) == arg.charAt(0)) {
+      String value = arg.substring(1, arg.length() - 1);
+      if (value.indexOf(arg.charAt(0)) >= 0) {
+        return false;
+      }
+      literals[slot] = value;
+    } else if (INTEGER.matcher(arg).matches()) {
+      literals[slot] = Integer.valueOf(arg);
+    } else if ("true".equals(arg) || "false".equals(arg)) {
+      literals[slot] = Boolean.valueOf(arg);
+    } else if ("null".equals(arg)) {
+      literals[slot] = null;
+    } else if (IDENTIFIER.matcher(arg).matches()) {
+      variables[slot] = arg;
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+
+  private static MethodHandle findMethod(Class<?> klass, String name, int arity) {
+    Method found = null;
+    for (Method method : klass.getMethods()) {
+      if (method.getName().equals(name) && Modifier.isStatic(method.getModifiers())
+          && method.getParameterCount() == arity) {
+        if (found != null || method.isVarArgs()) {
+          // overloads are resolved by JEXL from the argument values
+          return null;
+        }
+        found = method;
+      }
+    }
+    if (found == null) {
+      return null;
+    }
+    try {
+      return MethodHandles.publicLookup().unreflect(found);
+    } catch (IllegalAccessException e) {
+      LOGGER.debug("Cannot bind {}.{}", klass.getSimpleName(), name, e);
+      return null;
+    }
+  }
+
+
+  /**
+   * Invokes the method with the argument values from the context values.
+   *
+   * @param contextValues - context values
+   * @return value returned by the method, null if the call has to be evaluated by JEXL
+   * @throws DataExtractionException - if the method throws an exception
+   */
+  public EvaluationResult invoke(Map<String, EvaluationResult> contextValues) {
+    if (contextValues.containsKey(function)) {
+      // a context value with the name of the function hides the function in JEXL
+      return null;
+    }
+    Object[] args = new Object[variables.length];
+    for (int i = 0; i < variables.length; i++) {
+      if (variables[i] == null) {
+        args[i] = literals[i];
+      } else {
+        EvaluationResult value = contextValues.get(variables[i]);
+        if (value == null) {
+          return null;
+        }
+        args[i] = value.getValue();
+      }
+      if (!matches(i, args[i])) {
+        // argument values that JEXL would convert or reject
+        LOGGER.debug("Argument {} does not match {}, evaluating with JEXL", i, expression);
+        return null;
+      }
+    }
+    Object result;
+    try {
+      result = (Object) handle.invokeExact(args);
+    } catch (Error e) {
+      throw e;
+    } catch (Exception e) {
+      throw new DataExtractionException("Exception encountered during evaluation of " + expression,
+          e);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot evaluate " + expression, e);
+    }
+    return EvaluationResultFactory.getEvaluationResult(result);
+  }
+
+
+  private boolean matches(int slot, Object arg) {
+    if (arg == null) {
+      return !primitive[slot];
+    }
+    return parameterTypes[slot].isInstance(arg);
+  }
+
+
+  public String getExpression() {
+    return expression;
+  }
+
+}
@@ -87,6 +87,18 @@ public final class JexlEngineUtil {
 
 
 
+  /**
+   * Binds a Function.method(args) expression to the static method of one of the functions of this
+   * engine, see {@link BoundFunctionCall}.
+   *
+   * @param jexlExp - expression
+   * @return {@link BoundFunctionCall} or null if the expression has to be evaluated by JEXL
+   */
+  public BoundFunctionCall bind(String jexlExp) {
+    return BoundFunctionCall.bind(jexlExp, functions);
+  }
+
+
   public boolean evaluateCondition(String jexlExp, Map<String, Object> context) {
     Preconditions.checkArgument(StringUtils.isNotBlank(jexlExp), "jexlExp cannot be blank");
     Preconditions.checkArgument(context != null, "context cannot be null");
@@ -0,0 +1,39 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.exception;
+
+/**
+ * Thrown when a conversion runs past its deadline. Reports the stage the conversion was in and the
+ * time elapsed since the conversion started.
+ *
+ */
+public class ConversionTimeoutException extends RuntimeException {
+
+  private final String stage;
+  private final long elapsedMillis;
+
+  public ConversionTimeoutException(String stage, long elapsedMillis) {
+    super("Conversion exceeded its deadline after " + elapsedMillis + " ms during " + stage);
+    this.stage = stage;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+
+  public String getStage() {
+    return stage;
+  }
+
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * 
+   */
+  private static final long serialVersionUID = 1L;
+
+}
@@ -0,0 +1,36 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.expression;
+
+/**
+ * Result holding a {@link Boolean} value, there is one shared instance per value.
+ *
+ */
+public final class BooleanEvaluationResult extends SingleValueEvaluationResult<Boolean> {
+
+  private static final String IDENTIFIER = Boolean.class.getSimpleName();
+  private static final BooleanEvaluationResult TRUE = new BooleanEvaluationResult(Boolean.TRUE);
+  private static final BooleanEvaluationResult FALSE = new BooleanEvaluationResult(Boolean.FALSE);
+
+  private BooleanEvaluationResult(Boolean value) {
+    super(value);
+  }
+
+  public static BooleanEvaluationResult valueOf(Boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  @Override
+  public String getIdentifier() {
+    return IDENTIFIER;
+  }
+
+  @Override
+  public Class<?> getValueType() {
+    return Boolean.class;
+  }
+
+}
@@ -5,8 +5,8 @@
  */
 package io.github.linuxforhealth.core.expression;
 
-import java.util.ArrayList;
 import java.util.List;
+import com.google.common.collect.ImmutableList;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.ResourceValue;
 
@@ -14,6 +14,8 @@ import io.github.linuxforhealth.api.ResourceValue;
 /**
  * Represents value returned after the expression is evaluated.
  * 
+ * Empty results carry no state, use {@link EvaluationResultFactory#getEmptyEvaluationResult()}
+ * instead of creating new instances.
  *
  * @author pbhallam
  */
@@ -48,8 +50,9 @@ public class EmptyEvaluationResult implements EvaluationResult {
   }
 
 
+  @Override
   public List<ResourceValue> getAdditionalResources() {
-    return new ArrayList<>();
+    return ImmutableList.of();
   }
 
 
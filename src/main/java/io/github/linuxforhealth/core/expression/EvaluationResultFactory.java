@@ -10,27 +10,46 @@ import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.ResourceValue;
 
 
+/**
+ * Creates evaluation results. Empty results share one instance, String, Boolean and Integer values
+ * use specialized results that only hold the value.
+ *
+ */
 public class EvaluationResultFactory {
 
+  private static final EvaluationResult EMPTY = new EmptyEvaluationResult();
+
   private EvaluationResultFactory() {}
 
   public static <V> EvaluationResult getEvaluationResult(V value,
       List<ResourceValue> additionalResources) {
-    if (value != null) {
+    if (value != null && additionalResources != null && additionalResources.isEmpty()) {
+      return getEvaluationResult(value);
+    } else if (value != null) {
       return new SimpleEvaluationResult<>(value, additionalResources);
     } else {
-      return new EmptyEvaluationResult();
+      return EMPTY;
     }
   }
 
   public static <V> EvaluationResult getEvaluationResult(V value) {
-    if (value != null) {
-      return new SimpleEvaluationResult<>(value);
+    if (value == null) {
+      return EMPTY;
+    } else if (value instanceof String) {
+      return new StringEvaluationResult((String) value);
+    } else if (value instanceof Boolean) {
+      return BooleanEvaluationResult.valueOf((Boolean) value);
+    } else if (value instanceof Integer) {
+      return IntegerEvaluationResult.valueOf((Integer) value);
     } else {
-      return new EmptyEvaluationResult();
+      return new SimpleEvaluationResult<>(value);
     }
   }
 
+  public static EvaluationResult getEmptyEvaluationResult() {
+    return EMPTY;
+  }
+
 
 }
 
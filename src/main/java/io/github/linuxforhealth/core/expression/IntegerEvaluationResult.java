@@ -0,0 +1,48 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.expression;
+
+/**
+ * Result holding a {@link Integer} value, small values (sequence numbers, set ids) use shared
+ * instances.
+ *
+ */
+public final class IntegerEvaluationResult extends SingleValueEvaluationResult<Integer> {
+
+  private static final String IDENTIFIER = Integer.class.getSimpleName();
+  private static final int CACHE_LOW = -128;
+  private static final int CACHE_HIGH = 1024;
+  private static final IntegerEvaluationResult[] CACHE =
+      new IntegerEvaluationResult[CACHE_HIGH - CACHE_LOW + 1];
+
+  static {
+    for (int i = 0; i < CACHE.length; i++) {
+      CACHE[i] = new IntegerEvaluationResult(i + CACHE_LOW);
+    }
+  }
+
+  private IntegerEvaluationResult(Integer value) {
+    super(value);
+  }
+
+  public static IntegerEvaluationResult valueOf(Integer value) {
+    if (value != null && value >= CACHE_LOW && value <= CACHE_HIGH) {
+      return CACHE[value - CACHE_LOW];
+    }
+    return new IntegerEvaluationResult(value);
+  }
+
+  @Override
+  public String getIdentifier() {
+    return IDENTIFIER;
+  }
+
+  @Override
+  public Class<?> getValueType() {
+    return Integer.class;
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.expression;
+
+import java.util.List;
+import java.util.function.Supplier;
+import com.google.common.base.Preconditions;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.api.ResourceValue;
+
+/**
+ * Result that is computed the first time it is read and reused afterwards. Used for expression
+ * variables, so that variables no condition or expression reads are never evaluated.
+ *
+ * Not thread safe, a message is evaluated by one thread.
+ *
+ */
+public class LazyEvaluationResult implements EvaluationResult {
+
+  private Supplier<EvaluationResult> supplier;
+  private EvaluationResult result;
+
+
+  public LazyEvaluationResult(Supplier<EvaluationResult> supplier) {
+    Preconditions.checkArgument(supplier != null, "supplier cannot be null");
+    this.supplier = supplier;
+  }
+
+
+  private EvaluationResult resolve() {
+    if (result == null) {
+      EvaluationResult value = supplier.get();
+      result = value != null ? value : EvaluationResultFactory.getEmptyEvaluationResult();
+      // release what the supplier captured
+      supplier = null;
+    }
+    return result;
+  }
+
+
+  public boolean isResolved() {
+    return result != null;
+  }
+
+  @Override
+  public <V> V getValue() {
+    return resolve().getValue();
+  }
+
+  @Override
+  public String getIdentifier() {
+    return resolve().getIdentifier();
+  }
+
+  @Override
+  public Class<?> getValueType() {
+    return resolve().getValueType();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return resolve().isEmpty();
+  }
+
+  @Override
+  public List<ResourceValue> getAdditionalResources() {
+    return resolve().getAdditionalResources();
+  }
+
+  @Override
+  public String toString() {
+    // logging must not trigger the evaluation
+    return result != null ? result.toString() : "Value : [ not evaluated ]";
+  }
+
+}
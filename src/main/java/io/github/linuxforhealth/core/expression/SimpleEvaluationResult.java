@@ -6,9 +6,11 @@
 package io.github.linuxforhealth.core.expression;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.ResourceValue;
 import io.github.linuxforhealth.core.data.DataTypeUtil;
@@ -27,26 +29,20 @@ public class SimpleEvaluationResult<V> implements EvaluationResult {
   private UUID groupId;
   private V value;
   private Class<?> klass;
+  // computed on first access, most results are never asked for their data type
   private String klassName;
   private List<ResourceValue> additionalResources;
 
 
   public SimpleEvaluationResult(V value) {
-    this(value, new ArrayList<>());
+    this(value, ImmutableList.of());
   }
 
 
 
   public SimpleEvaluationResult(V value, List<ResourceValue> additionalResources,
       UUID groupId) {
-    Preconditions.checkArgument(value != null, "value cannot be null");
-    Preconditions.checkArgument(additionalResources != null, "additionalResources cannot be null");
-    this.value = value;
-
-    this.klass = value.getClass();
-    this.klassName = DataTypeUtil.getDataType(value);
-    this.additionalResources = new ArrayList<>();
-    this.additionalResources.addAll(additionalResources);
+    this(value, additionalResources);
     this.groupId = groupId;
 
   }
@@ -58,10 +54,23 @@ public class SimpleEvaluationResult<V> implements EvaluationResult {
     this.value = value;
 
     this.klass = value.getClass();
-    this.klassName = DataTypeUtil.getDataType(value);
-    this.additionalResources = new ArrayList<>();
-    this.additionalResources.addAll(additionalResources);
+    this.additionalResources = immutableCopy(additionalResources);
+
+  }
+
 
+  /**
+   * Shares immutable lists, copies the others.
+   */
+  static List<ResourceValue> immutableCopy(List<ResourceValue> resources) {
+    if (resources instanceof ImmutableList) {
+      return resources;
+    } else if (resources.isEmpty()) {
+      return ImmutableList.of();
+    } else {
+      // may contain nulls, which ImmutableList does not allow
+      return Collections.unmodifiableList(new ArrayList<>(resources));
+    }
   }
 
   @Override
@@ -72,7 +81,7 @@ public class SimpleEvaluationResult<V> implements EvaluationResult {
   @Override
   public String toString() {
     if (value != null) {
-      return "Type: [" + this.klassName + "] Value : [" + value.toString() + "]";
+      return "Type: [" + this.getIdentifier() + "] Value : [" + value.toString() + "]";
     } else {
       return "";
     }
@@ -86,6 +95,9 @@ public class SimpleEvaluationResult<V> implements EvaluationResult {
 
   @Override
   public String getIdentifier() {
+    if (klassName == null) {
+      klassName = DataTypeUtil.getDataType(value);
+    }
     return klassName;
   }
 
@@ -94,8 +106,9 @@ public class SimpleEvaluationResult<V> implements EvaluationResult {
     return this.value == null;
   }
 
+  @Override
   public List<ResourceValue> getAdditionalResources() {
-    return new ArrayList<>(additionalResources);
+    return additionalResources;
   }
 
   public UUID getGroupId() {
@@ -0,0 +1,50 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.expression;
+
+import java.util.List;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.api.ResourceValue;
+
+/**
+ * Base for the immutable results of the common value types. Holds only the value, the type and
+ * identifier are constants of the subclass and there are no additional resources.
+ *
+ * @param <V> value type
+ */
+abstract class SingleValueEvaluationResult<V> implements EvaluationResult {
+
+  private final V value;
+
+  SingleValueEvaluationResult(V value) {
+    Preconditions.checkArgument(value != null, "value cannot be null");
+    this.value = value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V getValue() {
+    return value;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return false;
+  }
+
+  @Override
+  public List<ResourceValue> getAdditionalResources() {
+    return ImmutableList.of();
+  }
+
+  @Override
+  public String toString() {
+    return "Type: [" + getIdentifier() + "] Value : [" + value + "]";
+  }
+
+}
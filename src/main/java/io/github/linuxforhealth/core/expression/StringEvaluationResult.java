@@ -0,0 +1,30 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.expression;
+
+/**
+ * Result holding a {@link String} value.
+ *
+ */
+public final class StringEvaluationResult extends SingleValueEvaluationResult<String> {
+
+  private static final String IDENTIFIER = String.class.getSimpleName();
+
+  public StringEvaluationResult(String value) {
+    super(value);
+  }
+
+  @Override
+  public String getIdentifier() {
+    return IDENTIFIER;
+  }
+
+  @Override
+  public Class<?> getValueType() {
+    return String.class;
+  }
+
+}
@@ -6,7 +6,6 @@
 package io.github.linuxforhealth.core.expression;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.text.StringTokenizer;
 
 public class VariableUtils {
 
@@ -17,16 +16,20 @@ public class VariableUtils {
   }
 
 
+  /**
+   * Returns the name of the variable without the $ prefix and the part after the first dot, the
+   * name itself if it is not a variable. Expressions, variables and conditions call this when they
+   * are created, so the context values are read with the normalized name during evaluation.
+   *
+   * @param name - variable reference, for example $var or $var.field
+   * @return variable name
+   */
   public static String getVarName(String name) {
-    if (isVar(name) && StringUtils.contains(name, ".")) {
-      StringTokenizer stk = new StringTokenizer(name, ".");
-      return StringUtils.removeStart(stk.nextToken(), "$");
-    } else if (isVar(name)) {
-      return StringUtils.removeStart(name, "$");
-    } else {
+    if (!isVar(name)) {
       return name;
     }
-
+    int end = name.indexOf('.');
+    return end < 0 ? name.substring(1) : name.substring(1, end);
   }
 
 
@@ -14,11 +14,13 @@ public class CheckNotNull implements Condition {
 
   public static final String NOT_NULL = "NOT_NULL";
   private String var1;
+  private String var1Name;
 
 
 
   public CheckNotNull(String var1) {
     this.var1 = var1;
+    this.var1Name = VariableUtils.getVarName(var1);
 
   }
 
@@ -26,7 +28,7 @@ public class CheckNotNull implements Condition {
 
   @Override
   public boolean test(Map<String, EvaluationResult> contextVariables) {
-    EvaluationResult variable1 = contextVariables.get(VariableUtils.getVarName(var1));
+    EvaluationResult variable1 = contextVariables.get(var1Name);
     
     return variable1 != null && !variable1.isEmpty();
   }
@@ -13,10 +13,12 @@ import io.github.linuxforhealth.core.expression.VariableUtils;
 public class CheckNull implements Condition {
   public static final String NULL = "NULL";
   private String var1;
+  private String var1Name;
 
 
   public CheckNull(String var1) {
     this.var1 = var1;
+    this.var1Name = VariableUtils.getVarName(var1);
 
   }
 
@@ -24,7 +26,7 @@ public class CheckNull implements Condition {
 
   @Override
   public boolean test(Map<String, EvaluationResult> contextVariables) {
-    EvaluationResult variable1 = contextVariables.get(VariableUtils.getVarName(var1));
+    EvaluationResult variable1 = contextVariables.get(var1Name);
     
     return variable1 == null || variable1.isEmpty();
   }
@@ -5,8 +5,13 @@
  */
 package io.github.linuxforhealth.core.expression.condition;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.function.BiPredicate;
 import org.apache.commons.lang3.EnumUtils;
+import org.apache.commons.lang3.StringUtils;
+import com.google.common.collect.ImmutableMap;
 
 /**
  * This is rules predicate enum class that defines different types of predicates and type of input object it acts on
@@ -41,6 +46,10 @@ public enum ConditionPredicateEnum {
   ENDS_WITH_STRING(ConditionBiPredicates.ENDS_WITH, String.class, String.class), //
   NOT_ENDS_WITH_STRING(ConditionBiPredicates.NOT_ENDS_WITH, String.class, String.class); //
 
+    // operator -> input type simple name -> predicate, all upper case
+    private static final Map<String, Map<String, ConditionPredicateEnum>> PREDICATES_BY_OPERATOR =
+        groupByOperator();
+
     private BiPredicate<?, ?> predicate;
     private Class<?> klassT;
     private Class<?> klassU;
@@ -71,4 +80,33 @@ public enum ConditionPredicateEnum {
 
   }
 
+
+  /**
+   * Returns the predicates defined for the operator keyed by the upper case simple name of the
+   * input type, for example INTEGER or STRING.
+   *
+   * @param conditionOperator - operator such as EQUALS or GREATER_THAN
+   * @return predicates for the operator, empty if the operator is not known
+   */
+  public static Map<String, ConditionPredicateEnum> getConditionPredicates(
+      String conditionOperator) {
+    Map<String, ConditionPredicateEnum> predicates =
+        PREDICATES_BY_OPERATOR.get(StringUtils.upperCase(conditionOperator, Locale.ENGLISH));
+    return predicates != null ? predicates : ImmutableMap.of();
+  }
+
+
+  private static Map<String, Map<String, ConditionPredicateEnum>> groupByOperator() {
+    Map<String, Map<String, ConditionPredicateEnum>> byOperator = new HashMap<>();
+    for (ConditionPredicateEnum e : values()) {
+      String klassName = e.getKlassT().getSimpleName().toUpperCase(Locale.ENGLISH);
+      String operator = StringUtils.removeEnd(e.name(), "_" + klassName);
+      byOperator.computeIfAbsent(operator, k -> new HashMap<>()).put(klassName, e);
+    }
+    ImmutableMap.Builder<String, Map<String, ConditionPredicateEnum>> builder =
+        ImmutableMap.builder();
+    byOperator.forEach((k, v) -> builder.put(k, ImmutableMap.copyOf(v)));
+    return builder.build();
+  }
+
 }
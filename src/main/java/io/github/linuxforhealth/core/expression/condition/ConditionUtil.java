@@ -14,34 +14,39 @@ import io.github.linuxforhealth.api.Condition;
 
 /**
  * Utility class to create different conditions from string value.
- * 
+ *
+ * Conditions are compiled into a tree of {@link Condition}s when the template is loaded. Simple
+ * conditions can be combined with &amp;&amp; and ||, where &amp;&amp; binds tighter than ||, and
+ * grouped with parentheses to any depth, for example
+ * <code>($var1 EQUALS abc || $var2 NOT_NULL) &amp;&amp; $var3 NULL</code>. Evaluation stops as
+ * soon as the result is known.
  *
  */
 public class ConditionUtil {
+  private static final String AND = "&&";
+  private static final String OR = "||";
+  private static final String OPEN = "(";
+  private static final String CLOSE = ")";
+
   private ConditionUtil() {}
 
 
   public static Condition createCondition(String conditionString) {
     Preconditions.checkArgument(StringUtils.isNotBlank(conditionString),
         "conditionString cannot be blank or null.");
-    StringTokenizer ors = new StringTokenizer(conditionString, "||");
-    StringTokenizer ands = new StringTokenizer(conditionString, "&&");
-    if (ors.getTokenList().size() > 1) {
-      return getListOrConditions(ors);
-    } else if (ands.getTokenList().size() > 1) {
-      return getListAndConditions(ands);
-    } else {
-      return createSimpleCondition(conditionString);
+    ConditionParser parser = new ConditionParser(tokenize(conditionString));
+    Condition condition = parser.parseOr();
+    if (parser.hasNext()) {
+      throw new IllegalArgumentException(
+          "Condition string incorrect format, unexpected " + parser.peek());
     }
-
-
+    return condition;
   }
 
-  private static Condition createSimpleCondition(String conditionString) {
-    StringTokenizer stk = new StringTokenizer(conditionString);
-    if (stk.getTokenList().size() == 2) {
-      String var1 = stk.nextToken();
-      String var2 = stk.nextToken();
+  private static Condition createSimpleCondition(List<String> tokens) {
+    if (tokens.size() == 2) {
+      String var1 = tokens.get(0);
+      String var2 = tokens.get(1);
 
       if (var2.equalsIgnoreCase(CheckNotNull.NOT_NULL)) {
         return new CheckNotNull(var1);
@@ -50,10 +55,10 @@ public class ConditionUtil {
       } else {
         throw new IllegalArgumentException("Condition string incorrect format");
       }
-    } else if (stk.getTokenList().size() == 3) {
-      String var1 = stk.nextToken();
-      String operator = stk.nextToken();
-      String var2 = stk.nextToken();
+    } else if (tokens.size() == 3) {
+      String var1 = tokens.get(0);
+      String operator = tokens.get(1);
+      String var2 = tokens.get(2);
 
       return new SimpleBiCondition(var1, var2, operator);
     } else {
@@ -61,20 +66,115 @@ public class ConditionUtil {
     }
   }
 
-  private static CompountAndCondition getListAndConditions(StringTokenizer ands) {
-    List<Condition> conditions = new ArrayList<>();
-    for (String tok : ands.getTokenList()) {
-      conditions.add(createSimpleCondition(tok));
+
+  /**
+   * Splits the condition on white space and separates the operators &amp;&amp;, || and the
+   * parentheses at the start or end of a word.
+   */
+  private static List<String> tokenize(String conditionString) {
+    List<String> tokens = new ArrayList<>();
+    for (String word : new StringTokenizer(conditionString).getTokenList()) {
+      String rest = word;
+      int closing = 0;
+      while (rest.startsWith(OPEN)) {
+        tokens.add(OPEN);
+        rest = rest.substring(1);
+      }
+      while (rest.endsWith(CLOSE)) {
+        closing++;
+        rest = rest.substring(0, rest.length() - 1);
+      }
+      splitOperators(rest, tokens);
+      for (int i = 0; i < closing; i++) {
+        tokens.add(CLOSE);
+      }
     }
-    return new CompountAndCondition(conditions);
+    return tokens;
   }
 
-  private static CompountORCondition getListOrConditions(StringTokenizer ors) {
-    List<Condition> conditions = new ArrayList<>();
-    for (String tok : ors.getTokenList()) {
-      conditions.add(createSimpleCondition(tok));
+
+  private static void splitOperators(String word, List<String> tokens) {
+    int start = 0;
+    int i = 0;
+    while (i < word.length() - 1) {
+      String pair = word.substring(i, i + 2);
+      if (AND.equals(pair) || OR.equals(pair)) {
+        if (i > start) {
+          tokens.add(word.substring(start, i));
+        }
+        tokens.add(pair);
+        i += 2;
+        start = i;
+      } else {
+        i++;
+      }
+    }
+    if (start < word.length()) {
+      tokens.add(word.substring(start));
+    }
+  }
+
+
+  /**
+   * Recursive descent parser: or := and ('||' and)*, and := primary ('&amp;&amp;' primary)*,
+   * primary := '(' or ')' | simple condition.
+   */
+  private static class ConditionParser {
+    private final List<String> tokens;
+    private int position;
+
+    ConditionParser(List<String> tokens) {
+      this.tokens = tokens;
+    }
+
+    boolean hasNext() {
+      return position < tokens.size();
+    }
+
+    String peek() {
+      return hasNext() ? tokens.get(position) : null;
+    }
+
+    Condition parseOr() {
+      List<Condition> conditions = new ArrayList<>();
+      conditions.add(parseAnd());
+      while (OR.equals(peek())) {
+        position++;
+        conditions.add(parseAnd());
+      }
+      return conditions.size() == 1 ? conditions.get(0) : new CompountORCondition(conditions);
+    }
+
+    Condition parseAnd() {
+      List<Condition> conditions = new ArrayList<>();
+      conditions.add(parsePrimary());
+      while (AND.equals(peek())) {
+        position++;
+        conditions.add(parsePrimary());
+      }
+      return conditions.size() == 1 ? conditions.get(0) : new CompountAndCondition(conditions);
+    }
+
+    Condition parsePrimary() {
+      if (OPEN.equals(peek())) {
+        position++;
+        Condition condition = parseOr();
+        if (!CLOSE.equals(peek())) {
+          throw new IllegalArgumentException("Condition string incorrect format, missing )");
+        }
+        position++;
+        return condition;
+      }
+      List<String> simple = new ArrayList<>();
+      while (hasNext() && !isOperator(peek())) {
+        simple.add(tokens.get(position++));
+      }
+      return createSimpleCondition(simple);
+    }
+
+    private static boolean isOperator(String token) {
+      return AND.equals(token) || OR.equals(token) || OPEN.equals(token) || CLOSE.equals(token);
     }
-    return new CompountORCondition(conditions);
   }
 
 }
@@ -5,11 +5,25 @@
  */
 package io.github.linuxforhealth.core.expression.condition;
 
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Floats;
+import com.google.common.primitives.Ints;
 import io.github.linuxforhealth.api.Condition;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.core.expression.VariableUtils;
 
+/**
+ * Condition comparing a variable with a value or another variable. The operator and the variable
+ * names are resolved when the condition is created; the predicate for the type of the first
+ * variable is resolved the first time that type is seen and reused afterwards, same for a constant
+ * second value converted to the input type of the predicate.
+ *
+ */
 public class SimpleBiCondition implements Condition {
 
   private String var1;
@@ -19,56 +33,84 @@ public class SimpleBiCondition implements Condition {
   private Object var2;
   private String conditionOperator;
 
+  private final String var1Name;
+  private final String var2Name;
+  // input type identifier -> predicate, filled lazily
+  private final Map<String, Optional<ConditionPredicateEnum>> predicatesByIdentifier =
+      new ConcurrentHashMap<>();
+  private final Map<String, ConditionPredicateEnum> operatorPredicates;
+  // constant second value converted to the predicate input type, filled lazily
+  private final Map<Class<?>, Optional<Object>> convertedVar2 = new ConcurrentHashMap<>();
+
 
   public SimpleBiCondition(String var1, String var2, String conditionOperator) {
+    Preconditions.checkArgument(VariableUtils.isVar(var1), "First value should be a variable");
     this.var1 = var1;
     this.var2 = var2;
     this.conditionOperator = conditionOperator;
+    this.var1Name = VariableUtils.getVarName(var1);
+    this.var2Name = VariableUtils.isVar(var2) ? VariableUtils.getVarName(var2) : null;
+    this.operatorPredicates = ConditionPredicateEnum.getConditionPredicates(conditionOperator);
   }
 
 
 
   @Override
+  @SuppressWarnings("unchecked")
   public boolean test(Map<String, EvaluationResult> contextVariables) {
-    Object var1Value = null;
-    EvaluationResult variable1;
-    if (VariableUtils.isVar(var1)) {
-      variable1 = contextVariables.get(VariableUtils.getVarName(var1));
-      if (variable1 != null && !variable1.isEmpty()) {
-        var1Value = variable1.getValue();
+    EvaluationResult variable1 = contextVariables.get(var1Name);
+    if (variable1 == null || variable1.isEmpty() || variable1.getValue() == null) {
+      return false;
+    }
+    ConditionPredicateEnum condEnum = getPredicate(variable1.getIdentifier());
+    if (condEnum == null) {
+      return false;
+    }
+
+    Object var2Value;
+    if (var2Name != null) {
+      EvaluationResult variable2 = contextVariables.get(var2Name);
+      if (variable2 == null || variable2.isEmpty()) {
+        return false;
       }
+      var2Value = convert(variable2.getValue(), condEnum.getKlassU());
     } else {
-      throw new IllegalArgumentException("First value should be a variable");
+      var2Value = convertedVar2
+          .computeIfAbsent(condEnum.getKlassU(), k -> Optional.ofNullable(convert(var2, k)))
+          .orElse(null);
     }
-
-
-    Object var2Value = getValue(contextVariables);
-
+    Object var1Value = convert(variable1.getValue(), condEnum.getKlassT());
     if (var1Value != null && var2Value != null) {
-    
-      ConditionPredicateEnum condEnum = ConditionPredicateEnum
-          .getConditionPredicate(this.conditionOperator, variable1.getIdentifier());
-      if (condEnum != null) {
-        return condEnum.getPredicate().test(var1Value, var2Value);
-      }
-
+      return ((BiPredicate<Object, Object>) condEnum.getPredicate()).test(var1Value, var2Value);
     }
     return false;
   }
 
 
+  private ConditionPredicateEnum getPredicate(String identifier) {
+    if (identifier == null) {
+      return null;
+    }
+    return predicatesByIdentifier
+        .computeIfAbsent(identifier,
+            k -> Optional.ofNullable(operatorPredicates.get(k.toUpperCase(Locale.ENGLISH))))
+        .orElse(null);
+  }
+
 
-  private Object getValue(Map<String, EvaluationResult> contextVariables) {
-    Object var2Value = null;
-    if (var2 instanceof String && VariableUtils.isVar((String) var2)) {
-      EvaluationResult variable = contextVariables.get(VariableUtils.getVarName((String) var2));
-      if (variable != null && !variable.isEmpty()) {
-        var2Value = variable.getValue();
-      }
-    } else {
-      var2Value = var2;
+  private static Object convert(Object value, Class<?> klass) {
+    if (value == null || klass.isInstance(value)) {
+      return value;
+    }
+    String text = value.toString().trim();
+    if (klass == String.class) {
+      return text;
+    } else if (klass == Integer.class) {
+      return Ints.tryParse(text);
+    } else if (klass == Float.class) {
+      return Floats.tryParse(text);
     }
-    return var2Value;
+    return null;
   }
 
 
@@ -0,0 +1,66 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.id;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import io.github.linuxforhealth.api.IdGenerator;
+
+/**
+ * Id generators provided by the converter, all generate UUIDs.
+ * 
+ * <ul>
+ * <li>SECURE_RANDOM - random UUID from {@link UUID#randomUUID()}, the default</li>
+ * <li>FAST_RANDOM - random UUID from {@link ThreadLocalRandom}, not suitable where ids must not be
+ * guessable, does not contend on a shared SecureRandom</li>
+ * <li>TIME_ORDERED - UUID with the current time in milliseconds in the leading 48 bits (UUID
+ * version 7 layout), ids of later conversions sort after earlier ones</li>
+ * <li>NAME_BASED - name based UUID of the message key and the sequence, converting the same message
+ * again produces the same ids.</li>
+ * </ul>
+ */
+public enum StandardIdGenerator implements IdGenerator {
+
+  SECURE_RANDOM {
+    @Override
+    public String generateId(String messageKey, long sequence) {
+      return UUID.randomUUID().toString();
+    }
+  },
+
+  FAST_RANDOM {
+    @Override
+    public String generateId(String messageKey, long sequence) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+      return new UUID(msb, withVariant(random.nextLong())).toString();
+    }
+  },
+
+  TIME_ORDERED {
+    @Override
+    public String generateId(String messageKey, long sequence) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      long msb = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextInt() & 0x0FFFL);
+      return new UUID(msb, withVariant(random.nextLong())).toString();
+    }
+  },
+
+  NAME_BASED {
+    @Override
+    public String generateId(String messageKey, long sequence) {
+      String name = String.valueOf(messageKey) + '/' + sequence;
+      return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+  };
+
+
+  private static long withVariant(long lsb) {
+    return (lsb & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+  }
+
+}
@@ -19,32 +19,66 @@ import io.github.linuxforhealth.hl7.resource.ResourceReader;
  * @author pbhallam
  */
 public class Hl7v2Mapping {
-  private Map<String, Map<String, String>> mapping;
-  private static Hl7v2Mapping hl7Mapping;
-  private Hl7v2Mapping() {
+  private final Map<String, Map<String, String>> mapping;
+  private static volatile Hl7v2Mapping hl7Mapping;
+  private Hl7v2Mapping(ResourceReader reader) {
     try {
-      mapping = loadV2Mappings();
+      mapping = loadV2Mappings(reader);
     } catch (IOException e) {
       throw new IllegalStateException("Cannot initialize mapping", e);
     }
   }
 
-  private static Map<String, Map<String, String>> loadV2Mappings() throws IOException {
+  private static Map<String, Map<String, String>> loadV2Mappings(ResourceReader reader)
+      throws IOException {
 
     TypeReference<Map<String, Map<String, String>>> typeRef =
         new TypeReference<Map<String, Map<String, String>>>() {};
-    String content =
-        ResourceReader.getInstance().getResourceInHl7Folder(Constants.V2_TO_FHIR_MAPPING_PATH);
+    String content = reader.getResourceInHl7Folder(Constants.V2_TO_FHIR_MAPPING_PATH);
     return ObjectMapperUtil.getYAMLInstance()
         .readValue(content, typeRef);
   }
 
 
+  /**
+   * Returns the mapping of the {@link TerminologySnapshot} bound to the calling thread, or the
+   * shared mapping if none is bound.
+   * 
+   * @param fhirConceptName - simple name of the FHIR code enumeration
+   * @return HL7 code to FHIR code
+   */
   public static Map<String, String> getMapping(String fhirConceptName) {
-    if (hl7Mapping == null) {
-      hl7Mapping = new Hl7v2Mapping();
+    TerminologySnapshot bound = TerminologySnapshot.getBound();
+    Hl7v2Mapping current = bound != null ? bound.getHl7v2Mapping() : getShared();
+    return current.mapping.get(fhirConceptName);
+  }
+
+
+  /**
+   * Loads the mapping with the reader, independent of the shared mapping.
+   * 
+   * @param reader - {@link ResourceReader}
+   * @return {@link Hl7v2Mapping}
+   */
+  static Hl7v2Mapping load(ResourceReader reader) {
+    return new Hl7v2Mapping(reader);
+  }
+
+
+  static Hl7v2Mapping getShared() {
+    Hl7v2Mapping current = hl7Mapping;
+    if (current == null) {
+      current = new Hl7v2Mapping(ResourceReader.getInstance());
+      hl7Mapping = current;
     }
-    return hl7Mapping.mapping.get(fhirConceptName);
+    return current;
+  }
+
+  /**
+   * Reloads the shared mapping, lookups running in parallel keep using the current mapping.
+   */
+  public static void reinit() {
+    hl7Mapping = new Hl7v2Mapping(ResourceReader.getInstance());
   }
 
 }
@@ -26,20 +26,20 @@ import io.github.linuxforhealth.hl7.resource.ResourceReader;
 public class SystemUrlLookup {
   private final Map<String, CodingSystem> systemUrls;
 
-  private static SystemUrlLookup systemURLLookupInstance;
+  // replaced as a whole on reinit, readers always see either the old or the new mapping
+  private static volatile SystemUrlLookup systemURLLookupInstance;
 
-  private SystemUrlLookup() {
-    systemUrls = loadFromFile();
+  private SystemUrlLookup(ResourceReader reader) {
+    systemUrls = loadFromFile(reader);
     systemUrls.putAll(loadAdditionalFromFile());
 
   }
 
   // ConverterConfiguration
-  private static Map<String, CodingSystem> loadFromFile() {
+  private static Map<String, CodingSystem> loadFromFile(ResourceReader reader) {
     TypeReference<List<CodingSystem>> typeRef = new TypeReference<List<CodingSystem>>() {};
     try {
-      String content =
-          ResourceReader.getInstance().getResourceInHl7Folder(Constants.CODING_SYSTEM_MAPPING_PATH);
+      String content = reader.getResourceInHl7Folder(Constants.CODING_SYSTEM_MAPPING_PATH);
       List<CodingSystem> systems = ObjectMapperUtil.getYAMLInstance().readValue(content, typeRef);
       return systems.stream()
           .collect(Collectors.toMap(CodingSystem::getId, codeSystem -> codeSystem));
@@ -70,20 +70,20 @@ public class SystemUrlLookup {
 
 
   /**
-   * Get the system associated with the value
+   * Get the system associated with the value, from the {@link TerminologySnapshot} bound to the
+   * calling thread or from the shared coding systems if none is bound.
    * 
    * @param value -String
    * @return String
    * 
    */
   public static String getSystemUrl(String value) {
-    if (systemURLLookupInstance == null) {
-      systemURLLookupInstance = new SystemUrlLookup();
-    }
+    TerminologySnapshot bound = TerminologySnapshot.getBound();
+    SystemUrlLookup lookup = bound != null ? bound.getSystemUrlLookup() : getShared();
     if (StringUtils.startsWith(value, "http://") || StringUtils.startsWith(value, "https://")) {
       return value;
     } else if (value != null) {
-      CodingSystem system = systemURLLookupInstance.systemUrls.get(StringUtils.upperCase(value));
+      CodingSystem system = lookup.systemUrls.get(StringUtils.upperCase(value));
       if (system != null) {
         return system.getUrl();
       }
@@ -99,19 +99,41 @@ public class SystemUrlLookup {
    * 
    * 
    */
-  public static void init() {
+  public static synchronized void init() {
     if (systemURLLookupInstance == null) {
-      systemURLLookupInstance = new SystemUrlLookup();
+      systemURLLookupInstance = new SystemUrlLookup(ResourceReader.getInstance());
+    }
+  }
+
+
+  /**
+   * Loads the coding systems with the reader, independent of the shared coding systems.
+   * 
+   * @param reader - {@link ResourceReader}
+   * @return {@link SystemUrlLookup}
+   */
+  static SystemUrlLookup load(ResourceReader reader) {
+    return new SystemUrlLookup(reader);
+  }
+
+
+  static SystemUrlLookup getShared() {
+    SystemUrlLookup lookup = systemURLLookupInstance;
+    if (lookup == null) {
+      init();
+      lookup = systemURLLookupInstance;
     }
+    return lookup;
   }
   
   /**
-   * Reloads the coding system details
+   * Reloads the shared coding system details. The new mapping is fully loaded before it replaces the
+   * current one, lookups running in parallel keep using the current mapping.
    * 
    */
-  public static void reinit() {
+  public static synchronized void reinit() {
 
-    systemURLLookupInstance = new SystemUrlLookup();
+    systemURLLookupInstance = new SystemUrlLookup(ResourceReader.getInstance());
   }
 
 
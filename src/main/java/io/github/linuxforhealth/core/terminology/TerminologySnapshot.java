@@ -0,0 +1,90 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.terminology;
+
+import java.util.function.Supplier;
+import com.google.common.base.Preconditions;
+import io.github.linuxforhealth.hl7.resource.ResourceReader;
+
+/**
+ * Coding systems and HL7 v2 to FHIR code mappings loaded together, so that a converter can replace
+ * them as a whole. While a snapshot evaluates a conversion it is bound to the evaluating thread,
+ * {@link SystemUrlLookup} and {@link Hl7v2Mapping} read the bound snapshot and fall back to the
+ * shared mappings when none is bound.
+ *
+ */
+public final class TerminologySnapshot {
+  private static final ThreadLocal<TerminologySnapshot> BOUND = new ThreadLocal<>();
+
+  private final Hl7v2Mapping hl7v2Mapping;
+  private final SystemUrlLookup systemUrlLookup;
+
+  private TerminologySnapshot(Hl7v2Mapping hl7v2Mapping, SystemUrlLookup systemUrlLookup) {
+    this.hl7v2Mapping = hl7v2Mapping;
+    this.systemUrlLookup = systemUrlLookup;
+  }
+
+
+  /**
+   * Returns a snapshot of the shared mappings, loading them if needed.
+   * 
+   * @return {@link TerminologySnapshot}
+   */
+  public static TerminologySnapshot shared() {
+    return new TerminologySnapshot(Hl7v2Mapping.getShared(), SystemUrlLookup.getShared());
+  }
+
+
+  /**
+   * Loads the mappings with the reader. The shared mappings are not changed.
+   * 
+   * @param reader - {@link ResourceReader}
+   * @return {@link TerminologySnapshot}
+   * @throws IllegalStateException - if the HL7 v2 to FHIR mapping cannot be read
+   * @throws IllegalArgumentException - if the coding systems cannot be read
+   */
+  public static TerminologySnapshot load(ResourceReader reader) {
+    Preconditions.checkArgument(reader != null, "reader cannot be null");
+    return new TerminologySnapshot(Hl7v2Mapping.load(reader), SystemUrlLookup.load(reader));
+  }
+
+
+  /**
+   * Runs the evaluation with this snapshot bound to the calling thread.
+   * 
+   * @param evaluation - evaluation doing lookups
+   * @return result of the evaluation
+   */
+  public <T> T evaluate(Supplier<T> evaluation) {
+    TerminologySnapshot previous = BOUND.get();
+    BOUND.set(this);
+    try {
+      return evaluation.get();
+    } finally {
+      if (previous != null) {
+        BOUND.set(previous);
+      } else {
+        BOUND.remove();
+      }
+    }
+  }
+
+
+  static TerminologySnapshot getBound() {
+    return BOUND.get();
+  }
+
+
+  Hl7v2Mapping getHl7v2Mapping() {
+    return hl7v2Mapping;
+  }
+
+
+  SystemUrlLookup getSystemUrlLookup() {
+    return systemUrlLookup;
+  }
+
+}
@@ -64,6 +64,18 @@ public class FHIRContext {
 
 
   public String encodeResourceToString(Bundle bundle) {
+    validate(bundle);
+    return this.parser.encodeResourceToString(bundle);
+  }
+
+
+  /**
+   * Validates the bundle if resource validation is enabled for this context.
+   *
+   * @param bundle - {@link Bundle}
+   * @throws IllegalArgumentException - if the bundle has validation errors
+   */
+  public void validate(Bundle bundle) {
     if (validateResource) {
     ValidationResult result = getValidator().validateWithResult(bundle);
     // The result object now contains the validation results
@@ -87,10 +99,9 @@ public class FHIRContext {
 
       }
     }
-    return this.parser.encodeResourceToString(bundle);
   }
 
-  private static void initValidator() {
+  private static synchronized void initValidator() {
     if (validator == null) {
       validator = CTX.newValidator();
       // Create a validation module and register it
@@ -0,0 +1,257 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import com.google.common.base.Preconditions;
+
+/**
+ * Reactive streams processor that converts the raw HL7 messages of its publisher and publishes a
+ * {@link ConversionResult} for each message, in the order the conversions complete. A failed
+ * conversion is published as a result with the error, it does not terminate the stream.
+ *
+ * Messages are requested from the publisher only while fewer than maxInFlight messages are being
+ * converted or waiting for the subscriber, so a slow subscriber slows down the publisher instead of
+ * results being buffered. Supports a single subscriber.
+ *
+ */
+public class ConversionProcessor implements Processor<String, ConversionResult> {
+  private final Function<String, CompletableFuture<String>> conversion;
+  private final int maxInFlight;
+
+  private volatile Subscription upstream;
+  private volatile Subscriber<? super ConversionResult> downstream;
+  private final AtomicBoolean started = new AtomicBoolean();
+  // converted messages waiting for demand
+  private final Queue<ConversionResult> completed = new ConcurrentLinkedQueue<>();
+  // conversions that have not completed yet
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicLong demand = new AtomicLong();
+  // serializes the signals to the subscriber, see drain()
+  private final AtomicInteger wip = new AtomicInteger();
+  private volatile boolean upstreamDone;
+  private volatile Throwable error;
+  // request of a non positive number of results, terminates the subscriber right away
+  private volatile Throwable requestError;
+  private volatile boolean cancelled;
+  private boolean terminated;
+
+
+  /**
+   *
+   * @param converter - {@link HL7ToFHIRConverter}
+   * @param options - {@link ConverterOptions}
+   * @param executor - executor running the conversions
+   * @param maxInFlight - maximum number of messages requested from the publisher and not yet
+   *        published
+   */
+  public ConversionProcessor(HL7ToFHIRConverter converter, ConverterOptions options,
+      Executor executor, int maxInFlight) {
+    this(toConversion(converter, options, executor), maxInFlight);
+  }
+
+
+  ConversionProcessor(Function<String, CompletableFuture<String>> conversion, int maxInFlight) {
+    Preconditions.checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+    this.conversion = conversion;
+    this.maxInFlight = maxInFlight;
+  }
+
+
+  @Override
+  public void subscribe(Subscriber<? super ConversionResult> subscriber) {
+    Preconditions.checkArgument(subscriber != null, "subscriber cannot be null");
+    synchronized (this) {
+      if (downstream != null) {
+        subscriber.onSubscribe(new Subscription() {
+          @Override
+          public void request(long n) {
+            // rejected subscriber
+          }
+
+          @Override
+          public void cancel() {
+            // rejected subscriber
+          }
+        });
+        subscriber.onError(new IllegalStateException("Only a single subscriber is supported"));
+        return;
+      }
+      downstream = subscriber;
+    }
+    subscriber.onSubscribe(new Subscription() {
+      @Override
+      public void request(long n) {
+        if (n <= 0) {
+          cancelUpstream();
+          requestError =
+              new IllegalArgumentException("Requested " + n + " results, must be positive");
+        } else {
+          addDemand(n);
+        }
+        drain();
+      }
+
+      @Override
+      public void cancel() {
+        cancelled = true;
+        cancelUpstream();
+        completed.clear();
+      }
+    });
+    start();
+    // the publisher may have completed before the subscriber subscribed
+    drain();
+  }
+
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    Preconditions.checkArgument(subscription != null, "subscription cannot be null");
+    if (upstream != null) {
+      subscription.cancel();
+      return;
+    }
+    upstream = subscription;
+    start();
+  }
+
+
+  @Override
+  public void onNext(String message) {
+    active.incrementAndGet();
+    CompletableFuture<String> future;
+    try {
+      future = conversion.apply(message);
+    } catch (RuntimeException e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    future.whenComplete((json, e) -> {
+      completed.offer(new ConversionResult(message, json, unwrap(e)));
+      active.decrementAndGet();
+      drain();
+    });
+  }
+
+
+  @Override
+  public void onError(Throwable throwable) {
+    error = throwable;
+    upstreamDone = true;
+    drain();
+  }
+
+
+  @Override
+  public void onComplete() {
+    upstreamDone = true;
+    drain();
+  }
+
+
+  private void start() {
+    if (upstream != null && downstream != null && started.compareAndSet(false, true)) {
+      upstream.request(maxInFlight);
+    }
+  }
+
+
+  private void addDemand(long n) {
+    long current;
+    long next;
+    do {
+      current = demand.get();
+      next = current + n < 0 ? Long.MAX_VALUE : current + n;
+    } while (!demand.compareAndSet(current, next));
+  }
+
+
+  /**
+   * Publishes the completed results the subscriber has demand for, and completes the subscriber
+   * once the publisher completed and all conversions are published. Only one thread publishes at a
+   * time, a thread calling drain while another publishes leaves the work to that thread.
+   */
+  private void drain() {
+    if (downstream == null || wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    while (true) {
+      long requested = demand.get();
+      long emitted = 0;
+      while (emitted != requested && !cancelled && requestError == null) {
+        ConversionResult result = completed.poll();
+        if (result == null) {
+          break;
+        }
+        downstream.onNext(result);
+        emitted++;
+        // the published message frees a slot for the next one
+        if (!upstreamDone) {
+          upstream.request(1);
+        }
+      }
+      if (emitted != 0 && requested != Long.MAX_VALUE) {
+        demand.addAndGet(-emitted);
+      }
+      if (!cancelled && !terminated && requestError != null) {
+        terminated = true;
+        completed.clear();
+        downstream.onError(requestError);
+      } else if (!cancelled && !terminated && upstreamDone && active.get() == 0
+          && completed.isEmpty()) {
+        terminated = true;
+        if (error != null) {
+          downstream.onError(error);
+        } else {
+          downstream.onComplete();
+        }
+      }
+      missed = wip.addAndGet(-missed);
+      if (missed == 0) {
+        return;
+      }
+    }
+  }
+
+
+  private void cancelUpstream() {
+    Subscription subscription = upstream;
+    if (subscription != null) {
+      subscription.cancel();
+    }
+  }
+
+
+  private static Throwable unwrap(Throwable e) {
+    if (e instanceof CompletionException && e.getCause() != null) {
+      return e.getCause();
+    }
+    return e;
+  }
+
+
+  private static Function<String, CompletableFuture<String>> toConversion(
+      HL7ToFHIRConverter converter, ConverterOptions options, Executor executor) {
+    Preconditions.checkArgument(converter != null, "converter cannot be null");
+    Preconditions.checkArgument(options != null, "options cannot be null");
+    Preconditions.checkArgument(executor != null, "executor cannot be null");
+    return message -> converter.convertAsync(message, options, executor);
+  }
+
+}
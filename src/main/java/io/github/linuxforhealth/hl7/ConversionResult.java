@@ -0,0 +1,60 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+/**
+ * Result of the conversion of one message published by {@link ConversionProcessor}: the JSON
+ * bundle, or the exception the conversion failed with.
+ *
+ */
+public final class ConversionResult {
+
+  private final String message;
+  private final String json;
+  private final Throwable error;
+
+  ConversionResult(String message, String json, Throwable error) {
+    this.message = message;
+    this.json = json;
+    this.error = error;
+  }
+
+
+  /**
+   * Returns the raw message that was converted.
+   *
+   * @return raw message
+   */
+  public String getMessage() {
+    return message;
+  }
+
+
+  /**
+   * Returns the JSON representation of the FHIR bundle.
+   *
+   * @return JSON or null if the conversion failed
+   */
+  public String getJson() {
+    return json;
+  }
+
+
+  /**
+   * Returns the exception the conversion failed with.
+   *
+   * @return exception or null if the conversion succeeded
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.linuxforhealth.hl7.parsing.MessageCostEstimate;
+
+/**
+ * Runs conversions on two bounded lanes, so that large messages, such as lab results with
+ * thousands of OBX segments, do not hold up small messages. The lane is chosen before the message
+ * is parsed from a {@link MessageCostEstimate}. Each lane has its own number of threads and queue
+ * depth, a message submitted to a lane whose queue is full is rejected with
+ * {@link RejectedExecutionException}.
+ *
+ */
+public class ConversionScheduler implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConversionScheduler.class);
+
+  /**
+   * Lane a message is converted on.
+   */
+  public enum Lane {
+    SMALL, LARGE
+  }
+
+  private final BiFunction<String, ConverterOptions, String> conversion;
+  private final int largeMessageLength;
+  private final int largeMessageSegments;
+  private final ThreadPoolExecutor smallLane;
+  private final ThreadPoolExecutor largeLane;
+  private final AtomicLong rejectedSmall = new AtomicLong();
+  private final AtomicLong rejectedLarge = new AtomicLong();
+
+
+  private ConversionScheduler(Builder builder) {
+    this.conversion = builder.conversion;
+    this.largeMessageLength = builder.largeMessageLength;
+    this.largeMessageSegments = builder.largeMessageSegments;
+    this.smallLane = createLane("hl7-convert-small-%d", builder.smallThreads, builder.smallQueue);
+    this.largeLane = createLane("hl7-convert-large-%d", builder.largeThreads, builder.largeQueue);
+  }
+
+
+  public static class Builder {
+    private final BiFunction<String, ConverterOptions, String> conversion;
+    private int smallThreads = Runtime.getRuntime().availableProcessors();
+    private int smallQueue = 1000;
+    private int largeThreads = 1;
+    private int largeQueue = 10;
+    private int largeMessageLength = 64 * 1024;
+    private int largeMessageSegments = 500;
+
+
+    public Builder(HL7ToFHIRConverter converter) {
+      Preconditions.checkArgument(converter != null, "converter cannot be null");
+      this.conversion = converter::convert;
+    }
+
+
+    Builder(BiFunction<String, ConverterOptions, String> conversion) {
+      this.conversion = conversion;
+    }
+
+
+    /**
+     * Threads and queue depth of the lane for small messages. Defaults to one thread per processor
+     * and 1000 queued messages.
+     *
+     * @param threads - concurrent conversions
+     * @param queueDepth - messages waiting for a thread
+     * @return {@link Builder}
+     */
+    public Builder withSmallLane(int threads, int queueDepth) {
+      Preconditions.checkArgument(threads > 0, "threads must be positive");
+      Preconditions.checkArgument(queueDepth > 0, "queueDepth must be positive");
+      this.smallThreads = threads;
+      this.smallQueue = queueDepth;
+      return this;
+    }
+
+
+    /**
+     * Threads and queue depth of the lane for large messages. Defaults to one thread and 10 queued
+     * messages.
+     *
+     * @param threads - concurrent conversions
+     * @param queueDepth - messages waiting for a thread
+     * @return {@link Builder}
+     */
+    public Builder withLargeLane(int threads, int queueDepth) {
+      Preconditions.checkArgument(threads > 0, "threads must be positive");
+      Preconditions.checkArgument(queueDepth > 0, "queueDepth must be positive");
+      this.largeThreads = threads;
+      this.largeQueue = queueDepth;
+      return this;
+    }
+
+
+    /**
+     * Messages with at least this many characters or segments go to the large lane. Defaults to 64K
+     * characters and 500 segments.
+     *
+     * @param length - message length in characters
+     * @param segments - number of segments
+     * @return {@link Builder}
+     */
+    public Builder withLargeMessageThreshold(int length, int segments) {
+      Preconditions.checkArgument(length > 0, "length must be positive");
+      Preconditions.checkArgument(segments > 0, "segments must be positive");
+      this.largeMessageLength = length;
+      this.largeMessageSegments = segments;
+      return this;
+    }
+
+
+    public ConversionScheduler build() {
+      return new ConversionScheduler(this);
+    }
+  }
+
+
+  /**
+   * Queues the conversion of the message on the lane for its size.
+   *
+   * @param hl7MessageData - raw message
+   * @param options - {@link ConverterOptions}
+   * @return future completed with the JSON bundle, or exceptionally with the conversion failure
+   * @throws RejectedExecutionException - if the queue of the lane is full or the scheduler is closed
+   */
+  public CompletableFuture<String> submit(String hl7MessageData, ConverterOptions options) {
+    Preconditions.checkArgument(options != null, "options cannot be null.");
+    Lane lane = getLane(hl7MessageData);
+    ThreadPoolExecutor executor = lane == Lane.LARGE ? largeLane : smallLane;
+    try {
+      return CompletableFuture.supplyAsync(() -> conversion.apply(hl7MessageData, options),
+          executor);
+    } catch (RejectedExecutionException e) {
+      (lane == Lane.LARGE ? rejectedLarge : rejectedSmall).incrementAndGet();
+      LOGGER.warn("Rejected message for the {} lane, queue is full", lane);
+      throw e;
+    }
+  }
+
+
+  /**
+   * Returns the lane the message would be converted on.
+   *
+   * @param hl7MessageData - raw message
+   * @return {@link Lane}
+   */
+  public Lane getLane(String hl7MessageData) {
+    MessageCostEstimate cost = MessageCostEstimate.scan(hl7MessageData);
+    if (cost.getLength() >= largeMessageLength || cost.getSegments() >= largeMessageSegments) {
+      return Lane.LARGE;
+    }
+    return Lane.SMALL;
+  }
+
+
+  public long getRejected(Lane lane) {
+    return lane == Lane.LARGE ? rejectedLarge.get() : rejectedSmall.get();
+  }
+
+
+  /**
+   * Stops accepting messages, queued conversions still run.
+   */
+  @Override
+  public void close() {
+    smallLane.shutdown();
+    largeLane.shutdown();
+  }
+
+
+  /**
+   * Waits for the queued conversions to complete after {@link #close()}.
+   *
+   * @param timeout - maximum time to wait
+   * @param unit - unit of the timeout
+   * @return true if all conversions completed
+   * @throws InterruptedException - if interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    return smallLane.awaitTermination(timeout, unit)
+        && largeLane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+  }
+
+
+  private static ThreadPoolExecutor createLane(String nameFormat, int threads, int queueDepth) {
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueDepth),
+        new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build(),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+}
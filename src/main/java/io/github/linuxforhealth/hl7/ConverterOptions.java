@@ -6,9 +6,12 @@
 
 package io.github.linuxforhealth.hl7;
 
+import java.time.Duration;
 import org.hl7.fhir.r4.model.Bundle.BundleType;
 import com.google.common.base.Preconditions;
+import io.github.linuxforhealth.api.IdGenerator;
 import io.github.linuxforhealth.core.Constants;
+import io.github.linuxforhealth.core.id.StandardIdGenerator;
 
 /**
  * Converts HL7 message to FHIR bundle resource based on the customizable templates.
@@ -23,6 +26,13 @@ public class ConverterOptions {
   private BundleType bundleType;
   private boolean prettyPrint;
   private boolean validateResource;
+  private UnsupportedMessageHandler unsupportedMessageHandler;
+  private boolean skipUnreferencedSegments;
+  private boolean subTemplateCache;
+  private boolean dedupeAdditionalResources;
+  private IdGenerator idGenerator;
+  private Duration timeout;
+  private boolean partialResultOnTimeout;
 
 
   private ConverterOptions(Builder builder) {
@@ -33,6 +43,17 @@ public class ConverterOptions {
     }
     this.prettyPrint = builder.prettyPrint;
     this.validateResource = builder.validateResource;
+    this.unsupportedMessageHandler = builder.unsupportedMessageHandler;
+    this.skipUnreferencedSegments = builder.skipUnreferencedSegments;
+    this.subTemplateCache = builder.subTemplateCache;
+    this.dedupeAdditionalResources = builder.dedupeAdditionalResources;
+    if (builder.idGenerator != null) {
+      this.idGenerator = builder.idGenerator;
+    } else {
+      this.idGenerator = StandardIdGenerator.SECURE_RANDOM;
+    }
+    this.timeout = builder.timeout;
+    this.partialResultOnTimeout = builder.partialResultOnTimeout;
 
   }
 
@@ -40,6 +61,13 @@ public class ConverterOptions {
     private BundleType bundleType;
     private boolean prettyPrint;
     private boolean validateResource;
+    private UnsupportedMessageHandler unsupportedMessageHandler;
+    private boolean skipUnreferencedSegments;
+    private boolean subTemplateCache;
+    private boolean dedupeAdditionalResources;
+    private IdGenerator idGenerator;
+    private Duration timeout;
+    private boolean partialResultOnTimeout;
 
 
     public Builder withBundleType(BundleType bundleType) {
@@ -58,6 +86,94 @@ public class ConverterOptions {
       return this;
     }
 
+    /**
+     * Messages without a message template are passed to the handler instead of failing with
+     * UnsupportedOperationException.
+     * 
+     * @param handler - {@link UnsupportedMessageHandler}
+     * @return {@link Builder}
+     */
+    public Builder withUnsupportedMessageHandler(UnsupportedMessageHandler handler) {
+      Preconditions.checkArgument(handler != null, "Unsupported message handler cannot be null");
+      this.unsupportedMessageHandler = handler;
+      return this;
+    }
+
+    /**
+     * Segments that are not read by the message template are removed before the message is parsed.
+     * Reduces parse time and memory for messages with many segments the templates do not use.
+     * 
+     * @return {@link Builder}
+     */
+    public Builder withSkipUnreferencedSegments() {
+      this.skipUnreferencedSegments = true;
+      return this;
+    }
+
+    /**
+     * Datatype and secondary templates evaluated more than once with the same inputs in a message,
+     * such as the CodeableConcept of the same ordering provider on every OBX, are evaluated once
+     * and their result reused.
+     * 
+     * @return {@link Builder}
+     */
+    public Builder withSubTemplateCache() {
+      this.subTemplateCache = true;
+      return this;
+    }
+
+    /**
+     * Additional resources with the same content, such as the Practitioner of the same ordering
+     * provider generated for every Observation, are added to the bundle once. References to the
+     * duplicates are rewritten to the resource that was added.
+     * 
+     * @return {@link Builder}
+     */
+    public Builder withDedupeAdditionalResources() {
+      this.dedupeAdditionalResources = true;
+      return this;
+    }
+
+    /**
+     * Generator of the ids of the bundle and of the resources whose template uses a RESOURCE_ID
+     * expression, {@link StandardIdGenerator#SECURE_RANDOM} by default.
+     * 
+     * @param idGenerator - {@link IdGenerator}, see {@link StandardIdGenerator}
+     * @return {@link Builder}
+     */
+    public Builder withIdGenerator(IdGenerator idGenerator) {
+      Preconditions.checkArgument(idGenerator != null, "idGenerator cannot be null");
+      this.idGenerator = idGenerator;
+      return this;
+    }
+
+    /**
+     * Deadline of each conversion, measured from the start of the conversion. A conversion that
+     * runs past it fails with
+     * {@link io.github.linuxforhealth.core.exception.ConversionTimeoutException}, or returns the
+     * resources converted so far if {@link #withPartialResultOnTimeout()} is set.
+     * 
+     * @param timeout - positive duration
+     * @return {@link Builder}
+     */
+    public Builder withTimeout(Duration timeout) {
+      Preconditions.checkArgument(timeout != null && !timeout.isNegative() && !timeout.isZero(),
+          "timeout must be positive");
+      this.timeout = timeout;
+      return this;
+    }
+
+    /**
+     * A conversion that runs past its timeout returns a bundle with the resources converted before
+     * the timeout instead of failing.
+     * 
+     * @return {@link Builder}
+     */
+    public Builder withPartialResultOnTimeout() {
+      this.partialResultOnTimeout = true;
+      return this;
+    }
+
 
 
 
@@ -81,6 +197,34 @@ public class ConverterOptions {
     return validateResource;
   }
 
+  public UnsupportedMessageHandler getUnsupportedMessageHandler() {
+    return unsupportedMessageHandler;
+  }
+
+  public boolean isSkipUnreferencedSegments() {
+    return skipUnreferencedSegments;
+  }
+
+  public boolean isSubTemplateCache() {
+    return subTemplateCache;
+  }
+
+  public boolean isDedupeAdditionalResources() {
+    return dedupeAdditionalResources;
+  }
+
+  public IdGenerator getIdGenerator() {
+    return idGenerator;
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  public boolean isPartialResultOnTimeout() {
+    return partialResultOnTimeout;
+  }
+
 
 
 }
\ No newline at end of file
@@ -10,22 +10,34 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.nio.file.Paths;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.r4.model.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import ca.uhn.hl7v2.HL7Exception;
 import ca.uhn.hl7v2.model.Message;
 import ca.uhn.hl7v2.util.Hl7InputStreamMessageStringIterator;
+import io.github.linuxforhealth.core.config.ConverterConfiguration;
 import io.github.linuxforhealth.core.terminology.TerminologyLookup;
+import io.github.linuxforhealth.core.terminology.TerminologySnapshot;
 import io.github.linuxforhealth.fhir.FHIRContext;
+import io.github.linuxforhealth.hl7.message.ConversionDeadline;
+import io.github.linuxforhealth.hl7.message.HL7MessageData;
 import io.github.linuxforhealth.hl7.message.HL7MessageEngine;
 import io.github.linuxforhealth.hl7.message.HL7MessageModel;
 import io.github.linuxforhealth.hl7.parsing.HL7DataExtractor;
 import io.github.linuxforhealth.hl7.parsing.HL7HapiParser;
+import io.github.linuxforhealth.hl7.parsing.RawMessageHeader;
+import io.github.linuxforhealth.hl7.parsing.SegmentFilter.FilteredMessage;
+import io.github.linuxforhealth.hl7.parsing.XmlMessageReader;
 import io.github.linuxforhealth.hl7.resource.ResourceReader;
 
 /**
@@ -35,7 +47,10 @@ import io.github.linuxforhealth.hl7.resource.ResourceReader;
  * @author pbhallam
  */
 public class HL7ToFHIRConverter {
-  private Map<String, HL7MessageModel> messagetemplates = new HashMap<>();
+  private static final Logger LOGGER = LoggerFactory.getLogger(HL7ToFHIRConverter.class);
+  // replaced as a whole on reload so that conversions never see a partial set of templates and
+  // mappings
+  private volatile Snapshot snapshot;
 
   /**
    * Constructor initialized all the templates used for converting the HL7 to FHIR bundle resource.
@@ -45,15 +60,56 @@ public class HL7ToFHIRConverter {
   public HL7ToFHIRConverter() {
 
     try {
-      messagetemplates.putAll(ResourceReader.getInstance().getMessageTemplates());
+      snapshot = new Snapshot(ResourceReader.getInstance().getMessageTemplates(),
+          TerminologySnapshot.shared());
       TerminologyLookup.init();
-    } catch (IOException | IllegalArgumentException e) {
+    } catch (IOException | IllegalArgumentException | IllegalStateException e) {
       throw new IllegalStateException("Failure to initialize the templates for the converter.", e);
     }
   }
 
 
 
+  /**
+   * Reloads the templates and the code system mappings of this converter. The new templates and
+   * mappings are read with a new {@link ResourceReader} on the calling thread and published with a
+   * single swap once loaded, other converters and the shared reader are not affected. Conversions
+   * in progress complete with the templates and mappings they started with, conversions started
+   * after the swap use the new ones.
+   * 
+   * @throws IllegalStateException - If any issues are encountered when loading the templates, the
+   *         converter keeps using the current templates.
+   */
+  public synchronized void reload() {
+    ResourceReader reader = new ResourceReader();
+    Snapshot loaded;
+    try {
+      loaded = new Snapshot(reader.getMessageTemplates(), TerminologySnapshot.load(reader));
+    } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+      throw new IllegalStateException("Failure to reload the templates for the converter.", e);
+    }
+    snapshot = loaded;
+  }
+
+
+  /**
+   * Starts watching the template folder configured with base.path.resource and reloads the
+   * templates when files in the folder change. Close the returned watcher to stop watching.
+   * 
+   * @return {@link TemplateWatcher}
+   * @throws IOException - if the folder cannot be watched
+   * @throws IllegalStateException - if base.path.resource is not configured
+   */
+  public TemplateWatcher watchTemplates() throws IOException {
+    String folder = ConverterConfiguration.getInstance().getResourceFolder();
+    Preconditions.checkState(StringUtils.isNotBlank(folder),
+        "base.path.resource needs to be configured for watching templates");
+    return new TemplateWatcher(Paths.get(folder), this::reload,
+        TemplateWatcher.DEFAULT_QUIET_PERIOD_MILLIS);
+  }
+
+
+
   /**
    * Converts the input HL7 file (.hl7) into FHIR bundle resource.
    * 
@@ -109,22 +165,156 @@ public class HL7ToFHIRConverter {
    * 
    * @return JSON representation of FHIR {@link Bundle} resource.
    * @throws UnsupportedOperationException - if message type is not supported
+   * @throws io.github.linuxforhealth.core.exception.ConversionTimeoutException - if the conversion
+   *         runs past the timeout of the options and partial results are not enabled
    */
   public String convert(String hl7MessageData, ConverterOptions options) {
     Preconditions.checkArgument(StringUtils.isNotBlank(hl7MessageData),
         "Input HL7 message cannot be blank");
     Preconditions.checkArgument(options != null, "options cannot be null.");
+    return prepare(hl7MessageData, options, true).transform().encode();
+  }
+
+
+  /**
+   * Converts the input HL7 message (String data) into FHIR bundle resource without blocking the
+   * calling thread, all the stages of the conversion run on the executor.
+   * 
+   * @param hl7MessageData - raw message
+   * @param options - {@link ConverterOptions}
+   * @param executor - executor running the conversion
+   * @return future completed with the JSON representation of the FHIR {@link Bundle} resource, or
+   *         exceptionally with the exception {@link #convert(String, ConverterOptions)} throws
+   */
+  public CompletableFuture<String> convertAsync(String hl7MessageData, ConverterOptions options,
+      Executor executor) {
+    return convertAsync(hl7MessageData, options, executor, executor, executor);
+  }
+
+
+  /**
+   * Converts the input HL7 message (String data) into FHIR bundle resource without blocking the
+   * calling thread. The stages run on separate executors so the stages of different messages
+   * overlap: the message is parsed on the parse executor, the templates are evaluated on the
+   * evaluate executor, and the bundle is validated and serialized on the serialize executor.
+   * 
+   * @param hl7MessageData - raw message
+   * @param options - {@link ConverterOptions}
+   * @param parseExecutor - executor parsing the message
+   * @param evaluateExecutor - executor evaluating the templates
+   * @param serializeExecutor - executor validating and serializing the bundle
+   * @return future completed with the JSON representation of the FHIR {@link Bundle} resource, or
+   *         exceptionally with the exception {@link #convert(String, ConverterOptions)} throws
+   */
+  public CompletableFuture<String> convertAsync(String hl7MessageData, ConverterOptions options,
+      Executor parseExecutor, Executor evaluateExecutor, Executor serializeExecutor) {
+    Preconditions.checkArgument(serializeExecutor != null, "executors cannot be null.");
+    return transformAsync(hl7MessageData, options, true, parseExecutor, evaluateExecutor)
+        .thenApplyAsync(Conversion::encode, serializeExecutor);
+  }
+
+
+  /**
+   * Converts the input HL7 message (String data) into FHIR bundle resource without blocking the
+   * calling thread, all the stages of the conversion run on the executor. Messages without a
+   * message template complete exceptionally with UnsupportedOperationException.
+   * 
+   * @param hl7MessageData - raw message
+   * @param options - {@link ConverterOptions}
+   * @param executor - executor running the conversion
+   * @return future completed with the FHIR {@link Bundle} resource
+   */
+  public CompletableFuture<Bundle> convertToBundleAsync(String hl7MessageData,
+      ConverterOptions options, Executor executor) {
+    return convertToBundleAsync(hl7MessageData, options, executor, executor, executor);
+  }
+
+
+  /**
+   * Converts the input HL7 message (String data) into FHIR bundle resource without blocking the
+   * calling thread, see
+   * {@link #convertAsync(String, ConverterOptions, Executor, Executor, Executor)}. Messages
+   * without a message template complete exceptionally with UnsupportedOperationException, the
+   * unsupported message handler of the options is not used.
+   * 
+   * @param hl7MessageData - raw message
+   * @param options - {@link ConverterOptions}
+   * @param parseExecutor - executor parsing the message
+   * @param evaluateExecutor - executor evaluating the templates
+   * @param validateExecutor - executor validating the bundle
+   * @return future completed with the FHIR {@link Bundle} resource
+   */
+  public CompletableFuture<Bundle> convertToBundleAsync(String hl7MessageData,
+      ConverterOptions options, Executor parseExecutor, Executor evaluateExecutor,
+      Executor validateExecutor) {
+    Preconditions.checkArgument(validateExecutor != null, "executors cannot be null.");
+    return transformAsync(hl7MessageData, options, false, parseExecutor, evaluateExecutor)
+        .thenApplyAsync(Conversion::validate, validateExecutor);
+  }
+
+
+  private CompletableFuture<Conversion> transformAsync(String hl7MessageData,
+      ConverterOptions options, boolean useUnsupportedMessageHandler, Executor parseExecutor,
+      Executor evaluateExecutor) {
+    Preconditions.checkArgument(StringUtils.isNotBlank(hl7MessageData),
+        "Input HL7 message cannot be blank");
+    Preconditions.checkArgument(options != null, "options cannot be null.");
+    Preconditions.checkArgument(parseExecutor != null && evaluateExecutor != null,
+        "executors cannot be null.");
+    return CompletableFuture
+        .supplyAsync(() -> prepare(hl7MessageData, options, useUnsupportedMessageHandler),
+            parseExecutor)
+        .thenApplyAsync(Conversion::transform, evaluateExecutor);
+  }
+
+
+  /**
+   * Parses the message and prepares the data source and the engine for evaluating the templates.
+   */
+  private Conversion prepare(String hl7MessageData, ConverterOptions options,
+      boolean useUnsupportedMessageHandler) {
+    Snapshot current = snapshot;
+    Map<String, HL7MessageModel> templates = current.templates;
+    ConversionDeadline deadline = options.getTimeout() != null
+        ? ConversionDeadline.start(options.getTimeout(), options.isPartialResultOnTimeout())
+        : null;
+
+    // XML encoded messages are streamed into ER7 instead of being parsed into a DOM by HAPI
+    String er7MessageData = XmlMessageReader.isXml(hl7MessageData)
+        ? XmlMessageReader.toER7(hl7MessageData)
+        : hl7MessageData;
+
+    // reject unsupported message types before spending time on parsing the message
+    RawMessageHeader header = RawMessageHeader.scan(er7MessageData);
+    String sniffedType = header != null ? header.getMessageStructure() : null;
+    if (sniffedType != null && !templates.containsKey(sniffedType)) {
+      return new Conversion(handleUnsupportedMessage(sniffedType, hl7MessageData, options,
+          useUnsupportedMessageHandler));
+    }
+
+    String messageToParse = er7MessageData;
+    if (options.isSkipUnreferencedSegments() && sniffedType != null) {
+      FilteredMessage filtered =
+          templates.get(sniffedType).filterUnreferencedSegments(er7MessageData);
+      LOGGER.debug("Segments not parsed {}", filtered.getUnparsedSegments().size());
+      messageToParse = filtered.getMessage();
+    }
+
     FHIRContext context = new FHIRContext(options.isPrettyPrint(), options.isValidateResource());
-    HL7MessageEngine engine = new HL7MessageEngine(context, options.getBundleType());
+    HL7MessageEngine engine = new HL7MessageEngine(context, options.getBundleType(),
+        options.isDedupeAdditionalResources());
 
-    Message hl7message = getHl7Message(hl7MessageData);
+    Message hl7message = getHl7Message(messageToParse);
     if (hl7message != null) {
       String messageType = HL7DataExtractor.getMessageType(hl7message);
-      HL7MessageModel hl7MessageTemplateModel = messagetemplates.get(messageType);
+      HL7MessageModel hl7MessageTemplateModel = templates.get(messageType);
       if (hl7MessageTemplateModel != null) {
-        return hl7MessageTemplateModel.convert(hl7message, engine);
+        HL7MessageData data = getMessageData(hl7message, options);
+        data.setDeadline(deadline);
+        return new Conversion(hl7MessageTemplateModel, data, engine, current.terminology);
       } else {
-        throw new UnsupportedOperationException("Message type not yet supported " + messageType);
+        return new Conversion(handleUnsupportedMessage(messageType, hl7MessageData, options,
+            useUnsupportedMessageHandler));
       }
     } else {
       throw new IllegalArgumentException("Parsed HL7 message was null.");
@@ -132,6 +322,25 @@ public class HL7ToFHIRConverter {
   }
 
 
+  private static HL7MessageData getMessageData(Message hl7message, ConverterOptions options) {
+    HL7MessageData data = new HL7MessageData(new HL7DataExtractor(hl7message));
+    data.setIdGenerator(options.getIdGenerator());
+    if (options.isSubTemplateCache()) {
+      data.enableSubTemplateCache();
+    }
+    return data;
+  }
+
+
+  private static String handleUnsupportedMessage(String messageType, String hl7MessageData,
+      ConverterOptions options, boolean useHandler) {
+    if (useHandler && options.getUnsupportedMessageHandler() != null) {
+      return options.getUnsupportedMessageHandler().handle(messageType, hl7MessageData);
+    }
+    throw new UnsupportedOperationException("Message type not yet supported " + messageType);
+  }
+
+
   private static Message getHl7Message(String data) {
 
     HL7HapiParser hparser = null;
@@ -156,6 +365,74 @@ public class HL7ToFHIRConverter {
 
 
 
+  /**
+   * Templates and mappings used by the conversions of the converter.
+   */
+  private static final class Snapshot {
+    private final Map<String, HL7MessageModel> templates;
+    private final TerminologySnapshot terminology;
+
+    private Snapshot(Map<String, HL7MessageModel> templates, TerminologySnapshot terminology) {
+      this.templates = ImmutableMap.copyOf(templates);
+      this.terminology = terminology;
+    }
+  }
+
+
+
+  /**
+   * State of a conversion passed between the stages of an asynchronous conversion.
+   */
+  private static final class Conversion {
+    private final boolean handled;
+    private final String handledResult;
+    private final HL7MessageModel template;
+    private final HL7MessageData data;
+    private final HL7MessageEngine engine;
+    private final TerminologySnapshot terminology;
+    private Bundle bundle;
+
+    // message handled by the unsupported message handler
+    private Conversion(String handledResult) {
+      this.handled = true;
+      this.handledResult = handledResult;
+      this.template = null;
+      this.data = null;
+      this.engine = null;
+      this.terminology = null;
+    }
+
+    private Conversion(HL7MessageModel template, HL7MessageData data, HL7MessageEngine engine,
+        TerminologySnapshot terminology) {
+      this.handled = false;
+      this.handledResult = null;
+      this.template = template;
+      this.data = data;
+      this.engine = engine;
+      this.terminology = terminology;
+    }
+
+    private Conversion transform() {
+      if (!handled) {
+        bundle = terminology.evaluate(() -> template.transform(data, engine));
+      }
+      return this;
+    }
+
+    private Bundle validate() {
+      engine.getFHIRContext().validate(bundle);
+      return bundle;
+    }
+
+    private String encode() {
+      if (handled) {
+        return handledResult;
+      }
+      return engine.getFHIRContext().encodeResourceToString(bundle);
+    }
+  }
+
+
   private static void close(HL7HapiParser hparser) {
     if (hparser != null) {
       try {
@@ -0,0 +1,74 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+import org.apache.commons.lang3.StringUtils;
+import com.google.common.base.Preconditions;
+import io.github.linuxforhealth.hl7.parsing.RawMessageHeader;
+
+/**
+ * Reads the key that orders the conversions of a {@link PartitionedConverter} from the raw message,
+ * without parsing it. Messages with the same key are converted in the order they are submitted.
+ *
+ */
+@FunctionalInterface
+public interface PartitionKey {
+
+  /**
+   * Returns the key of the message.
+   *
+   * @param hl7MessageData - raw ER7 message
+   * @return key or null if the message has no key, such messages are not ordered
+   */
+  String getKey(String hl7MessageData);
+
+
+  /**
+   * Key on the first patient identifier in PID-3, the ID number and the assigning authority, so
+   * updates for a patient are converted in order. Messages without PID-3 are keyed on MSH-10.
+   *
+   * @return {@link PartitionKey}
+   */
+  static PartitionKey patientId() {
+    return hl7MessageData -> {
+      RawMessageHeader header = RawMessageHeader.scan(hl7MessageData);
+      if (header == null) {
+        return null;
+      }
+      String pid3 =
+          RawMessageHeader.scanField(hl7MessageData, "PID", 3, header.getFieldSeparator());
+      String first = StringUtils.substringBefore(pid3,
+          String.valueOf(header.getRepetitionSeparator()));
+      String[] components =
+          StringUtils.splitPreserveAllTokens(first, header.getComponentSeparator());
+      if (components == null || components.length == 0 || StringUtils.isBlank(components[0])) {
+        return header.getMessageControlId();
+      }
+      String authority = components.length > 3 ? StringUtils.trimToEmpty(components[3]) : "";
+      return "PID|" + StringUtils.trim(components[0]) + "|" + authority;
+    };
+  }
+
+
+  /**
+   * Key on the first characters of MSH-10, for senders that start the message control id with an
+   * identifier of the patient or the visit.
+   *
+   * @param length - number of characters
+   * @return {@link PartitionKey}
+   */
+  static PartitionKey messageControlIdPrefix(int length) {
+    Preconditions.checkArgument(length > 0, "length must be positive");
+    return hl7MessageData -> {
+      RawMessageHeader header = RawMessageHeader.scan(hl7MessageData);
+      if (header == null || header.getMessageControlId() == null) {
+        return null;
+      }
+      return "MSH|" + StringUtils.left(header.getMessageControlId(), length);
+    };
+  }
+
+}
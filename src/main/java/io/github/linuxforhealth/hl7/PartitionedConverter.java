@@ -0,0 +1,140 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import com.google.common.base.Preconditions;
+
+/**
+ * Converts messages in parallel on an executor while messages with the same {@link PartitionKey},
+ * for example the updates of one patient, are converted one after the other in the order they are
+ * submitted. Each key has a chain of conversions, a conversion starts when the previous one of its
+ * key completes, whether it succeeded or failed. Chains of different keys do not share a lock.
+ *
+ */
+public class PartitionedConverter {
+
+  private final BiFunction<String, ConverterOptions, String> conversion;
+  private final PartitionKey partitionKey;
+  private final Executor executor;
+  // key -> last conversion submitted for the key, removed once it completes
+  private final ConcurrentMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+
+  /**
+   *
+   * @param converter - {@link HL7ToFHIRConverter}
+   * @param partitionKey - {@link PartitionKey}, for example {@link PartitionKey#patientId()}
+   * @param executor - executor running the conversions
+   */
+  public PartitionedConverter(HL7ToFHIRConverter converter, PartitionKey partitionKey,
+      Executor executor) {
+    this(toConversion(converter), partitionKey, executor);
+  }
+
+
+  PartitionedConverter(BiFunction<String, ConverterOptions, String> conversion,
+      PartitionKey partitionKey, Executor executor) {
+    Preconditions.checkArgument(partitionKey != null, "partitionKey cannot be null");
+    Preconditions.checkArgument(executor != null, "executor cannot be null");
+    this.conversion = conversion;
+    this.partitionKey = partitionKey;
+    this.executor = executor;
+  }
+
+
+  /**
+   * Submits the conversion of the message, it runs after the conversions submitted before with the
+   * same key.
+   *
+   * @param hl7MessageData - raw message
+   * @param options - {@link ConverterOptions}
+   * @return future completed with the JSON bundle, or exceptionally with the conversion failure
+   */
+  public CompletableFuture<String> submit(String hl7MessageData, ConverterOptions options) {
+    Preconditions.checkArgument(options != null, "options cannot be null.");
+    String key = partitionKey.getKey(hl7MessageData);
+    CompletableFuture<String> result = new CompletableFuture<>();
+    if (key == null) {
+      try {
+        executor.execute(() -> convert(hl7MessageData, options, result));
+      } catch (RuntimeException e) {
+        // the executor rejected the conversion
+        result.completeExceptionally(e);
+      }
+      return result;
+    }
+    // only the tail is swapped under the map lock, the conversion is chained once the lock is
+    // released so that an executor running tasks on the calling thread does not convert under it
+    CompletableFuture<Void> tail = new CompletableFuture<>();
+    CompletableFuture<Void> previous = tails.put(key, tail);
+    CompletableFuture<Void> start =
+        previous != null ? previous : CompletableFuture.completedFuture(null);
+    start.whenCompleteAsync((v, e) -> {
+      try {
+        convert(hl7MessageData, options, result);
+      } finally {
+        release(key, tail);
+      }
+    }, executor).whenComplete((v, e) -> {
+      if (e != null) {
+        // the executor rejected the conversion, when submitting or once the previous one completed
+        result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+        release(key, tail);
+      }
+    });
+    return result;
+  }
+
+
+  /**
+   * Submits the conversion of each message, in the order of the list.
+   *
+   * @param hl7Messages - raw messages
+   * @param options - {@link ConverterOptions}
+   * @return futures of the conversions in the order of the messages
+   */
+  public List<CompletableFuture<String>> submitAll(List<String> hl7Messages,
+      ConverterOptions options) {
+    Preconditions.checkArgument(hl7Messages != null, "hl7Messages cannot be null.");
+    List<CompletableFuture<String>> results = new ArrayList<>(hl7Messages.size());
+    for (String message : hl7Messages) {
+      results.add(submit(message, options));
+    }
+    return results;
+  }
+
+
+  private void convert(String hl7MessageData, ConverterOptions options,
+      CompletableFuture<String> result) {
+    try {
+      result.complete(conversion.apply(hl7MessageData, options));
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+  }
+
+
+  private void release(String key, CompletableFuture<Void> tail) {
+    tail.complete(null);
+    tails.remove(key, tail);
+  }
+
+
+  private static BiFunction<String, ConverterOptions, String> toConversion(
+      HL7ToFHIRConverter converter) {
+    Preconditions.checkArgument(converter != null, "converter cannot be null");
+    return converter::convert;
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.base.Preconditions;
+
+/**
+ * Watches the template folder (base.path.resource) and triggers a reload when files change. Changes
+ * are debounced: the reload runs once no further change was seen for the quiet period, so that
+ * copying a set of templates results in a single reload. The reload runs on the watcher thread,
+ * conversions are not blocked while the new templates are compiled.
+ *
+ */
+public class TemplateWatcher implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TemplateWatcher.class);
+
+  static final long DEFAULT_QUIET_PERIOD_MILLIS = 500;
+
+  private final WatchService watchService;
+  private final Runnable onChange;
+  private final long quietPeriodMillis;
+  private final Thread thread;
+  private volatile boolean closed;
+
+
+  TemplateWatcher(Path folder, Runnable onChange, long quietPeriodMillis) throws IOException {
+    Preconditions.checkArgument(folder != null && Files.isDirectory(folder),
+        "Template folder to watch must be an existing directory");
+    Preconditions.checkArgument(onChange != null, "onChange cannot be null");
+    this.watchService = folder.getFileSystem().newWatchService();
+    this.onChange = onChange;
+    this.quietPeriodMillis = quietPeriodMillis;
+    try {
+      registerAll(folder);
+    } catch (IOException | RuntimeException e) {
+      closeQuietly(watchService, e);
+      throw e;
+    }
+    this.thread = new Thread(this::watch, "hl7-template-watcher");
+    this.thread.setDaemon(true);
+    this.thread.start();
+    LOGGER.info("Watching templates in {}", folder);
+  }
+
+
+  private static void closeQuietly(WatchService watchService, Exception cause) {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      cause.addSuppressed(e);
+    }
+  }
+
+
+  private void registerAll(Path folder) throws IOException {
+    Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+          throws IOException {
+        dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+
+  private void watch() {
+    try {
+      while (!closed) {
+        WatchKey key = watchService.take();
+        processEvents(key);
+        // debounce, wait till the folder is quiet before reloading
+        while ((key = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS)) != null) {
+          processEvents(key);
+        }
+        reload();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      LOGGER.debug("Template watcher closed");
+    }
+  }
+
+
+  private void processEvents(WatchKey key) {
+    Path dir = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == ENTRY_CREATE) {
+        Path child = dir.resolve((Path) event.context());
+        if (Files.isDirectory(child)) {
+          try {
+            registerAll(child);
+          } catch (IOException e) {
+            LOGGER.warn("Cannot watch template folder {}", child, e);
+          }
+        }
+      }
+      LOGGER.debug("Template change {} {}", event.kind(), event.context());
+    }
+    key.reset();
+  }
+
+
+  private void reload() {
+    if (closed) {
+      return;
+    }
+    try {
+      onChange.run();
+    } catch (RuntimeException e) {
+      // keep watching, the converter continues with the templates loaded previously
+      LOGGER.error("Failure to reload templates, continuing with the current templates.", e);
+    }
+  }
+
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    thread.interrupt();
+    watchService.close();
+  }
+
+}
@@ -0,0 +1,25 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+/**
+ * Handles messages whose type has no message template. The handler is called before the message is
+ * parsed, so it receives the raw message data.
+ *
+ */
+@FunctionalInterface
+public interface UnsupportedMessageHandler {
+
+  /**
+   * Handles the unsupported message
+   * 
+   * @param messageType - message structure read from MSH-9, for example ACK
+   * @param hl7MessageData - raw message data
+   * @return the value returned by the convert call
+   */
+  String handle(String messageType, String hl7MessageData);
+
+}
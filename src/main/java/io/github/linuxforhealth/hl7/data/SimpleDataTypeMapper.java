@@ -5,7 +5,10 @@
  */
 package io.github.linuxforhealth.hl7.data;
 
-import org.apache.commons.lang3.EnumUtils;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import com.google.common.collect.ImmutableMap;
 
 
 public enum SimpleDataTypeMapper {
@@ -23,7 +26,7 @@ public enum SimpleDataTypeMapper {
   DATE(SimpleDataValueResolver.DATE), //
 
   DATE_TIME(SimpleDataValueResolver.DATE_TIME), //
-  // TIME(SimpleDataValueResolver.TIME_TYPE),
+  TIME(SimpleDataValueResolver.TIME), //
   ID(SimpleDataValueResolver.STRING), //
   // MARKDOWN(SimpleDataValueResolver.STRING),
   UNSIGNEDINT(SimpleDataValueResolver.INTEGER), //
@@ -48,6 +51,8 @@ public enum SimpleDataTypeMapper {
   MESSAGE_REASON_ENCOUNTER(SimpleDataValueResolver.MESSAGE_REASON_ENCOUNTER); //
 
 
+  private static final Map<String, SimpleDataTypeMapper> BY_NAME = byName();
+
   private ValueExtractor<Object, ?> valueResolver;
 
   SimpleDataTypeMapper(ValueExtractor<Object, ?> valueResolver) {
@@ -55,16 +60,46 @@ public enum SimpleDataTypeMapper {
 
   }
 
-  public static ValueExtractor<Object, ?> getValueResolver(String enumName) {
+  public ValueExtractor<Object, ?> getValueResolver() {
+    return valueResolver;
+  }
 
+  public static ValueExtractor<Object, ?> getValueResolver(String enumName) {
+    return getDataType(enumName).valueResolver;
+  }
 
-    SimpleDataTypeMapper mapper = EnumUtils.getEnumIgnoreCase(SimpleDataTypeMapper.class, enumName);
+  /**
+   * Returns the data type for the name, ignoring case.
+   *
+   * @param enumName - data type name
+   * @return {@link SimpleDataTypeMapper}
+   * @throws IllegalArgumentException if there is no data type with the name
+   */
+  public static SimpleDataTypeMapper getDataType(String enumName) {
+    SimpleDataTypeMapper mapper = findDataType(enumName);
     if (mapper != null) {
-      return mapper.valueResolver;
+      return mapper;
     }
     throw new IllegalArgumentException("Cannot find data resolver" + enumName);
+  }
+
+  /**
+   * Returns the data type for the name, ignoring case.
+   *
+   * @param enumName - data type name
+   * @return {@link SimpleDataTypeMapper} or null if there is no data type with the name
+   */
+  public static SimpleDataTypeMapper findDataType(String enumName) {
+    return enumName != null ? BY_NAME.get(enumName.toUpperCase(Locale.ENGLISH)) : null;
+  }
 
 
+  private static Map<String, SimpleDataTypeMapper> byName() {
+    Map<String, SimpleDataTypeMapper> map = new HashMap<>();
+    for (SimpleDataTypeMapper mapper : values()) {
+      map.put(mapper.name(), mapper);
+    }
+    return ImmutableMap.copyOf(map);
   }
 
 
@@ -54,6 +54,15 @@ public class SimpleDataValueResolver {
     return null;
   };
 
+  public static final ValueExtractor<Object, String> TIME = (Object value) -> {
+
+    String val = Hl7DataHandlerUtil.getStringValue(value);
+    if (val != null) {
+      return DateUtil.formatToTime(val);
+    }
+    return null;
+  };
+
   public static final ValueExtractor<Object, String> STRING = (Object value) -> {
     return Hl7DataHandlerUtil.getStringValue(value);
 
@@ -16,7 +16,9 @@ import java.time.temporal.Temporal;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.github.linuxforhealth.core.config.ConverterConfiguration;
@@ -24,6 +26,9 @@ import io.github.linuxforhealth.core.config.ConverterConfiguration;
 
 public class DateUtil {
   private static final Logger LOGGER = LoggerFactory.getLogger(DateUtil.class);
+  // HL7 TM: HH[MM[SS[.S[S[S[S]]]]]][+/-ZZZZ]
+  private static final Pattern HL7_TIME =
+      Pattern.compile("(\\d{2})(\\d{2})?(\\d{2})?(\\.\\d{1,4})?([+-]\\d{4})?");
 
   private DateUtil() {}
 
@@ -50,6 +55,34 @@ public class DateUtil {
   }
 
 
+  /**
+   * Formats HL7 TM value to FHIR time (hh:mm:ss), missing minutes and seconds are set to 00. The
+   * time zone offset is dropped, FHIR time has no time zone.
+   *
+   * @param input - HL7 time
+   * @return FHIR time or null if the input is not a valid HL7 time
+   */
+  public static String formatToTime(String input) {
+    Matcher m = HL7_TIME.matcher(StringUtils.trimToEmpty(input));
+    if (!m.matches()) {
+      LOGGER.warn("Input value cannot be formatted to time {}", input);
+      return null;
+    }
+    int hour = Integer.parseInt(m.group(1));
+    int minute = m.group(2) != null ? Integer.parseInt(m.group(2)) : 0;
+    int second = m.group(3) != null ? Integer.parseInt(m.group(3)) : 0;
+    if (hour > 23 || minute > 59 || second > 59) {
+      LOGGER.warn("Input value cannot be formatted to time {}", input);
+      return null;
+    }
+    String time = String.format("%02d:%02d:%02d", hour, minute, second);
+    if (m.group(3) != null && m.group(4) != null) {
+      time = time + m.group(4);
+    }
+    return time;
+  }
+
+
   public static String formatToDateTime(String input) {
 
 
@@ -6,6 +6,7 @@
 package io.github.linuxforhealth.hl7.expression;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +16,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.Expression;
@@ -26,10 +29,10 @@ import io.github.linuxforhealth.core.Constants;
 import io.github.linuxforhealth.core.data.DataTypeUtil;
 import io.github.linuxforhealth.core.exception.DataExtractionException;
 import io.github.linuxforhealth.core.exception.RequiredConstraintFailureException;
-import io.github.linuxforhealth.core.expression.EmptyEvaluationResult;
 import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
-import io.github.linuxforhealth.core.expression.VariableUtils;
+import io.github.linuxforhealth.core.expression.LazyEvaluationResult;
 import io.github.linuxforhealth.hl7.expression.specification.SpecificationUtil;
+import io.github.linuxforhealth.hl7.message.HL7MessageData;
 
 public abstract class AbstractExpression implements Expression {
   private static final Logger LOGGER = LoggerFactory.getLogger(AbstractExpression.class);
@@ -37,6 +40,9 @@ public abstract class AbstractExpression implements Expression {
 
   private ExpressionAttributes attr;
   private String originalContext;
+  // computed once, subclasses finish their initialization after this constructor
+  private final Supplier<SegmentDependencies> segmentDependencies =
+      Suppliers.memoize(this::computeSegmentDependencies);
 
   public AbstractExpression(ExpressionAttributes attr) {
     this.attr = attr;
@@ -76,6 +82,34 @@ public abstract class AbstractExpression implements Expression {
   }
 
 
+  /**
+   * Returns the segments this expression cannot produce a value without, see
+   * {@link SegmentDependencies}.
+   * 
+   * @return {@link SegmentDependencies}
+   */
+  public SegmentDependencies getSegmentDependencies() {
+    return segmentDependencies.get();
+  }
+
+
+  /**
+   * Dependencies of the value produced by the expression type, the condition is analyzed
+   * separately.
+   * 
+   * @return {@link SegmentDependencies}
+   */
+  protected SegmentDependencies getValueDependencies() {
+    return SegmentDependencies.NONE;
+  }
+
+
+  private SegmentDependencies computeSegmentDependencies() {
+    return SegmentDependencies.anyOf(Arrays.asList(getValueDependencies(),
+        SegmentDependencies.ofCondition(this.attr.getFilter(), this.getVariables())));
+  }
+
+
   /**
    * Evaluates the expression and generated single or multiple resources based on the expression
    * values. If expression (reference and resource) ends with * then for that expression the Generic
@@ -90,6 +124,9 @@ public abstract class AbstractExpression implements Expression {
     Preconditions.checkArgument(dataSource != null, "dataSource cannot be null");
     Preconditions.checkArgument(contextValues != null, "contextValues cannot be null");
     Preconditions.checkArgument(baseValue != null, "baseValue cannot be null");
+    if (dataSource instanceof HL7MessageData) {
+      ((HL7MessageData) dataSource).checkDeadline("expression");
+    }
     EvaluationResult result;
     try {
       setLoggingContext();
@@ -100,7 +137,13 @@ public abstract class AbstractExpression implements Expression {
         localContextValues.put(baseValue.getIdentifier(), baseValue);
       }
 
-      result = evaluateValueOfExpression(dataSource, localContextValues, baseValue);
+      if (getSegmentDependencies().isMissingFrom(dataSource)) {
+        LOGGER.debug("Segments {} absent, skipping expression {}", getSegmentDependencies(),
+            this);
+        result = getResult(new ArrayList<>(), new ArrayList<>());
+      } else {
+        result = evaluateValueOfExpression(dataSource, localContextValues, baseValue);
+      }
 
 
       LOGGER.info("Completed Evaluating returned value  {} ----  for  expression {} ", result,
@@ -259,29 +302,36 @@ public abstract class AbstractExpression implements Expression {
 
 
 
+  /**
+   * Binds the variables as {@link LazyEvaluationResult}s, a variable is evaluated only when the
+   * condition or the expression reads it, and at most once. All variables are evaluated against the
+   * same context values.
+   */
   private static Map<String, EvaluationResult> resolveVariables(List<Variable> variables,
       Map<String, EvaluationResult> contextValues, InputDataExtractor dataSource) {
 
     Map<String, EvaluationResult> localVariables = new HashMap<>();
 
     for (Variable var : variables) {
-      try {
-        EvaluationResult value =
-            var.extractVariableValue(ImmutableMap.copyOf(contextValues), dataSource);
-        if (value != null) {
+      localVariables.put(var.getVariableName(),
+          new LazyEvaluationResult(() -> resolveVariable(var, contextValues, dataSource)));
+    }
+    return localVariables;
+  }
 
-          localVariables.put(VariableUtils.getVarName(var.getVariableName()),
-              EvaluationResultFactory.getEvaluationResult(value.getValue()));
-        } else {
-          // enclose null in GenericParsingResult
-          localVariables.put(VariableUtils.getVarName(var.getVariableName()),
-              new EmptyEvaluationResult());
-        }
-      } catch (DataExtractionException e) {
-        LOGGER.error("Cannot extract value for variable {} ", var.getVariableName(), e);
+
+  private static EvaluationResult resolveVariable(Variable var,
+      Map<String, EvaluationResult> contextValues, InputDataExtractor dataSource) {
+    try {
+      EvaluationResult value = var.extractVariableValue(contextValues, dataSource);
+      if (value != null) {
+        return EvaluationResultFactory.getEvaluationResult(value.getValue());
       }
+    } catch (DataExtractionException e) {
+      LOGGER.error("Cannot extract value for variable {} ", var.getVariableName(), e);
     }
-    return localVariables;
+    // enclose null in GenericParsingResult
+    return EvaluationResultFactory.getEmptyEvaluationResult();
   }
 
 
@@ -28,6 +28,8 @@ import io.github.linuxforhealth.api.Variable;
 import io.github.linuxforhealth.core.Constants;
 import io.github.linuxforhealth.core.expression.VariableUtils;
 import io.github.linuxforhealth.core.expression.condition.ConditionUtil;
+import io.github.linuxforhealth.hl7.data.SimpleDataTypeMapper;
+import io.github.linuxforhealth.hl7.data.ValueExtractor;
 import io.github.linuxforhealth.hl7.expression.specification.SpecificationParser;
 import io.github.linuxforhealth.hl7.expression.variable.VariableGenerator;
 
@@ -50,6 +52,8 @@ public class ExpressionAttributes {
   private String valueOf;
   private boolean useGroup;
   private ExpressionType expressionType;
+  // value extractor for the type, bound for the expression types that convert values
+  private SimpleDataTypeMapper dataType;
   private String toString;
 
   // if valueof attribute ends with * then list of values will be generated
@@ -103,7 +107,13 @@ public class ExpressionAttributes {
     if (this.expressionType == null && CollectionUtils.isNotEmpty(this.specs)) {
       this.expressionType = ExpressionType.HL7SPEC;
     }
-
+    if (this.expressionType == ExpressionType.HL7SPEC
+        || this.expressionType == ExpressionType.SIMPLE) {
+      // unknown types fail when the template is loaded
+      this.dataType = SimpleDataTypeMapper.getDataType(this.type);
+    } else {
+      this.dataType = SimpleDataTypeMapper.findDataType(this.type);
+    }
 
   }
 
@@ -182,6 +192,21 @@ public class ExpressionAttributes {
   }
 
 
+  /**
+   * Returns the data type the values are converted to. Always set for HL7 spec and simple
+   * expressions, for the other expression types only if the type names a data type.
+   *
+   * @return {@link SimpleDataTypeMapper} or null
+   */
+  public SimpleDataTypeMapper getDataType() {
+    return dataType;
+  }
+
+  public ValueExtractor<Object, ?> getValueExtractor() {
+    return dataType != null ? dataType.getValueResolver() : null;
+  }
+
+
   public static List<Specification> getSpecList(String inputString, boolean useGroup) {
     final boolean extractMultiple;
     String hl7SpecExpression = inputString;
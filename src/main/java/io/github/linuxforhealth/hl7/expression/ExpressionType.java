@@ -13,7 +13,8 @@ public enum ExpressionType {
   RESOURCE(ResourceExpression.class), //
   REFERENCE(ReferenceExpression.class), //
   SIMPLE(SimpleExpression.class), //
-  JEXL(JEXLExpression.class);
+  JEXL(JEXLExpression.class), //
+  RESOURCE_ID(ResourceIdExpression.class);
 
 
   private Class<? extends Expression> evaluator;
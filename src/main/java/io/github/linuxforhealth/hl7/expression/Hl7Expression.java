@@ -9,7 +9,6 @@ package io.github.linuxforhealth.hl7.expression;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -66,11 +65,35 @@ public class Hl7Expression extends AbstractExpression {
     }
   }
 
+  /**
+   * The value is read from the valueOf specs, or from the specs when valueOf is not set, and is
+   * empty when those segments are absent unless the data type converts null to a value.
+   */
+  @Override
+  protected SegmentDependencies getValueDependencies() {
+    ValueExtractor<Object, ?> resolver = this.getExpressionAttr().getValueExtractor();
+    if (resolver == null
+        || this.getExpressionAttr().getDataType() == SimpleDataTypeMapper.STRING_ALL) {
+      return SegmentDependencies.NONE;
+    }
+    try {
+      if (resolver.apply(null) != null) {
+        return SegmentDependencies.NONE;
+      }
+    } catch (RuntimeException e) {
+      LOGGER.debug("Value type {} does not accept null", this.getExpressionAttr().getDataType(),
+          e);
+      return SegmentDependencies.NONE;
+    }
+    return SegmentDependencies.ofSpecs(this.valueof.isEmpty() ? this.getspecs() : this.valueof);
+  }
+
   private List<Object> generateValue(List<Object> baseSpecvalues) {
     List<Object> resolvedValues = new ArrayList<>();
     if (baseSpecvalues != null && !baseSpecvalues.isEmpty()) {
-      ValueExtractor<Object, ?> resolver = SimpleDataTypeMapper.getValueResolver(this.getType());
-      if (resolver != null && StringUtils.equalsIgnoreCase("STRING_ALL", this.getType())) {
+      ValueExtractor<Object, ?> resolver = this.getExpressionAttr().getValueExtractor();
+      if (resolver != null
+          && this.getExpressionAttr().getDataType() == SimpleDataTypeMapper.STRING_ALL) {
         resolvedValues.add(resolver.apply(baseSpecvalues));
       } else if (resolver != null) {
 
@@ -14,16 +14,22 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.InputDataExtractor;
 import io.github.linuxforhealth.api.Variable;
-import io.github.linuxforhealth.core.expression.EmptyEvaluationResult;
+import io.github.linuxforhealth.core.data.BoundFunctionCall;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+import io.github.linuxforhealth.hl7.message.HL7MessageData;
 
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class JEXLExpression extends AbstractExpression {
   private static final Logger LOGGER = LoggerFactory.getLogger(JEXLExpression.class);
 
+  // valueOf bound to the static method it calls, null if it is evaluated by JEXL
+  private final BoundFunctionCall boundCall;
+
   @JsonCreator
   public JEXLExpression(ExpressionAttributes expAttr) {
     super(expAttr);
+    this.boundCall = HL7MessageData.bindFunctionCall(expAttr.getValueOf());
 
   }
 
@@ -35,10 +41,14 @@ public class JEXLExpression extends AbstractExpression {
     Map<String, EvaluationResult> localContextValues = new HashMap<>(contextValues);
     for (Variable v : this.getVariables()) {
       if (!localContextValues.containsKey(v.getVariableName())) {
-        localContextValues.put(v.getVariableName(), new EmptyEvaluationResult());
+        localContextValues.put(v.getVariableName(), EvaluationResultFactory.getEmptyEvaluationResult());
       }
     }
     LOGGER.info("Evaluating value of {}", this.getExpressionAttr().getValueOf());
+    if (dataSource instanceof HL7MessageData) {
+      return ((HL7MessageData) dataSource).evaluateJexlExpression(boundCall,
+          this.getExpressionAttr().getValueOf(), contextValues);
+    }
     return dataSource.evaluateJexlExpression(this.getExpressionAttr().getValueOf(), contextValues);
   }
 
@@ -22,6 +22,7 @@ import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
 import io.github.linuxforhealth.core.resource.ResourceResult;
 import io.github.linuxforhealth.hl7.resource.HL7DataBasedResourceModel;
 import io.github.linuxforhealth.hl7.resource.ResourceReader;
+import io.github.linuxforhealth.hl7.resource.SubTemplateCache;
 
 /**
  * Represent a expression that represents resolving a json template and creating a reference data
@@ -74,7 +75,7 @@ public class ReferenceExpression extends AbstractExpression {
 
       Map<String, EvaluationResult> localContextValues = new HashMap<>(contextValues);
 
-      ResourceResult result = this.referenceModel.evaluate(dataSource,
+      ResourceResult result = SubTemplateCache.evaluate(this.referenceModel, dataSource,
           ImmutableMap.copyOf(localContextValues), genBaseValue);
       if (result != null && result.getValue() != null) {
         ResourceValue resolvedvalues = result.getValue();
@@ -95,8 +96,8 @@ public class ReferenceExpression extends AbstractExpression {
 
   private ResourceResult evaluateResource(InputDataExtractor dataSource,
       Map<String, EvaluationResult> contextValues, EvaluationResult hl7SpecValue) {
-    ResourceResult result =
-        this.data.evaluate(dataSource, ImmutableMap.copyOf(contextValues), hl7SpecValue);
+    ResourceResult result = SubTemplateCache.evaluate(this.data, dataSource,
+        ImmutableMap.copyOf(contextValues), hl7SpecValue);
     if (result != null && result.getValue() != null) {
       return result;
     }
@@ -111,5 +112,15 @@ public class ReferenceExpression extends AbstractExpression {
   }
 
 
+  public HL7DataBasedResourceModel getData() {
+    return this.data;
+  }
+
+
+  public HL7DataBasedResourceModel getReferenceModel() {
+    return this.referenceModel;
+  }
+
+
 
 }
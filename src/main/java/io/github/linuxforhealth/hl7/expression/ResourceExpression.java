@@ -19,6 +19,7 @@ import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
 import io.github.linuxforhealth.core.resource.ResourceResult;
 import io.github.linuxforhealth.hl7.resource.HL7DataBasedResourceModel;
 import io.github.linuxforhealth.hl7.resource.ResourceReader;
+import io.github.linuxforhealth.hl7.resource.SubTemplateCache;
 
 /**
  * Represent a expression that represents resolving a json template
@@ -57,8 +58,8 @@ public class ResourceExpression extends AbstractExpression {
     LOGGER.debug("Evaluating expression {}", this.resourceToGenerate);
     EvaluationResult evaluationResult = null;
 
-    ResourceResult result =
-        this.data.evaluate(dataSource, ImmutableMap.copyOf(contextValues), baseValue);
+    ResourceResult result = SubTemplateCache.evaluate(this.data, dataSource,
+        ImmutableMap.copyOf(contextValues), baseValue);
     if (result != null && result.getValue() != null) {
       ResourceValue resolvedvalues = result.getValue();
 
@@ -83,7 +84,7 @@ public class ResourceExpression extends AbstractExpression {
 
 
 
-  HL7DataBasedResourceModel getData() {
+  public HL7DataBasedResourceModel getData() {
     return this.data;
   }
 
@@ -0,0 +1,43 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.expression;
+
+import java.util.Map;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.google.common.base.Preconditions;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.api.InputDataExtractor;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+
+/**
+ * Represents the id of the resource, generated by the id generator of the data source instead of a
+ * JEXL expression.
+ *
+ * <pre>
+ * id:
+ *   type: STRING
+ *   expressionType: RESOURCE_ID
+ * </pre>
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResourceIdExpression extends AbstractExpression {
+
+  @JsonCreator
+  public ResourceIdExpression(ExpressionAttributes expAttr) {
+    super(expAttr);
+  }
+
+
+
+  @Override
+  public EvaluationResult evaluateExpression(InputDataExtractor dataSource,
+      Map<String, EvaluationResult> contextValues, EvaluationResult baseValue) {
+    Preconditions.checkArgument(dataSource != null, "dataSource cannot be null");
+    return EvaluationResultFactory.getEvaluationResult(dataSource.generateResourceId());
+  }
+
+}
@@ -0,0 +1,272 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.expression;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import com.google.common.collect.ImmutableList;
+import io.github.linuxforhealth.api.Condition;
+import io.github.linuxforhealth.api.InputDataExtractor;
+import io.github.linuxforhealth.api.Specification;
+import io.github.linuxforhealth.api.Variable;
+import io.github.linuxforhealth.core.expression.VariableUtils;
+import io.github.linuxforhealth.core.expression.condition.CheckNotNull;
+import io.github.linuxforhealth.core.expression.condition.CompountAndCondition;
+import io.github.linuxforhealth.core.expression.condition.CompountORCondition;
+import io.github.linuxforhealth.core.expression.condition.SimpleBiCondition;
+import io.github.linuxforhealth.hl7.expression.specification.HL7Specification;
+import io.github.linuxforhealth.hl7.expression.specification.SpecificationParser;
+import io.github.linuxforhealth.hl7.expression.variable.ExpressionVariable;
+import io.github.linuxforhealth.hl7.expression.variable.SimpleVariable;
+import io.github.linuxforhealth.hl7.message.HL7MessageData;
+import io.github.linuxforhealth.hl7.message.util.SupportedSegments;
+
+/**
+ * Segments an expression or a resource template cannot do without, computed once from the
+ * template. The dependencies are a list of clauses, each clause is a set of segments and the
+ * expression is known to produce no value when all the segments of any clause are absent from the
+ * message.
+ *
+ * The analysis is conservative, anything that could produce a value without reading a segment
+ * (constants, JEXL, variables referencing other variables, value types that convert null to a
+ * value) results in no dependencies. A value in the context under a segment name is assumed to be
+ * that segment, so it cannot exist when the segment is absent from the message.
+ *
+ */
+public final class SegmentDependencies {
+
+  public static final SegmentDependencies NONE = new SegmentDependencies(ImmutableList.of());
+
+  // limits the clauses generated for || conditions, more clauses means no dependencies
+  private static final int MAX_CLAUSES = 32;
+
+  private static final Map<String, Integer> SEGMENT_INDEX = createSegmentIndex();
+
+  private final List<BitSet> clauses;
+
+  private SegmentDependencies(List<BitSet> clauses) {
+    this.clauses = clauses;
+  }
+
+
+  private static Map<String, Integer> createSegmentIndex() {
+    Map<String, Integer> index = new HashMap<>();
+    for (SupportedSegments segment : SupportedSegments.values()) {
+      index.put(segment.name(), segment.ordinal());
+    }
+    return Collections.unmodifiableMap(index);
+  }
+
+
+  /**
+   * Returns the position of the segment in the segment presence bit set.
+   *
+   * @param segment - segment name
+   * @return position or -1 if the segment is not a {@link SupportedSegments}
+   */
+  public static int indexOf(String segment) {
+    if (segment == null) {
+      return -1;
+    }
+    Integer index = SEGMENT_INDEX.get(segment.toUpperCase(Locale.ENGLISH));
+    return index != null ? index : -1;
+  }
+
+
+  /**
+   * Dependencies on a single segment.
+   *
+   * @param segment - segment name
+   * @return {@link SegmentDependencies}, NONE if the segment is not supported
+   */
+  public static SegmentDependencies ofSegment(String segment) {
+    int index = indexOf(segment);
+    if (index < 0) {
+      return NONE;
+    }
+    BitSet clause = new BitSet();
+    clause.set(index);
+    return new SegmentDependencies(ImmutableList.of(clause));
+  }
+
+
+  /**
+   * Dependencies of alternative specs, values extracted for the specs are empty when all the
+   * segments of the specs are absent.
+   *
+   * @param specs - specs that are tried in order
+   * @return {@link SegmentDependencies}, NONE if any spec is not read from a segment
+   */
+  public static SegmentDependencies ofSpecs(List<Specification> specs) {
+    if (specs == null || specs.isEmpty()) {
+      return NONE;
+    }
+    BitSet clause = new BitSet();
+    for (Specification spec : specs) {
+      int index = spec instanceof HL7Specification
+          ? indexOf(((HL7Specification) spec).getSegment())
+          : -1;
+      if (index < 0) {
+        return NONE;
+      }
+      clause.set(index);
+    }
+    return new SegmentDependencies(ImmutableList.of(clause));
+  }
+
+
+  /**
+   * Dependencies of a condition, the condition is false when the variables it tests for values are
+   * empty.
+   *
+   * @param condition - condition, can be null
+   * @param variables - variables of the expression the condition is applied to
+   * @return {@link SegmentDependencies}
+   */
+  public static SegmentDependencies ofCondition(Condition condition, List<Variable> variables) {
+    if (condition instanceof CompountAndCondition) {
+      List<SegmentDependencies> deps = new ArrayList<>();
+      ((CompountAndCondition) condition).getConditions()
+          .forEach(c -> deps.add(ofCondition(c, variables)));
+      return anyOf(deps);
+    } else if (condition instanceof CompountORCondition) {
+      List<SegmentDependencies> deps = new ArrayList<>();
+      ((CompountORCondition) condition).getConditions()
+          .forEach(c -> deps.add(ofCondition(c, variables)));
+      return allOf(deps);
+    } else if (condition instanceof CheckNotNull) {
+      return ofVariable(((CheckNotNull) condition).getVar1(), variables);
+    } else if (condition instanceof SimpleBiCondition) {
+      SimpleBiCondition bi = (SimpleBiCondition) condition;
+      SegmentDependencies var1 = ofVariable(bi.getVar1(), variables);
+      Object var2 = bi.getVar2();
+      if (var2 instanceof String && VariableUtils.isVar((String) var2)) {
+        return anyOf(ImmutableList.of(var1, ofVariable((String) var2, variables)));
+      }
+      return var1;
+    }
+    return NONE;
+  }
+
+
+  private static SegmentDependencies ofVariable(String varName, List<Variable> variables) {
+    String name = VariableUtils.getVarName(varName);
+    for (Variable var : variables) {
+      if (StringUtils.equals(name, VariableUtils.getVarName(var.getVariableName()))) {
+        return ofVariable(var);
+      }
+    }
+    return NONE;
+  }
+
+
+  private static SegmentDependencies ofVariable(Variable var) {
+    // expression variables evaluate JEXL even when the specs are empty
+    if (!(var instanceof SimpleVariable) || var instanceof ExpressionVariable) {
+      return NONE;
+    }
+    List<Specification> specs = new ArrayList<>();
+    for (String spec : var.getSpec()) {
+      if (VariableUtils.isVar(spec)) {
+        return NONE;
+      }
+      specs.add(SpecificationParser.parse(spec, false, false));
+    }
+    return ofSpecs(specs);
+  }
+
+
+  /**
+   * Combines dependencies where a missing input in any of them is enough to produce no value.
+   *
+   * @param dependencies - dependencies to combine
+   * @return {@link SegmentDependencies}
+   */
+  public static SegmentDependencies anyOf(List<SegmentDependencies> dependencies) {
+    List<BitSet> clauses = new ArrayList<>();
+    for (SegmentDependencies dep : dependencies) {
+      clauses.addAll(dep.clauses);
+    }
+    if (clauses.isEmpty()) {
+      return NONE;
+    }
+    return new SegmentDependencies(ImmutableList.copyOf(clauses));
+  }
+
+
+  /**
+   * Combines dependencies that all need a missing input to produce no value.
+   *
+   * @param dependencies - dependencies to combine
+   * @return {@link SegmentDependencies}
+   */
+  public static SegmentDependencies allOf(List<SegmentDependencies> dependencies) {
+    if (dependencies.isEmpty()) {
+      return NONE;
+    }
+    List<BitSet> clauses = ImmutableList.of(new BitSet());
+    for (SegmentDependencies dep : dependencies) {
+      if (dep.isNone() || clauses.size() * dep.clauses.size() > MAX_CLAUSES) {
+        return NONE;
+      }
+      List<BitSet> combined = new ArrayList<>();
+      for (BitSet clause : clauses) {
+        for (BitSet other : dep.clauses) {
+          BitSet union = (BitSet) clause.clone();
+          union.or(other);
+          combined.add(union);
+        }
+      }
+      clauses = combined;
+    }
+    return new SegmentDependencies(ImmutableList.copyOf(clauses));
+  }
+
+
+  public boolean isNone() {
+    return clauses.isEmpty();
+  }
+
+
+  /**
+   * Returns true if the message is missing all segments of a clause.
+   *
+   * @param dataSource - message data, other data sources are never missing segments
+   * @return true if the expression or template cannot produce a value for this message
+   */
+  public boolean isMissingFrom(InputDataExtractor dataSource) {
+    if (clauses.isEmpty() || !(dataSource instanceof HL7MessageData)) {
+      return false;
+    }
+    HL7MessageData data = (HL7MessageData) dataSource;
+    for (BitSet clause : clauses) {
+      if (!data.isAnySegmentPresent(clause)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  @Override
+  public String toString() {
+    List<List<String>> names = new ArrayList<>();
+    SupportedSegments[] segments = SupportedSegments.values();
+    for (BitSet clause : clauses) {
+      List<String> clauseNames = new ArrayList<>();
+      clause.stream().forEach(i -> clauseNames.add(segments[i].name()));
+      names.add(clauseNames);
+    }
+    return names.toString();
+  }
+
+}
@@ -13,13 +13,11 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableMap;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.InputDataExtractor;
 import io.github.linuxforhealth.core.Constants;
 import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
 import io.github.linuxforhealth.core.expression.VariableUtils;
-import io.github.linuxforhealth.hl7.data.SimpleDataTypeMapper;
 import io.github.linuxforhealth.hl7.data.ValueExtractor;
 
 
@@ -28,6 +26,8 @@ public class SimpleExpression extends AbstractExpression {
   private static final Logger LOGGER = LoggerFactory.getLogger(SimpleExpression.class);
 
   private String value;
+  // name of the variable the value references, null if the value is not a variable
+  private String varName;
 
 
 
@@ -38,6 +38,7 @@ public class SimpleExpression extends AbstractExpression {
     if (StringUtils.isBlank(value)) {
       this.value = expAttr.getValueOf();
     }
+    this.varName = VariableUtils.isVar(value) ? VariableUtils.getVarName(value) : null;
   }
 
 
@@ -53,9 +54,8 @@ public class SimpleExpression extends AbstractExpression {
       localContextValues.put(Constants.BASE_VALUE_NAME, baseValue);
     }
     Object resolvedValue = null;
-    if (VariableUtils.isVar(value)) {
-      EvaluationResult obj =
-          getVariableValueFromVariableContextMap(value, ImmutableMap.copyOf(localContextValues));
+    if (varName != null) {
+      EvaluationResult obj = localContextValues.get(varName);
       if (obj != null && !obj.isEmpty()) {
         resolvedValue = obj.getValue();
       }
@@ -79,7 +79,7 @@ public class SimpleExpression extends AbstractExpression {
   private EvaluationResult getValueOfSpecifiedType(Object obj) {
     if (obj != null) {
       LOGGER.debug("Evaluated value {} to {} type {} ", this.value, obj, obj.getClass());
-      ValueExtractor<Object, ?> resolver = SimpleDataTypeMapper.getValueResolver(this.getType());
+      ValueExtractor<Object, ?> resolver = this.getExpressionAttr().getValueExtractor();
       return EvaluationResultFactory.getEvaluationResult(resolver.apply(obj));
     } else {
       LOGGER.debug("Evaluated {} returning null", this.value);
@@ -87,16 +87,4 @@ public class SimpleExpression extends AbstractExpression {
     }
   }
 
-  private static EvaluationResult getVariableValueFromVariableContextMap(String varName,
-      ImmutableMap<String, EvaluationResult> contextValues) {
-    if (StringUtils.isNotBlank(varName)) {
-      EvaluationResult fetchedValue;
-      fetchedValue = contextValues.get(VariableUtils.getVarName(varName));
-      return fetchedValue;
-    } else {
-      return null;
-    }
-  }
-
-
 }
@@ -16,7 +16,6 @@ import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.InputDataExtractor;
 import io.github.linuxforhealth.api.ResourceValue;
 import io.github.linuxforhealth.core.Constants;
-import io.github.linuxforhealth.core.expression.EmptyEvaluationResult;
 import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
 
 
@@ -76,7 +75,7 @@ public class ValueExtractionGeneralExpression extends AbstractExpression {
       Map<String, Object> resourceMap = rv.getResource();
       return EvaluationResultFactory.getEvaluationResult(resourceMap.get(fetch.getValue()));
     } else {
-      return new EmptyEvaluationResult();
+      return EvaluationResultFactory.getEmptyEvaluationResult();
     }
 
 
@@ -6,9 +6,7 @@ import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.InputDataExtractor;
 import io.github.linuxforhealth.api.Specification;
 import io.github.linuxforhealth.core.Constants;
-import io.github.linuxforhealth.core.expression.EmptyEvaluationResult;
-import io.github.linuxforhealth.core.expression.SimpleEvaluationResult;
-import io.github.linuxforhealth.core.expression.VariableUtils;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
 
 public class ContextMapData implements InputDataExtractor {
 
@@ -36,9 +34,9 @@ public class ContextMapData implements InputDataExtractor {
       Map<String, EvaluationResult> contextValues) {
     EvaluationResult fetchedValue = this.extractMultipleValuesForSpec(spec, contextValues);
     if (fetchedValue != null && !fetchedValue.isEmpty()) {
-      return new SimpleEvaluationResult<>(getSingleValue(fetchedValue.getValue()));
+      return EvaluationResultFactory.getEvaluationResult(getSingleValue(fetchedValue.getValue()));
     } else {
-      return new EmptyEvaluationResult();
+      return EvaluationResultFactory.getEmptyEvaluationResult();
     }
   }
 
@@ -47,11 +45,11 @@ public class ContextMapData implements InputDataExtractor {
       Map<String, EvaluationResult> contextValues) {
     SimpleSpecification simpleSpec = (SimpleSpecification) spec;
     EvaluationResult res = contextValues
-        .get(getKeyName(contextValues, VariableUtils.getVarName(simpleSpec.getVariable())));
+        .get(getKeyName(contextValues, simpleSpec.getVariableName()));
     if (res != null && !res.isEmpty()) {
       return res;
     } else {
-      return new EmptyEvaluationResult();
+      return EvaluationResultFactory.getEmptyEvaluationResult();
     }
 
   }
@@ -12,6 +12,7 @@ import io.github.linuxforhealth.api.InputDataExtractor;
 import io.github.linuxforhealth.api.Specification;
 import io.github.linuxforhealth.core.Constants;
 import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+import io.github.linuxforhealth.core.expression.VariableUtils;
 
 
 /**
@@ -25,12 +26,14 @@ import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
 public class SimpleSpecification implements Specification {
 
   private String variableName;
+  private String normalizedName;
   private boolean isExtractMultiple;
   private boolean useGroup;
   private InputDataExtractor primaryDataSource = new ContextMapData();
 
   public SimpleSpecification(String variableName, boolean isMultiple, boolean useGroup) {
     this.variableName = variableName;
+    this.normalizedName = VariableUtils.getVarName(variableName);
     this.isExtractMultiple = isMultiple;
     this.useGroup = useGroup;
 
@@ -49,6 +52,17 @@ public class SimpleSpecification implements Specification {
   }
 
 
+  /**
+   * Returns the name of the variable without the $ prefix and field, see
+   * {@link VariableUtils#getVarName(String)}.
+   *
+   * @return variable name
+   */
+  public String getVariableName() {
+    return normalizedName;
+  }
+
+
 
   @Override
   public EvaluationResult extractValueForSpec(InputDataExtractor dataSource,
@@ -10,7 +10,9 @@ import java.util.List;
 import java.util.Map;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.InputDataExtractor;
-import io.github.linuxforhealth.core.expression.EmptyEvaluationResult;
+import io.github.linuxforhealth.core.data.BoundFunctionCall;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+import io.github.linuxforhealth.hl7.message.HL7MessageData;
 
 
 /**
@@ -22,6 +24,8 @@ import io.github.linuxforhealth.core.expression.EmptyEvaluationResult;
 public class ExpressionVariable extends SimpleVariable {
 
   private String expression;
+  // expression bound to the static method it calls, null if it is evaluated by JEXL
+  private BoundFunctionCall boundCall;
 
   /**
    * Constructor for Variable with default type: Object
@@ -33,6 +37,7 @@ public class ExpressionVariable extends SimpleVariable {
       boolean extractMultiple) {
     super(name, spec, extractMultiple, false);
     this.expression = expression;
+    this.boundCall = HL7MessageData.bindFunctionCall(expression);
   }
 
 
@@ -47,7 +52,7 @@ public class ExpressionVariable extends SimpleVariable {
       result = getValueFromSpecs(contextValues, dataSource);
     }
     if (result == null) {
-      result = new EmptyEvaluationResult();
+      result = EvaluationResultFactory.getEmptyEvaluationResult();
     }
 
     if (this.expression != null) {
@@ -56,13 +61,23 @@ public class ExpressionVariable extends SimpleVariable {
 
         localContextValues.put(this.getName(), result);
 
-      result = dataSource.evaluateJexlExpression(expression, localContextValues);
+      if (dataSource instanceof HL7MessageData) {
+        result = ((HL7MessageData) dataSource).evaluateJexlExpression(boundCall, expression,
+            localContextValues);
+      } else {
+        result = dataSource.evaluateJexlExpression(expression, localContextValues);
+      }
     }
     return result;
 
   }
 
 
+  public String getExpression() {
+    return expression;
+  }
+
+
 
 
 }
@@ -8,8 +8,6 @@ package io.github.linuxforhealth.hl7.expression.variable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.lang3.StringUtils;
-import com.google.common.collect.ImmutableMap;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.InputDataExtractor;
 import io.github.linuxforhealth.api.Specification;
@@ -30,7 +28,10 @@ public class SimpleVariable implements Variable {
   public static final String OBJECT_TYPE = Object.class.getSimpleName();
 
   private String name;
+  private String varName;
   private List<String> spec;
+  // normalized variable name of each spec, null for specs that are not variables
+  private List<String> specVarNames;
   private boolean extractMultiple;
   private boolean combineMultiple;
 
@@ -41,10 +42,15 @@ public class SimpleVariable implements Variable {
   public SimpleVariable(String name, List<String> spec, boolean extractMultiple,
       boolean combineMultiple) {
     this.name = name;
+    this.varName = VariableUtils.getVarName(name);
     this.spec = new ArrayList<>();
+    this.specVarNames = new ArrayList<>();
     if (spec != null && !spec.isEmpty()) {
       this.spec.addAll(spec);
     }
+    for (String s : this.spec) {
+      this.specVarNames.add(VariableUtils.isVar(s) ? VariableUtils.getVarName(s) : null);
+    }
     this.extractMultiple = extractMultiple;
     this.combineMultiple = combineMultiple;
   }
@@ -116,11 +122,11 @@ public class SimpleVariable implements Variable {
   protected List<EvaluationResult> getValuesFromSpecs(Map<String, EvaluationResult> contextValues,
       InputDataExtractor dataSource, boolean fetchAll) {
     List<EvaluationResult> combineValue = new ArrayList<>();
-    for (String specValue : this.spec) {
+    for (int i = 0; i < this.spec.size(); i++) {
+      String specValue = this.spec.get(i);
       EvaluationResult fetchedValue = null;
-      if (VariableUtils.isVar(specValue)) {
-        fetchedValue =
-            getVariableValueFromVariableContextMap(specValue, ImmutableMap.copyOf(contextValues));
+      if (specVarNames.get(i) != null) {
+        fetchedValue = contextValues.get(specVarNames.get(i));
       } else {
         EvaluationResult gen;
         Specification hl7spec = SpecificationParser.parse(specValue, this.extractMultiple, false);
@@ -144,24 +150,9 @@ public class SimpleVariable implements Variable {
   }
 
 
-  private static EvaluationResult getVariableValueFromVariableContextMap(String varName,
-      ImmutableMap<String, EvaluationResult> contextValues) {
-    if (StringUtils.isNotBlank(varName)) {
-      EvaluationResult fetchedValue;
-      fetchedValue = contextValues.get(VariableUtils.getVarName(varName));
-
-      return fetchedValue;
-    } else {
-      return null;
-    }
-  }
-
-
-
-
   @Override
   public String getVariableName() {
-    return VariableUtils.getVarName(this.name);
+    return varName;
   }
 
   /**
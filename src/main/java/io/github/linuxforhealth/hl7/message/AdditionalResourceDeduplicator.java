@@ -0,0 +1,160 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.linuxforhealth.api.ResourceValue;
+import io.github.linuxforhealth.core.ObjectMapperUtil;
+import io.github.linuxforhealth.core.resource.SimpleResourceValue;
+import io.github.linuxforhealth.hl7.data.Hl7DataHandlerUtil;
+
+/**
+ * Collapses additional resources with the same content into the first one added to the bundle. Two
+ * resources are the same if their type and their JSON without the id are equal, references to the
+ * id of a collapsed resource are rewritten to the id of the resource that was kept. Resource maps
+ * are not modified, a rewritten copy is returned instead, since a resource map can be shared.
+ *
+ * Used by {@link HL7MessageEngine} for a single bundle, not thread safe.
+ *
+ */
+class AdditionalResourceDeduplicator {
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(AdditionalResourceDeduplicator.class);
+  private static final ObjectWriter CANONICAL_WRITER = ObjectMapperUtil.getJSONInstance().writer()
+      .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+  private static final String ID = "id";
+  private static final String REFERENCE = "reference";
+
+  // resource type and content without id -> id of the resource kept in the bundle
+  private final Map<String, String> keptIds = new HashMap<>();
+  // reference of a collapsed resource -> reference of the resource kept
+  private final Map<String, String> replacedReferences = new HashMap<>();
+  private int collapsed;
+
+
+  /**
+   * Returns the additional resources that are not yet part of the bundle, with references to
+   * collapsed resources rewritten. Resources that reference earlier resources of the list are
+   * compared after their references are rewritten.
+   *
+   * @param resources - additional resources of a resource result
+   * @return resources to add to the bundle
+   */
+  List<ResourceValue> addAll(List<ResourceValue> resources) {
+    List<ResourceValue> added = new ArrayList<>();
+    if (resources == null) {
+      return added;
+    }
+    for (ResourceValue resource : resources) {
+      if (resource == null || resource.isEmpty()) {
+        continue;
+      }
+      ResourceValue rewritten = rewrite(resource);
+      String id = Hl7DataHandlerUtil.getStringValue(rewritten.getResource().get(ID));
+      String key = getContentKey(rewritten);
+      if (key == null || id == null) {
+        added.add(rewritten);
+        continue;
+      }
+      String keptId = keptIds.putIfAbsent(key, id);
+      if (keptId == null) {
+        added.add(rewritten);
+      } else if (!keptId.equals(id)) {
+        String type = rewritten.getFHIRResourceType();
+        replacedReferences.put(type + "/" + id, type + "/" + keptId);
+        collapsed++;
+        LOGGER.debug("Collapsed {} {} into {}", type, id, keptId);
+      }
+    }
+    return added;
+  }
+
+
+  /**
+   * Returns the resource with references to collapsed resources rewritten, the resource itself if
+   * it references none.
+   *
+   * @param resource - resource
+   * @return {@link ResourceValue}
+   */
+  ResourceValue rewrite(ResourceValue resource) {
+    if (resource == null || replacedReferences.isEmpty()) {
+      return resource;
+    }
+    Object rewritten = rewriteValue(resource.getResource());
+    if (rewritten == resource.getResource()) {
+      return resource;
+    }
+    return new SimpleResourceValue((Map<String, Object>) rewritten,
+        resource.getFHIRResourceType());
+  }
+
+
+  int getCollapsed() {
+    return collapsed;
+  }
+
+
+  private Object rewriteValue(Object value) {
+    if (value instanceof Map) {
+      Map<String, Object> map = (Map<String, Object>) value;
+      Map<String, Object> copy = null;
+      for (Entry<String, Object> e : map.entrySet()) {
+        Object newValue;
+        if (REFERENCE.equals(e.getKey()) && e.getValue() instanceof String) {
+          newValue = replacedReferences.getOrDefault(e.getValue(), (String) e.getValue());
+        } else {
+          newValue = rewriteValue(e.getValue());
+        }
+        if (newValue != e.getValue() && copy == null) {
+          copy = new LinkedHashMap<>(map);
+        }
+        if (copy != null) {
+          copy.put(e.getKey(), newValue);
+        }
+      }
+      return copy != null ? copy : map;
+    } else if (value instanceof List) {
+      List<Object> list = (List<Object>) value;
+      List<Object> copy = null;
+      for (int i = 0; i < list.size(); i++) {
+        Object newValue = rewriteValue(list.get(i));
+        if (newValue != list.get(i) && copy == null) {
+          copy = new ArrayList<>(list);
+        }
+        if (copy != null) {
+          copy.set(i, newValue);
+        }
+      }
+      return copy != null ? copy : list;
+    }
+    return value;
+  }
+
+
+  private static String getContentKey(ResourceValue resource) {
+    Map<String, Object> content = new HashMap<>(resource.getResource());
+    content.remove(ID);
+    try {
+      return resource.getFHIRResourceType() + CANONICAL_WRITER.writeValueAsString(content);
+    } catch (JsonProcessingException e) {
+      LOGGER.warn("Cannot compare {} resource, it is kept", resource.getFHIRResourceType());
+      LOGGER.debug("Cannot compare resource", e);
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.message;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import com.google.common.base.Preconditions;
+import io.github.linuxforhealth.core.exception.ConversionTimeoutException;
+
+/**
+ * Deadline of a single conversion, started before the message is parsed. The message engine checks
+ * it before each resource and each segment group, and expressions check it before they are
+ * evaluated, so a conversion stops within one expression evaluation of the deadline.
+ *
+ */
+public final class ConversionDeadline {
+  private final long startNanos;
+  private final long timeoutNanos;
+  private final boolean partialResult;
+
+  private ConversionDeadline(long startNanos, long timeoutNanos, boolean partialResult) {
+    this.startNanos = startNanos;
+    this.timeoutNanos = timeoutNanos;
+    this.partialResult = partialResult;
+  }
+
+
+  /**
+   * Starts a deadline that expires after the timeout.
+   *
+   * @param timeout - positive duration
+   * @param partialResult - if true the bundle with the resources converted before the deadline is
+   *        returned, otherwise the conversion fails with {@link ConversionTimeoutException}
+   * @return {@link ConversionDeadline}
+   */
+  public static ConversionDeadline start(Duration timeout, boolean partialResult) {
+    Preconditions.checkArgument(timeout != null && !timeout.isNegative() && !timeout.isZero(),
+        "timeout must be positive");
+    return new ConversionDeadline(System.nanoTime(), timeout.toNanos(), partialResult);
+  }
+
+
+  public boolean isExpired() {
+    return System.nanoTime() - startNanos >= timeoutNanos;
+  }
+
+
+  /**
+   * Throws {@link ConversionTimeoutException} if the deadline has expired.
+   *
+   * @param stage - stage of the conversion, reported by the exception
+   */
+  public void check(String stage) {
+    if (isExpired()) {
+      throw new ConversionTimeoutException(stage, getElapsedMillis());
+    }
+  }
+
+
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+
+  public boolean isPartialResult() {
+    return partialResult;
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.message;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import io.github.linuxforhealth.hl7.parsing.result.ParsingResult;
+
+/**
+ * Per message memo of extracted {@link ParsingResult}s. Results are keyed by the identity of the
+ * HAPI structure the value was read from together with the field, component and sub component, so
+ * the same field read by several templates and variables is extracted only once. The memo lives as
+ * long as the {@link HL7MessageData} of the message and is not thread safe, a message is converted
+ * by one thread.
+ *
+ */
+class ExtractionMemo {
+
+  private final Map<Key, ParsingResult<?>> results = new HashMap<>();
+
+
+  /**
+   * Returns the memoized result, extracting it on first access. Null results are memoized too.
+   *
+   * @param structure - segment or type the value is read from, null for lookups from the message
+   *        root
+   * @param path - segment name for lookups from the message root, otherwise null
+   * @param field - field number or -1
+   * @param component - component number or -1
+   * @param subComponent - sub component number or -1
+   * @param multiple - true if all repetitions are extracted
+   * @param extractor - extracts the value
+   * @return {@link ParsingResult}
+   */
+  @SuppressWarnings("unchecked")
+  <T> ParsingResult<T> get(Object structure, String path, int field, int component,
+      int subComponent, boolean multiple, Supplier<ParsingResult<T>> extractor) {
+    Key key = new Key(structure, path, field, component, subComponent, multiple);
+    if (results.containsKey(key)) {
+      return (ParsingResult<T>) results.get(key);
+    }
+    ParsingResult<T> result = extractor.get();
+    results.put(key, result);
+    return result;
+  }
+
+
+  int size() {
+    return results.size();
+  }
+
+
+  private static final class Key {
+    private final Object structure;
+    private final String path;
+    private final int field;
+    private final int component;
+    private final int subComponent;
+    private final boolean multiple;
+    private final int hash;
+
+    Key(Object structure, String path, int field, int component, int subComponent,
+        boolean multiple) {
+      this.structure = structure;
+      this.path = path;
+      this.field = field;
+      this.component = component;
+      this.subComponent = subComponent;
+      this.multiple = multiple;
+      this.hash = Objects.hash(System.identityHashCode(structure), path, field, component,
+          subComponent, multiple);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      // HAPI structures do not define equals, identity is what identifies a structure here
+      return structure == other.structure && field == other.field
+          && component == other.component && subComponent == other.subComponent
+          && multiple == other.multiple && Objects.equals(path, other.path);
+    }
+  }
+
+}
@@ -5,14 +5,23 @@
  */
 package io.github.linuxforhealth.hl7.message;
 
+import java.util.ArrayList;
+import java.util.List;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import io.github.linuxforhealth.api.Expression;
 import io.github.linuxforhealth.api.FHIRResourceTemplate;
 import io.github.linuxforhealth.api.ResourceModel;
+import io.github.linuxforhealth.hl7.expression.AbstractExpression;
+import io.github.linuxforhealth.hl7.expression.SegmentDependencies;
 
 
 
 public class HL7FHIRResourceTemplate implements FHIRResourceTemplate {
   private HL7FHIRResourceTemplateAttributes attributes;// primary segment
+  private final Supplier<SegmentDependencies> segmentDependencies =
+      Suppliers.memoize(this::computeSegmentDependencies);
 
 
   public HL7FHIRResourceTemplate(HL7FHIRResourceTemplateAttributes attributes) {
@@ -53,5 +62,34 @@ public class HL7FHIRResourceTemplate implements FHIRResourceTemplate {
   }
 
 
+  /**
+   * Returns the segments the template cannot generate a resource without: the primary segment and
+   * the dependencies of the required expressions that have no default value.
+   * 
+   * @return {@link SegmentDependencies}
+   */
+  public SegmentDependencies getSegmentDependencies() {
+    return segmentDependencies.get();
+  }
+
+
+  private SegmentDependencies computeSegmentDependencies() {
+    List<SegmentDependencies> deps = new ArrayList<>();
+    if (attributes.getSegment() != null) {
+      deps.add(SegmentDependencies.ofSegment(attributes.getSegment().getSegment()));
+    }
+    ResourceModel resource = getResource();
+    if (resource != null) {
+      for (Expression exp : resource.getExpressions().values()) {
+        if (exp instanceof AbstractExpression && ((AbstractExpression) exp).isRequired()
+            && exp.getDefaultValue().isEmpty()) {
+          deps.add(((AbstractExpression) exp).getSegmentDependencies());
+        }
+      }
+    }
+    return SegmentDependencies.anyOf(deps);
+  }
+
+
 
 }
@@ -5,7 +5,9 @@
  */
 package io.github.linuxforhealth.hl7.message;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,23 +17,43 @@ import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Group;
 import ca.uhn.hl7v2.model.Segment;
+import ca.uhn.hl7v2.model.Structure;
 import ca.uhn.hl7v2.model.Type;
 import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.api.IdGenerator;
 import io.github.linuxforhealth.api.InputDataExtractor;
 import io.github.linuxforhealth.api.Specification;
+import io.github.linuxforhealth.core.data.BoundFunctionCall;
 import io.github.linuxforhealth.core.data.JexlEngineUtil;
 import io.github.linuxforhealth.core.exception.DataExtractionException;
-import io.github.linuxforhealth.core.expression.EmptyEvaluationResult;
 import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
-import io.github.linuxforhealth.core.expression.SimpleEvaluationResult;
+import io.github.linuxforhealth.core.id.StandardIdGenerator;
 import io.github.linuxforhealth.hl7.data.Hl7RelatedGeneralUtils;
+import io.github.linuxforhealth.hl7.expression.SegmentDependencies;
 import io.github.linuxforhealth.hl7.expression.specification.HL7Specification;
+import io.github.linuxforhealth.hl7.message.util.SupportedSegments;
 import io.github.linuxforhealth.hl7.parsing.HL7DataExtractor;
 import io.github.linuxforhealth.hl7.parsing.result.ParsingResult;
+import io.github.linuxforhealth.hl7.resource.SubTemplateCache;
 
 public class HL7MessageData implements InputDataExtractor {
   private HL7DataExtractor hde;
+  // values extracted from this message, discarded together with the message data
+  private final ExtractionMemo memo = new ExtractionMemo();
+  // segments present in the message by SegmentDependencies.indexOf, computed on first use
+  private BitSet presentSegments;
+  // results of sub templates, null unless enabled
+  private SubTemplateCache subTemplateCache;
+  private IdGenerator idGenerator = StandardIdGenerator.SECURE_RANDOM;
+  // number of resource ids generated for this message
+  private long idSequence;
+  // identifies the message for the id generator, computed on first use
+  private String messageKey;
+  private ConversionDeadline deadline;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HL7MessageData.class);
   protected static final Pattern HL7_SPEC_SPLITTER = Pattern.compile(".");
@@ -45,6 +67,102 @@ public class HL7MessageData implements InputDataExtractor {
 
 
 
+  /**
+   * Caches the results of sub templates evaluated for this message, see {@link SubTemplateCache}.
+   */
+  public void enableSubTemplateCache() {
+    if (this.subTemplateCache == null) {
+      this.subTemplateCache = new SubTemplateCache();
+    }
+  }
+
+
+  /**
+   * Sets the generator of the resource and bundle ids of this message.
+   *
+   * @param idGenerator - {@link IdGenerator}
+   */
+  public void setIdGenerator(IdGenerator idGenerator) {
+    Preconditions.checkArgument(idGenerator != null, "idGenerator cannot be null");
+    this.idGenerator = idGenerator;
+  }
+
+
+  /**
+   * Sets the deadline of the conversion of this message, see {@link ConversionDeadline}.
+   *
+   * @param deadline - {@link ConversionDeadline}, null for no deadline
+   */
+  public void setDeadline(ConversionDeadline deadline) {
+    this.deadline = deadline;
+  }
+
+
+  public ConversionDeadline getDeadline() {
+    return deadline;
+  }
+
+
+  /**
+   * Throws {@link io.github.linuxforhealth.core.exception.ConversionTimeoutException} if the
+   * conversion of this message has a deadline and it has expired.
+   *
+   * @param stage - stage of the conversion
+   */
+  public void checkDeadline(String stage) {
+    if (deadline != null) {
+      deadline.check(stage);
+    }
+  }
+
+
+  @Override
+  public String generateResourceId() {
+    if (messageKey == null) {
+      messageKey = createMessageKey();
+    }
+    return idGenerator.generateId(messageKey, idSequence++);
+  }
+
+
+  /**
+   * Key of the message passed to the id generator: message type, sending application and facility
+   * (MSH-3, MSH-4), message time (MSH-7) and control id (MSH-10). A message without a control id is
+   * identified by the SHA-256 hash of its content instead.
+   */
+  private String createMessageKey() {
+    String controlId = getId();
+    if (StringUtils.isBlank(controlId)) {
+      String content;
+      try {
+        content = this.hde.getMessage().encode();
+      } catch (HL7Exception e) {
+        throw new DataExtractionException("Cannot create the key of a message without control id",
+            e);
+      }
+      return getName() + "/sha256:" + Hashing.sha256().hashString(content, StandardCharsets.UTF_8);
+    }
+    return StringUtils.joinWith("/", getName(), getHeaderField("3"), getHeaderField("4"),
+        getHeaderField("7"), controlId);
+  }
+
+
+  private String getHeaderField(String field) {
+    return this.hde.get("MSH", field).getValue();
+  }
+
+
+  /**
+   * Returns the sub template cache of this message.
+   *
+   * @return {@link SubTemplateCache} or null if not enabled
+   */
+  public SubTemplateCache getSubTemplateCache() {
+    return subTemplateCache;
+  }
+
+
+
   @Override
   public EvaluationResult extractMultipleValuesForSpec(Specification spec,
       Map<String, EvaluationResult> contextValues) {
@@ -113,30 +231,34 @@ public class HL7MessageData implements InputDataExtractor {
   private EvaluationResult extractSpecValues(HL7Specification hl7spec) {
     if (StringUtils.isNotBlank(hl7spec.getSegment())) {
       ParsingResult<?> res;
+      String segment = hl7spec.getSegment();
       if (StringUtils.isNotBlank(hl7spec.getField())) {
-        res = hde.get(hl7spec.getSegment(), hl7spec.getField());
+        String field = hl7spec.getField();
+        res = memo.get(null, segment + "-" + field, -1, -1, -1, false,
+            () -> hde.get(segment, field));
       } else {
-        res = hde.getAllStructures(hl7spec.getSegment());
+        res = memo.get(null, segment, -1, -1, -1, true, () -> hde.getAllStructures(segment));
       }
 
       if (res != null) {
         return EvaluationResultFactory.getEvaluationResult(res.getValue());
       }
     }
-    return new EmptyEvaluationResult();
+    return EvaluationResultFactory.getEmptyEvaluationResult();
   }
 
 
   private EvaluationResult extractSpecValuesFromSegment(Object obj, HL7Specification hl7spec) {
     if (StringUtils.isNotBlank(hl7spec.getField()) && NumberUtils.isCreatable(hl7spec.getField())) {
       int field = NumberUtils.toInt(hl7spec.getField());
-      ParsingResult<?> res = hde.getTypes((Segment) obj, field);
+      ParsingResult<?> res =
+          memo.get(obj, null, field, -1, -1, true, () -> hde.getTypes((Segment) obj, field));
       if (res != null && !res.isEmpty() && hl7spec.getComponent() > 0) {
         // if component needs to be extracted too then only the first repetition of the field will
         // be used.
         return extractSpecValuesFromField(res.getValues().get(0), hl7spec);
       } else if (res != null && !res.isEmpty()) {
-        return new SimpleEvaluationResult<>(res.getValues());
+        return EvaluationResultFactory.getEvaluationResult(res.getValues());
       } else {
         return null;
       }
@@ -151,14 +273,18 @@ public class HL7MessageData implements InputDataExtractor {
 
     if (hl7spec.getComponent() >= 0) {
       ParsingResult<?> res;
-      if (hl7spec.getSubComponent() >= 0) {
-        res = hde.getComponent((Type) obj, hl7spec.getComponent(), hl7spec.getSubComponent());
+      int component = hl7spec.getComponent();
+      int subComponent = hl7spec.getSubComponent();
+      if (subComponent >= 0) {
+        res = memo.get(obj, null, -1, component, subComponent, false,
+            () -> hde.getComponent((Type) obj, component, subComponent));
       } else {
-        res = hde.getComponent((Type) obj, hl7spec.getComponent());
+        res = memo.get(obj, null, -1, component, -1, true,
+            () -> hde.getComponent((Type) obj, component));
       }
 
       if (res != null && !res.isEmpty()) {
-        return new SimpleEvaluationResult<>(res.getValues());
+        return EvaluationResultFactory.getEvaluationResult(res.getValues());
       } else {
         return null;
       }
@@ -176,6 +302,54 @@ public class HL7MessageData implements InputDataExtractor {
   }
 
 
+  /**
+   * Returns true if the message has at least one of the segments, see
+   * {@link SegmentDependencies#indexOf(String)} for the positions.
+   * 
+   * @param segments - segment positions
+   * @return true if any of the segments is present
+   */
+  public boolean isAnySegmentPresent(BitSet segments) {
+    if (presentSegments == null) {
+      presentSegments = findPresentSegments(hde.getMessage());
+    }
+    return presentSegments.intersects(segments);
+  }
+
+
+  private static BitSet findPresentSegments(Group message) {
+    BitSet present = new BitSet();
+    try {
+      addPresentSegments(message, present);
+    } catch (HL7Exception e) {
+      LOGGER.warn("Cannot read the message structure, all segments treated as present", e);
+      present.set(0, SupportedSegments.values().length);
+    }
+    return present;
+  }
+
+
+  private static void addPresentSegments(Group group, BitSet present) throws HL7Exception {
+    for (String name : group.getNames()) {
+      for (Structure structure : group.getAll(name)) {
+        if (structure instanceof Group) {
+          addPresentSegments((Group) structure, present);
+        } else {
+          int index = SegmentDependencies.indexOf(structure.getName());
+          if (index >= 0) {
+            present.set(index);
+          }
+        }
+      }
+    }
+  }
+
+
+  int getMemoizedResultCount() {
+    return memo.size();
+  }
+
+
   @Override
   public EvaluationResult evaluateJexlExpression(String expression,
       Map<String, EvaluationResult> contextValues) {
@@ -191,6 +365,40 @@ public class HL7MessageData implements InputDataExtractor {
   }
 
 
+  /**
+   * Binds the expression to the static method it calls when it has the form Function.method(args),
+   * so it can be evaluated without the JEXL interpreter.
+   *
+   * @param expression - JEXL expression
+   * @return {@link BoundFunctionCall} or null if the expression has to be evaluated by JEXL
+   */
+  public static BoundFunctionCall bindFunctionCall(String expression) {
+    return JEXL.bind(expression);
+  }
+
+
+  /**
+   * Evaluates the bound function call, and the expression with JEXL if the call cannot be invoked
+   * with the context values.
+   *
+   * @param call - bound function call, can be null
+   * @param expression - JEXL expression of the call
+   * @param contextValues - context values
+   * @return {@link EvaluationResult}
+   */
+  public EvaluationResult evaluateJexlExpression(BoundFunctionCall call, String expression,
+      Map<String, EvaluationResult> contextValues) {
+    if (call != null) {
+      Preconditions.checkArgument(contextValues != null, "context cannot be null");
+      EvaluationResult result = call.invoke(contextValues);
+      if (result != null) {
+        return result;
+      }
+    }
+    return evaluateJexlExpression(expression, contextValues);
+  }
+
+
   @Override
   public String getName() {
     return this.hde.getMessageType();
@@ -211,7 +419,7 @@ public class HL7MessageData implements InputDataExtractor {
     if (fetchedValue != null && !fetchedValue.isEmpty()) {
       return EvaluationResultFactory.getEvaluationResult(getSingleValue(fetchedValue.getValue()));
     } else {
-      return new EmptyEvaluationResult();
+      return EvaluationResultFactory.getEmptyEvaluationResult();
     }
 
   }
@@ -10,7 +10,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.UUID;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.hl7.fhir.r4.model.Bundle;
@@ -34,6 +33,7 @@ import io.github.linuxforhealth.api.ResourceModel;
 import io.github.linuxforhealth.api.ResourceValue;
 import io.github.linuxforhealth.core.Constants;
 import io.github.linuxforhealth.core.ObjectMapperUtil;
+import io.github.linuxforhealth.core.exception.ConversionTimeoutException;
 import io.github.linuxforhealth.core.exception.RequiredConstraintFailureException;
 import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
 import io.github.linuxforhealth.core.resource.ResourceResult;
@@ -56,6 +56,7 @@ public class HL7MessageEngine implements MessageEngine {
   private static final ObjectMapper OBJ_MAPPER = ObjectMapperUtil.getJSONInstance();
   private FHIRContext context;
   private BundleType bundleType;
+  private boolean dedupeAdditionalResources;
 
   /**
    * 
@@ -71,8 +72,21 @@ public class HL7MessageEngine implements MessageEngine {
    * @param bundleType
    */
   public HL7MessageEngine(FHIRContext context, BundleType bundleType) {
+    this(context, bundleType, false);
+  }
+
+  /**
+   * 
+   * @param context
+   * @param bundleType
+   * @param dedupeAdditionalResources - if true additional resources with the same content are added
+   *        to the bundle once and references to the duplicates point to the one added
+   */
+  public HL7MessageEngine(FHIRContext context, BundleType bundleType,
+      boolean dedupeAdditionalResources) {
     this.context = context;
     this.bundleType = bundleType;
+    this.dedupeAdditionalResources = dedupeAdditionalResources;
   }
 
 
@@ -91,16 +105,20 @@ public class HL7MessageEngine implements MessageEngine {
     Preconditions.checkArgument(resources != null, "resources cannot be null");
 
     HL7MessageData hl7DataInput = (HL7MessageData) dataInput;
-    Bundle bundle = initBundle();
+    Bundle bundle = initBundle(hl7DataInput);
     Map<String, EvaluationResult> localContextValues = new HashMap<>(contextValues);
+    AdditionalResourceDeduplicator deduplicator =
+        this.dedupeAdditionalResources ? new AdditionalResourceDeduplicator() : null;
     for (FHIRResourceTemplate genericTemplate : resources) {
       HL7FHIRResourceTemplate hl7ResourceTemplate = (HL7FHIRResourceTemplate) genericTemplate;
       ResourceModel rs = genericTemplate.getResource();
       List<ResourceResult> resourceResults = new ArrayList<>();
       try {
         MDC.put("Resource", rs.getName());
+        hl7DataInput.checkDeadline("resource " + genericTemplate.getResourceName());
         List<ResourceResult> results =
-            generateResources(hl7DataInput, hl7ResourceTemplate, localContextValues, bundle);
+            generateResources(hl7DataInput, hl7ResourceTemplate, localContextValues, bundle,
+                deduplicator);
         if (results != null) {
           resourceResults.addAll(results);
         }
@@ -112,12 +130,22 @@ public class HL7MessageEngine implements MessageEngine {
       } catch (IllegalArgumentException | IllegalStateException e) {
         LOGGER.error("Exception during  resource {} generation", rs.getName(), e);
 
+      } catch (ConversionTimeoutException e) {
+        if (hl7DataInput.getDeadline() == null || !hl7DataInput.getDeadline().isPartialResult()) {
+          throw e;
+        }
+        LOGGER.warn("Returning partial bundle for Message: {} , Message Control Id: {} , {}",
+            dataInput.getName(), dataInput.getId(), e.getMessage());
+        break;
       } finally {
         MDC.remove("Resource");
       }
 
 
 
+    }
+    if (deduplicator != null) {
+      LOGGER.info("Collapsed {} duplicate additional resources", deduplicator.getCollapsed());
     }
     LOGGER.info(
         "Successfully converted Message: {} , Message Control Id: {} to FHIR bundle resource with id {}",
@@ -127,8 +155,13 @@ public class HL7MessageEngine implements MessageEngine {
 
   private List<ResourceResult> generateResources(HL7MessageData hl7DataInput,
       HL7FHIRResourceTemplate template, Map<String, EvaluationResult> contextValues,
-      Bundle bundle) {
+      Bundle bundle, AdditionalResourceDeduplicator deduplicator) {
 
+    if (template.getSegmentDependencies().isMissingFrom(hl7DataInput)) {
+      LOGGER.info("Segments {} absent, skipping resource {}", template.getSegmentDependencies(),
+          template.getResourceName());
+      return null;
+    }
     ResourceModel resourceModel = template.getResource();
     List<String> segmentGroup = template.getAttributes().getSegment().getGroup();
     String segment = template.getAttributes().getSegment().getSegment();
@@ -144,8 +177,16 @@ public class HL7MessageEngine implements MessageEngine {
 
     if (resourceResults != null && !resourceResults.isEmpty()) {
       for (ResourceResult resReult : resourceResults) {
-        addToBundle(bundle, Lists.newArrayList(resReult.getValue()));
-        addToBundle(bundle, resReult.getAdditionalResources());
+        if (deduplicator != null) {
+          // collapse the additional resources first so the resource references the ones kept
+          List<ResourceValue> additionalResources =
+              deduplicator.addAll(resReult.getAdditionalResources());
+          addToBundle(bundle, Lists.newArrayList(deduplicator.rewrite(resReult.getValue())));
+          addToBundle(bundle, additionalResources);
+        } else {
+          addToBundle(bundle, Lists.newArrayList(resReult.getValue()));
+          addToBundle(bundle, resReult.getAdditionalResources());
+        }
       }
     }
 
@@ -192,10 +233,10 @@ public class HL7MessageEngine implements MessageEngine {
     }
   }
 
-  private Bundle initBundle() {
+  private Bundle initBundle(HL7MessageData hl7DataInput) {
     Bundle bundle = new Bundle();
     bundle.setType(this.bundleType);
-    bundle.setId(UUID.randomUUID().toString());
+    bundle.setId(hl7DataInput.generateResourceId());
     Meta m = new Meta();
     m.setLastUpdated(LocalDateTime.now().toDate());
     bundle.setMeta(m);
@@ -239,6 +280,7 @@ public class HL7MessageEngine implements MessageEngine {
       final ResourceModel rs, final Map<String, EvaluationResult> contextValues,
       final List<SegmentGroup> multipleSegments, boolean generateMultiple) {
     List<ResourceResult> resourceResults = new ArrayList<>();
+    String stage = "resource " + rs.getName();
     for (SegmentGroup currentGroup : multipleSegments) {
 
 
@@ -253,6 +295,7 @@ public class HL7MessageEngine implements MessageEngine {
       localContextValues.putAll(getContextMap(currentGroup));
 
       for (EvaluationResult baseValue : baseValues) {
+        hl7DataInput.checkDeadline(stage);
         try {
           ResourceResult result =
               rs.evaluate(hl7DataInput, ImmutableMap.copyOf(localContextValues), baseValue);
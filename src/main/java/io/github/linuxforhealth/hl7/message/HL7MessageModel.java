@@ -9,23 +9,33 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.r4.model.Bundle;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import ca.uhn.hl7v2.HL7Exception;
 import ca.uhn.hl7v2.model.Message;
 import io.github.linuxforhealth.api.FHIRResourceTemplate;
 import io.github.linuxforhealth.api.MessageEngine;
 import io.github.linuxforhealth.api.MessageTemplate;
+import io.github.linuxforhealth.hl7.message.util.SegmentReferenceCollector;
 import io.github.linuxforhealth.hl7.parsing.HL7DataExtractor;
 import io.github.linuxforhealth.hl7.parsing.HL7HapiParser;
+import io.github.linuxforhealth.hl7.parsing.SegmentFilter;
+import io.github.linuxforhealth.hl7.parsing.SegmentFilter.FilteredMessage;
 
 public class HL7MessageModel implements MessageTemplate<Message> {
 
   private List<FHIRResourceTemplate> resources;
   private String messageName;
+  // computed on first use, the template is immutable after construction
+  private final Supplier<Optional<SegmentFilter>> segmentFilter =
+      Suppliers.memoize(() -> Optional.ofNullable(SegmentFilter.create(this.messageName,
+          SegmentReferenceCollector.collect(this.resources))));
 
 
   @JsonCreator
@@ -69,16 +79,58 @@ public class HL7MessageModel implements MessageTemplate<Message> {
     Preconditions.checkArgument(engine != null, "MessageEngine cannot be null");
 
     HL7DataExtractor hl7DTE = new HL7DataExtractor(message);
-    HL7MessageData dataSource = new HL7MessageData(hl7DTE);
+    return convert(new HL7MessageData(hl7DTE), engine);
 
-    Bundle bundle =
-        engine.transform(dataSource, this.getResources(), new HashMap<>());
+  }
+
+
+  /**
+   * Converts the message read through the data source.
+   * 
+   * @param dataSource - {@link HL7MessageData} for the message
+   * @param engine - {@link MessageEngine}
+   * @return JSON representation of the FHIR bundle
+   */
+  public String convert(HL7MessageData dataSource, MessageEngine engine) {
+    Bundle bundle = transform(dataSource, engine);
     return engine.getFHIRContext()
         .encodeResourceToString(bundle);
 
   }
 
 
+  /**
+   * Converts the message read through the data source to a bundle, without validating and
+   * serializing it.
+   * 
+   * @param dataSource - {@link HL7MessageData} for the message
+   * @param engine - {@link MessageEngine}
+   * @return FHIR {@link Bundle}
+   */
+  public Bundle transform(HL7MessageData dataSource, MessageEngine engine) {
+    Preconditions.checkArgument(dataSource != null, "Input Hl7 message data cannot be null");
+    Preconditions.checkArgument(engine != null, "MessageEngine cannot be null");
+
+    return engine.transform(dataSource, this.getResources(), new HashMap<>());
+  }
+
+
+  /**
+   * Removes the segments this template never reads from the raw message, see
+   * {@link SegmentFilter}.
+   * 
+   * @param message - raw ER7 message
+   * @return {@link FilteredMessage}
+   */
+  public FilteredMessage filterUnreferencedSegments(String message) {
+    Optional<SegmentFilter> filter = segmentFilter.get();
+    if (filter.isPresent()) {
+      return filter.get().filter(message);
+    }
+    return FilteredMessage.unfiltered(message);
+  }
+
+
   @Override
   public String getMessageName() {
     return messageName;
@@ -93,6 +145,4 @@ public class HL7MessageModel implements MessageTemplate<Message> {
     return new ArrayList<>(resources);
   }
 
-
-
 }
@@ -11,7 +11,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +19,7 @@ import com.google.common.collect.Lists;
 import ca.uhn.hl7v2.model.Structure;
 import io.github.linuxforhealth.hl7.message.HL7Segment;
 import io.github.linuxforhealth.hl7.parsing.HL7DataExtractor;
+import io.github.linuxforhealth.hl7.parsing.MessageStructureIndex;
 import io.github.linuxforhealth.hl7.parsing.result.ParsingResult;
 
 public class SegmentExtractorUtil {
@@ -117,7 +117,8 @@ public class SegmentExtractorUtil {
             extractAdditionalSegmentValue(primary, primaryGroup, additionalSegments, dataExtractor);
 
 
-        String groupId = generateGroupId(parent, parentGroupUsedForParentSegment);
+        String groupId =
+            generateGroupId(parent, parentGroupUsedForParentSegment, dataExtractor);
         if (primarySegments != null && !primarySegments.isEmpty()) {
           returnValues
               .add(new SegmentGroup(Lists.newArrayList(primary), additionalSegmentValues, groupId));
@@ -155,25 +156,7 @@ public class SegmentExtractorUtil {
 
   private static List<Structure> getChildStructures(List<String> parentGroup,
       HL7DataExtractor dataExtractor) {
-
-    if (parentGroup.isEmpty()) {
-      return new ArrayList<>();
-    } else if (parentGroup.size() == 1) {
-      return getStructures(parentGroup.get(0), dataExtractor);
-    } else {
-      String parent = parentGroup.get(0);
-      List<String> subParents = parentGroup.subList(1, parentGroup.size());
-      List<Structure> segments = getStructures(parent, dataExtractor);
-      List<Structure> results = new ArrayList<>();
-      for (Structure s : segments) {
-        results.addAll(getChildStructures(s, subParents, dataExtractor));
-      }
-
-      return results;
-    }
-
-
-
+    return dataExtractor.getStructureIndex().getGroups(parentGroup);
   }
 
 
@@ -219,40 +202,39 @@ public class SegmentExtractorUtil {
   private static List<Structure> extractEachAdditionalSegment(Structure primaryStruct,
       List<String> primaryGroups, HL7Segment seg, HL7DataExtractor dataExtractor) {
 
-    List<Structure> values = null;
     List<String> groups = seg.getGroup();
+    MessageStructureIndex index = dataExtractor.getStructureIndex();
 
     if (groups.isEmpty()) {
-      values = getStructures(seg.getSegment(), dataExtractor);
+      return index.getResolvedSegments(null, groups, seg.getSegment(),
+          () -> getStructures(seg.getSegment(), dataExtractor));
     } else if (primaryGroups.isEmpty()) {
       // extract without parent
-      List<Structure> parentSegments = getChildStructures(seg.getGroup(), dataExtractor);
-      values = new ArrayList<>();
-      for (Structure par : parentSegments) {
-        values.addAll(getStructures(par, seg.getSegment(), dataExtractor));
-      }
-    } else if (CollectionUtils.containsAll(primaryGroups, groups)) {
-      String commonParentGroup = getCommonParent(groups, primaryGroups);
-      Structure commonParent = getParentGroup(primaryStruct, commonParentGroup);
-
-      values = getStructures(commonParent, seg.getSegment(), dataExtractor);
+      return index.getResolvedSegments(null, groups, seg.getSegment(), () -> {
+        List<Structure> parentSegments = getChildStructures(groups, dataExtractor);
+        List<Structure> values = new ArrayList<>();
+        for (Structure par : parentSegments) {
+          values.addAll(getStructures(par, seg.getSegment(), dataExtractor));
+        }
+        return values;
+      });
     } else if (getCommonParent(groups, primaryGroups) != null) {
-
+      // the segments only depend on the primary segment through the common parent group
       String commonParentGroup = getCommonParent(groups, primaryGroups);
-
-      Structure commonParent = getParentGroup(primaryStruct, commonParentGroup);
+      Structure commonParent = getParentGroup(primaryStruct, commonParentGroup, dataExtractor);
+      if (commonParent == null) {
+        return new ArrayList<>();
+      }
       List<String> relativeGroupsToCommonParent = new ArrayList<>(groups);
       relativeGroupsToCommonParent.removeAll(primaryGroups);
 
-      values = getChildStructures(commonParent, relativeGroupsToCommonParent, seg.getSegment(),
-          dataExtractor);
-
+      return index.getResolvedSegments(commonParent, relativeGroupsToCommonParent,
+          seg.getSegment(), () -> getChildStructures(commonParent, relativeGroupsToCommonParent,
+              seg.getSegment(), dataExtractor));
     } else {
 
       throw new IllegalStateException("Unknow state , cannot extract additional elements");
     }
-    return values;
-
 
   }
 
@@ -307,6 +289,10 @@ public class SegmentExtractorUtil {
 
   private static List<Structure> getStructures(Structure parent, String segment,
       HL7DataExtractor dataExtractor) {
+    MessageStructureIndex index = dataExtractor.getStructureIndex();
+    if (parent == null || index.contains(parent)) {
+      return index.getChildren(parent, segment);
+    }
     ParsingResult<Structure> segments = dataExtractor.getAllStructures(parent, segment);
     if (segments == null || segments.isEmpty()) {
       return new ArrayList<>();
@@ -318,9 +304,10 @@ public class SegmentExtractorUtil {
 
 
 
-  private static String generateGroupId(Structure struct, List<String> groups) {
+  private static String generateGroupId(Structure struct, List<String> groups,
+      HL7DataExtractor dataExtractor) {
 
-    Structure parent = getParentGroup(struct, groups);
+    Structure parent = getParentGroup(struct, groups, dataExtractor);
 
 
     if (parent != null) {
@@ -331,7 +318,8 @@ public class SegmentExtractorUtil {
     }
   }
 
-  private static Structure getParentGroup(Structure struct, List<String> groups) {
+  private static Structure getParentGroup(Structure struct, List<String> groups,
+      HL7DataExtractor dataExtractor) {
     if (groups == null || groups.isEmpty()) {
       return null;
     }
@@ -342,7 +330,7 @@ public class SegmentExtractorUtil {
     Structure parent = struct;
 
     for (String eachSeg : reversedGroups) {
-      parent = getParentGroup(parent, eachSeg);
+      parent = getParentGroup(parent, eachSeg, dataExtractor);
     }
 
     if (parent != null) {
@@ -353,7 +341,12 @@ public class SegmentExtractorUtil {
     }
   }
 
-  private static Structure getParentGroup(Structure struct, String group) {
+  private static Structure getParentGroup(Structure struct, String group,
+      HL7DataExtractor dataExtractor) {
+    MessageStructureIndex index = dataExtractor.getStructureIndex();
+    if (struct != null && index.contains(struct)) {
+      return index.findAncestor(struct, group);
+    }
     boolean parentMatchFound = false;
     Structure parent = struct;
     boolean noMoreParent = false;
@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.message.util;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.EnumUtils;
+import org.apache.commons.lang3.StringUtils;
+import io.github.linuxforhealth.api.Expression;
+import io.github.linuxforhealth.api.FHIRResourceTemplate;
+import io.github.linuxforhealth.api.ResourceModel;
+import io.github.linuxforhealth.api.Specification;
+import io.github.linuxforhealth.api.Variable;
+import io.github.linuxforhealth.hl7.expression.AbstractExpression;
+import io.github.linuxforhealth.hl7.expression.ReferenceExpression;
+import io.github.linuxforhealth.hl7.expression.ResourceExpression;
+import io.github.linuxforhealth.hl7.expression.specification.HL7Specification;
+import io.github.linuxforhealth.hl7.message.HL7FHIRResourceTemplate;
+import io.github.linuxforhealth.hl7.message.HL7Segment;
+import io.github.linuxforhealth.hl7.resource.HL7DataBasedResourceModel;
+
+/**
+ * Collects the names of the segments that a compiled message template can read: primary segments,
+ * additional segments and the segments referenced from specs, valueOf and variables of the resource
+ * templates, following resource and reference templates.
+ *
+ * The result is an over approximation, any token in a spec that names a supported segment is
+ * treated as a segment reference.
+ *
+ */
+public class SegmentReferenceCollector {
+
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^A-Za-z0-9_]+");
+
+  private SegmentReferenceCollector() {}
+
+
+  public static Set<String> collect(List<FHIRResourceTemplate> templates) {
+    Set<String> segments = new HashSet<>();
+    Set<ResourceModel> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (FHIRResourceTemplate template : templates) {
+      if (template instanceof HL7FHIRResourceTemplate) {
+        HL7FHIRResourceTemplate hl7Template = (HL7FHIRResourceTemplate) template;
+        addSegment(hl7Template.getAttributes().getSegment(), segments);
+        hl7Template.getAttributes().getAdditionalSegments().forEach(s -> addSegment(s, segments));
+      }
+      collect(template.getResource(), segments, visited);
+    }
+    return segments;
+  }
+
+
+  private static void addSegment(HL7Segment segment, Set<String> segments) {
+    if (segment != null) {
+      segments.add(StringUtils.upperCase(segment.getSegment()));
+    }
+  }
+
+
+  private static void collect(ResourceModel model, Set<String> segments,
+      Set<ResourceModel> visited) {
+    if (model == null || !visited.add(model)) {
+      return;
+    }
+    if (model instanceof HL7DataBasedResourceModel) {
+      addTokens(((HL7DataBasedResourceModel) model).getSpec(), segments);
+    }
+    for (Expression exp : model.getExpressions().values()) {
+      for (Specification spec : exp.getspecs()) {
+        if (spec instanceof HL7Specification) {
+          addTokens(((HL7Specification) spec).getSegment(), segments);
+        }
+      }
+      for (Variable var : exp.getVariables()) {
+        var.getSpec().forEach(s -> addTokens(s, segments));
+      }
+
+      if (exp instanceof ResourceExpression) {
+        collect(((ResourceExpression) exp).getData(), segments, visited);
+      } else if (exp instanceof ReferenceExpression) {
+        collect(((ReferenceExpression) exp).getData(), segments, visited);
+        collect(((ReferenceExpression) exp).getReferenceModel(), segments, visited);
+      } else if (exp instanceof AbstractExpression) {
+        addTokens(((AbstractExpression) exp).getExpressionAttr().getValueOf(), segments);
+      }
+    }
+  }
+
+
+  private static void addTokens(String spec, Set<String> segments) {
+    if (StringUtils.isBlank(spec)) {
+      return;
+    }
+    for (String token : TOKEN_SEPARATOR.split(spec)) {
+      if (token.length() == 3 && EnumUtils.isValidEnumIgnoreCase(SupportedSegments.class, token)) {
+        segments.add(StringUtils.upperCase(token));
+      }
+    }
+  }
+
+}
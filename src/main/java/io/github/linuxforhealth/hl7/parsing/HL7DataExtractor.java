@@ -42,6 +42,8 @@ public class HL7DataExtractor {
 
 
   private final Message message;
+  // built on first use, the message is not modified during conversion
+  private MessageStructureIndex structureIndex;
 
   public HL7DataExtractor(Message message) {
     this.message = message;
@@ -49,6 +51,19 @@ public class HL7DataExtractor {
   }
 
 
+  /**
+   * Returns the index of the group tree of this message.
+   * 
+   * @return {@link MessageStructureIndex}
+   */
+  public MessageStructureIndex getStructureIndex() {
+    if (structureIndex == null) {
+      structureIndex = MessageStructureIndex.create(message);
+    }
+    return structureIndex;
+  }
+
+
   private static Predicate<Structure> isEmpty() {
     return (Structure p) -> {
       try {
@@ -75,6 +90,9 @@ public class HL7DataExtractor {
       Preconditions.checkArgument(rep >= 0, "Segment rep cannot be less than 0");
 
 
+      if (!StructureAccessorPlan.of(message).hasChild(message, group)) {
+        return new Hl7ParsingStructureResult(new ArrayList<>());
+      }
       Structure groupStr = message.get(group, groupRep);
       if (groupStr instanceof Group) {
         Group gp = (Group) groupStr;
@@ -112,13 +130,15 @@ public class HL7DataExtractor {
       Preconditions.checkArgument(StringUtils.isNotBlank(segment), SEGMENT_CANNOT_BE_NULL_OR_EMPTY);
       Preconditions.checkArgument(groupRep >= 0, "groupRep should be greater than or equal to 0");
 
+      if (!StructureAccessorPlan.of(message).hasChild(message, group)) {
+        return new Hl7ParsingStructureResult(new ArrayList<>());
+      }
       Structure groupStr = message.get(group, groupRep);
       if (groupStr instanceof Group) {
         Group gp = (Group) groupStr;
-        Structure[] s = gp.getAll(segment);
-        List<Structure> list = Lists.newArrayList(s);
+        List<Structure> list = new ArrayList<>(StructureAccessorPlan.of(gp).getAll(gp, segment));
         list.removeIf(isEmpty());
-        parsingResult = new Hl7ParsingStructureResult(Lists.newArrayList(list));
+        parsingResult = new Hl7ParsingStructureResult(list);
       } else {
         parsingResult = new Hl7ParsingStructureResult(new ArrayList<>());
       }
@@ -141,6 +161,9 @@ public class HL7DataExtractor {
     try {
       Preconditions.checkArgument(StringUtils.isNotBlank(spec),
           "Not a valid string to extract from Message");
+      if (!StructureAccessorPlan.of(message).hasChild(message, spec)) {
+        return false;
+      }
       Message unmodifiableMessage = Unmodifiable.unmodifiableMessage(message);
       Structure s = unmodifiableMessage.get(spec);
       return s != null;
@@ -160,6 +183,9 @@ public class HL7DataExtractor {
       Preconditions.checkArgument(StringUtils.isNotBlank(spec),
           "Not a valid string to extract from Terser");
       Preconditions.checkArgument(rep >= 0, "Segment rep cannot be less than 0");
+      if (!StructureAccessorPlan.of(message).hasChild(message, spec)) {
+        return false;
+      }
       Message unmodifiableMessage = Unmodifiable.unmodifiableMessage(message);
       Structure s = unmodifiableMessage.get(spec, rep);
       return s != null;
@@ -252,9 +278,7 @@ public class HL7DataExtractor {
       Preconditions.checkArgument(field >= 1, "field cannot be negative");
 
       LOGGER.debug("fetching values for Segment {} field {}  ", segment, field);
-      Type[] fields = segment.getField(field);
-
-      return new Hl7ParsingTypeResult(Lists.newArrayList(fields));
+      return new Hl7ParsingTypeResult(StructureAccessorPlan.getFieldValues(segment, field));
 
     } catch (HL7Exception | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
 
@@ -346,6 +370,11 @@ public class HL7DataExtractor {
   }
 
 
+  public Message getMessage() {
+    return message;
+  }
+
+
 
   /**
    * 
@@ -395,8 +424,7 @@ public class HL7DataExtractor {
       if (struct instanceof Group) {
         Group gp = (Group) struct;
 
-        Structure[] s = gp.getAll(segment);
-        List<Structure> list = Lists.newArrayList(s);
+        List<Structure> list = new ArrayList<>(StructureAccessorPlan.of(gp).getAll(gp, segment));
         list.removeIf(isEmpty());
 
         parsingResult = new Hl7ParsingStructureResult(list);
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+/**
+ * Size of a raw ER7 message found by a single scan over the text, without parsing it. Conversion
+ * time grows with the number of segments, as most resources are generated per segment, so the
+ * segment count and the length are used to estimate the cost of a conversion before it starts.
+ *
+ */
+public final class MessageCostEstimate {
+
+  private final int length;
+  private final int segments;
+
+  private MessageCostEstimate(int length, int segments) {
+    this.length = length;
+    this.segments = segments;
+  }
+
+
+  /**
+   * Scans the message for segments, a segment is a non blank line separated by CR or LF.
+   *
+   * @param hl7MessageData - raw ER7 message
+   * @return {@link MessageCostEstimate}
+   */
+  public static MessageCostEstimate scan(String hl7MessageData) {
+    if (hl7MessageData == null) {
+      return new MessageCostEstimate(0, 0);
+    }
+    int segments = 0;
+    boolean inSegment = false;
+    for (int i = 0; i < hl7MessageData.length(); i++) {
+      char c = hl7MessageData.charAt(i);
+      if (c == '\r' || c == '\n') {
+        inSegment = false;
+      } else if (!inSegment && !Character.isWhitespace(c)) {
+        inSegment = true;
+        segments++;
+      }
+    }
+    return new MessageCostEstimate(hl7MessageData.length(), segments);
+  }
+
+
+  public int getLength() {
+    return length;
+  }
+
+
+  public int getSegments() {
+    return segments;
+  }
+
+
+  @Override
+  public String toString() {
+    return "MessageCostEstimate [length=" + length + ", segments=" + segments + "]";
+  }
+
+}
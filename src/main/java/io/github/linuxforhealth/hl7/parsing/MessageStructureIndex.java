@@ -0,0 +1,264 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Group;
+import ca.uhn.hl7v2.model.Message;
+import ca.uhn.hl7v2.model.Structure;
+
+/**
+ * Index of the group tree of a message, built in a single pass over the message. It maps each
+ * structure to its ancestor chain, each group to its children by name and each group path from
+ * the message root to the repetitions of the group, so segment groups for all resource templates
+ * are resolved without walking the tree again.
+ *
+ * The results are the same as the {@link HL7DataExtractor} lookups they replace: children of a
+ * group exclude empty structures, groups directly under the message include them.
+ *
+ */
+public final class MessageStructureIndex {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MessageStructureIndex.class);
+  private static final Joiner PATH_JOINER = Joiner.on('/');
+
+  private final Message message;
+  // group -> child name -> repetitions, all repetitions including empty ones
+  private final Map<Group, Map<String, List<Structure>>> children = new IdentityHashMap<>();
+  // structure -> parent groups, nearest first, ending with the message
+  private final Map<Structure, List<Group>> ancestors = new IdentityHashMap<>();
+  private final Set<Structure> emptyStructures =
+      Collections.newSetFromMap(new IdentityHashMap<>());
+  // group path from the message root -> repetitions in message order
+  private final Map<String, List<Structure>> groupsByPath = new HashMap<>();
+  // (parent group, relative group path, segment) -> resolved segments
+  private final Map<SegmentKey, List<Structure>> resolvedSegments = new HashMap<>();
+
+  private MessageStructureIndex(Message message) {
+    this.message = message;
+  }
+
+
+  /**
+   * Builds the index for the message.
+   *
+   * @param message - HAPI message
+   * @return {@link MessageStructureIndex}
+   */
+  public static MessageStructureIndex create(Message message) {
+    MessageStructureIndex index = new MessageStructureIndex(message);
+    index.addGroup(message, ImmutableList.of(message), null);
+    return index;
+  }
+
+
+  /**
+   * Adds the children of the group and returns true if the group is empty.
+   */
+  private boolean addGroup(Group group, List<Group> chain, String path) {
+    boolean empty = true;
+    Map<String, List<Structure>> byName = new HashMap<>();
+    children.put(group, byName);
+    for (String name : group.getNames()) {
+      List<Structure> reps = getAll(group, name);
+      byName.put(name, ImmutableList.copyOf(reps));
+      String childPath = path == null ? name : PATH_JOINER.join(path, name);
+      for (Structure rep : reps) {
+        ancestors.put(rep, chain);
+        boolean childEmpty;
+        if (rep instanceof Group) {
+          List<Group> childChain =
+              ImmutableList.<Group>builder().add((Group) rep).addAll(chain).build();
+          childEmpty = addGroup((Group) rep, childChain, childPath);
+          // groups under the message are listed even if empty, deeper groups only if not empty
+          if (path == null || !childEmpty) {
+            groupsByPath.computeIfAbsent(childPath, k -> new ArrayList<>()).add(rep);
+          }
+        } else {
+          childEmpty = isEmpty(rep);
+        }
+        if (childEmpty) {
+          emptyStructures.add(rep);
+        }
+        empty = empty && childEmpty;
+      }
+    }
+    return empty;
+  }
+
+
+  private static List<Structure> getAll(Group group, String name) {
+    try {
+      return StructureAccessorPlan.of(group).getAll(group, name);
+    } catch (HL7Exception e) {
+      LOGGER.debug("Cannot read {} from {}", name, group.getName(), e);
+      return ImmutableList.of();
+    }
+  }
+
+
+  private static boolean isEmpty(Structure segment) {
+    try {
+      return segment.isEmpty();
+    } catch (HL7Exception e) {
+      LOGGER.debug("Error", e);
+      return true;
+    }
+  }
+
+
+  /**
+   * Returns the non empty repetitions of the child of the group, same as
+   * {@link HL7DataExtractor#getAllStructures(Structure, String)}.
+   *
+   * @param parent - group
+   * @param name - name of the child group or segment
+   * @return repetitions, empty if the parent is not an indexed group
+   */
+  public List<Structure> getChildren(Structure parent, String name) {
+    Map<String, List<Structure>> byName = parent != null ? children.get(parent) : null;
+    if (byName == null) {
+      return new ArrayList<>();
+    }
+    List<Structure> values = new ArrayList<>();
+    for (Structure s : byName.getOrDefault(name, ImmutableList.of())) {
+      if (!emptyStructures.contains(s)) {
+        values.add(s);
+      }
+    }
+    return values;
+  }
+
+
+  /**
+   * Returns the repetitions of the groups at the path from the message root.
+   *
+   * @param path - group names starting below the message
+   * @return repetitions in message order
+   */
+  public List<Structure> getGroups(List<String> path) {
+    if (path == null || path.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(groupsByPath.getOrDefault(PATH_JOINER.join(path), ImmutableList.of()));
+  }
+
+
+  /**
+   * Returns true if the structure was part of the message when it was indexed.
+   *
+   * @param structure - structure
+   * @return true if indexed
+   */
+  public boolean contains(Structure structure) {
+    return ancestors.containsKey(structure) || structure == message;
+  }
+
+
+  /**
+   * Returns the closest structure whose name ends with the group name, starting with the structure
+   * itself and moving up to the message, same matching as the parent lookup of
+   * SegmentExtractorUtil.
+   *
+   * @param structure - indexed structure
+   * @param group - group name
+   * @return structure or null if no structure below the message matches
+   */
+  public Structure findAncestor(Structure structure, String group) {
+    if (StringUtils.endsWith(structure.getName(), group)) {
+      return structure;
+    } else if (isMessage(structure)) {
+      return null;
+    }
+    for (Group parent : ancestors.getOrDefault(structure, ImmutableList.of())) {
+      if (StringUtils.endsWith(parent.getName(), group)) {
+        return parent;
+      } else if (isMessage(parent)) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * Returns the segments resolved for the parent group, relative group path and segment name. The
+   * resolver is called the first time the key is requested for this message, later requests return
+   * the same segments, so segments shared by several primary segments of a group (the OBR and ORC
+   * of every OBX in an ORDER_OBSERVATION) are resolved once per group.
+   *
+   * @param parent - group the segments are resolved from, null if resolved from the message root
+   * @param groups - group path from the parent to the segment
+   * @param segment - segment name
+   * @param resolver - resolves the segments if not resolved yet
+   * @return resolved segments
+   */
+  public List<Structure> getResolvedSegments(Structure parent, List<String> groups, String segment,
+      Supplier<List<Structure>> resolver) {
+    SegmentKey key = new SegmentKey(parent, groups, segment);
+    List<Structure> values = resolvedSegments.get(key);
+    if (values == null) {
+      List<Structure> resolved = resolver.get();
+      values = resolved != null ? ImmutableList.copyOf(resolved) : ImmutableList.of();
+      resolvedSegments.put(key, values);
+    }
+    return new ArrayList<>(values);
+  }
+
+
+  private boolean isMessage(Structure structure) {
+    return structure.getName().equalsIgnoreCase(message.getName());
+  }
+
+
+  /**
+   * Key of the resolved segments, the parent group is compared by identity since repetitions of a
+   * group are different groups.
+   */
+  private static final class SegmentKey {
+    private final Structure parent;
+    private final List<String> groups;
+    private final String segment;
+
+    private SegmentKey(Structure parent, List<String> groups, String segment) {
+      this.parent = parent;
+      this.groups = groups != null ? ImmutableList.copyOf(groups) : ImmutableList.of();
+      this.segment = segment;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof SegmentKey)) {
+        return false;
+      }
+      SegmentKey other = (SegmentKey) obj;
+      return parent == other.parent && groups.equals(other.groups)
+          && Objects.equals(segment, other.segment);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(parent), groups, segment);
+    }
+  }
+
+}
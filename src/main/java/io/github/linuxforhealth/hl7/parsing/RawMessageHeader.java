@@ -0,0 +1,227 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the MSH segment directly from the raw ER7 (pipe and hat) message, without building the HAPI
+ * message. Used for making decisions, like rejecting unsupported message types, before the message
+ * is parsed.
+ *
+ */
+public class RawMessageHeader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RawMessageHeader.class);
+
+  private static final String MSH = "MSH";
+  // messages are parsed as version 2.6 (see HL7HapiParser), so the 2.6 event map applies
+  private static final String EVENT_MAP = "ca/uhn/hl7v2/parser/eventmap/2.6.properties";
+  private static final Properties EVENT_TO_STRUCTURE = loadEventMap();
+
+  private final String[] fields;
+  private final char fieldSeparator;
+  private final char componentSeparator;
+
+
+  private RawMessageHeader(String[] fields, char fieldSeparator, char componentSeparator) {
+    this.fields = fields;
+    this.fieldSeparator = fieldSeparator;
+    this.componentSeparator = componentSeparator;
+  }
+
+  /**
+   * Scans the ER7 message for the first MSH segment.
+   *
+   * @param hl7MessageData - raw ER7 message
+   * @return {@link RawMessageHeader} or null if the data does not contain a valid MSH segment
+   */
+  public static RawMessageHeader scan(String hl7MessageData) {
+    if (hl7MessageData == null) {
+      return null;
+    }
+    int start = findMsh(hl7MessageData);
+    if (start < 0 || hl7MessageData.length() < start + 5) {
+      return null;
+    }
+    char fieldSeparator = hl7MessageData.charAt(start + 3);
+    char componentSeparator = hl7MessageData.charAt(start + 4);
+    if (Character.isLetterOrDigit(fieldSeparator) || Character.isWhitespace(fieldSeparator)) {
+      return null;
+    }
+    int end = start;
+    while (end < hl7MessageData.length() && hl7MessageData.charAt(end) != '\r'
+        && hl7MessageData.charAt(end) != '\n') {
+      end++;
+    }
+    String[] fields = StringUtils.splitPreserveAllTokens(hl7MessageData.substring(start, end),
+        fieldSeparator);
+    return new RawMessageHeader(fields, fieldSeparator, componentSeparator);
+  }
+
+
+  /**
+   * Returns a field of the first segment with the name, read from the raw ER7 message.
+   *
+   * @param hl7MessageData - raw ER7 message
+   * @param segment - segment name, other than MSH
+   * @param field - field number
+   * @param fieldSeparator - field separator of the message
+   * @return field value or null if the segment or the field is not present
+   */
+  public static String scanField(String hl7MessageData, String segment, int field,
+      char fieldSeparator) {
+    if (hl7MessageData == null || field < 1) {
+      return null;
+    }
+    String prefix = segment + fieldSeparator;
+    int start = 0;
+    while (start < hl7MessageData.length()) {
+      int end = start;
+      while (end < hl7MessageData.length() && hl7MessageData.charAt(end) != '\r'
+          && hl7MessageData.charAt(end) != '\n') {
+        end++;
+      }
+      if (hl7MessageData.startsWith(prefix, start)) {
+        String[] fields = StringUtils.splitPreserveAllTokens(hl7MessageData.substring(start, end),
+            fieldSeparator);
+        return field < fields.length ? StringUtils.trimToNull(fields[field]) : null;
+      }
+      start = end + 1;
+    }
+    return null;
+  }
+
+
+  private static int findMsh(String data) {
+    int lineStart = 0;
+    while (lineStart < data.length()) {
+      while (lineStart < data.length() && Character.isWhitespace(data.charAt(lineStart))) {
+        lineStart++;
+      }
+      if (data.startsWith(MSH, lineStart)) {
+        return lineStart;
+      }
+      // batch header segments (FHS, BHS) can come before the first message
+      while (lineStart < data.length() && data.charAt(lineStart) != '\r'
+          && data.charAt(lineStart) != '\n') {
+        lineStart++;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the MSH field value, MSH numbering is used so MSH-1 is the field separator.
+   *
+   * @param field - field number
+   * @return field value or null if not present
+   */
+  public String getField(int field) {
+    // fields[0] is the segment name and fields[1] MSH-2, as MSH-1 is the separator itself
+    int index = field - 1;
+    if (field < 2 || index >= fields.length) {
+      return null;
+    }
+    return StringUtils.trimToNull(fields[index]);
+  }
+
+  /**
+   * Returns the component of the MSH field.
+   *
+   * @param field - field number
+   * @param component - component number starting with 1
+   * @return component value or null if not present
+   */
+  public String getComponent(int field, int component) {
+    String value = getField(field);
+    if (value == null) {
+      return null;
+    }
+    String[] components = StringUtils.splitPreserveAllTokens(value, componentSeparator);
+    if (component < 1 || component > components.length) {
+      return null;
+    }
+    return StringUtils.trimToNull(components[component - 1]);
+  }
+
+
+  public char getFieldSeparator() {
+    return fieldSeparator;
+  }
+
+
+  public char getComponentSeparator() {
+    return componentSeparator;
+  }
+
+
+  /**
+   * Returns the repetition separator from MSH-2, ~ if MSH-2 does not define one.
+   *
+   * @return repetition separator
+   */
+  public char getRepetitionSeparator() {
+    String encodingCharacters = getField(2);
+    return encodingCharacters != null && encodingCharacters.length() > 1
+        ? encodingCharacters.charAt(1)
+        : '~';
+  }
+
+
+  public String getMessageControlId() {
+    return getField(10);
+  }
+
+  /**
+   * Returns the message structure the same way HAPI resolves it: MSH-9.3 if present, otherwise the
+   * message type and trigger event from MSH-9 mapped through the event map.
+   *
+   * @return message structure, for example ADT_A01, or null if it cannot be determined
+   */
+  public String getMessageStructure() {
+    String structure = getComponent(9, 3);
+    if (structure != null) {
+      return structure;
+    }
+    String type = getComponent(9, 1);
+    String trigger = getComponent(9, 2);
+    if (type == null) {
+      return null;
+    }
+    if (trigger == null) {
+      return type;
+    }
+    if (EVENT_TO_STRUCTURE == null) {
+      // without the event map the structure cannot be determined reliably
+      return null;
+    }
+    String event = type + "_" + trigger;
+    return EVENT_TO_STRUCTURE.getProperty(event, event);
+  }
+
+
+  private static Properties loadEventMap() {
+    try (InputStream in = RawMessageHeader.class.getClassLoader().getResourceAsStream(EVENT_MAP)) {
+      if (in == null) {
+        LOGGER.warn("HL7 event map {} not found", EVENT_MAP);
+        return null;
+      }
+      Properties props = new Properties();
+      props.load(in);
+      return props;
+    } catch (IOException e) {
+      LOGGER.warn("Cannot read HL7 event map {}", EVENT_MAP, e);
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.GenericMessage;
+import ca.uhn.hl7v2.model.Group;
+import ca.uhn.hl7v2.model.Message;
+import ca.uhn.hl7v2.model.Structure;
+import ca.uhn.hl7v2.parser.CanonicalModelClassFactory;
+import ca.uhn.hl7v2.parser.ModelClassFactory;
+
+/**
+ * Removes the segments that the message template never reads from the raw ER7 message, so that
+ * HAPI does not parse them. The removed segments are kept as raw strings.
+ *
+ * <p>
+ * Removing a segment must not change the group a kept segment is parsed into. HAPI starts a new
+ * group repetition when it sees one of the leading segments of the group, so for every group that
+ * contains a referenced segment the leading segments (up to and including the first required
+ * child) are kept as well.
+ *
+ */
+public class SegmentFilter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentFilter.class);
+
+  private static final String HL7_VERSION = "2.6";
+  private static final Set<String> ENVELOPE_SEGMENTS =
+      ImmutableSet.of("MSH", "FHS", "FTS", "BHS", "BTS");
+
+  private final Set<String> segmentsToKeep;
+
+
+  private SegmentFilter(Set<String> segmentsToKeep) {
+    this.segmentsToKeep = segmentsToKeep;
+  }
+
+  /**
+   * Creates the filter for the message structure.
+   *
+   * @param messageStructure - message structure name for example ADT_A01
+   * @param referencedSegments - segments read by the message template
+   * @return {@link SegmentFilter} or null if the structure of the message is not known
+   */
+  public static SegmentFilter create(String messageStructure, Set<String> referencedSegments) {
+    Preconditions.checkArgument(StringUtils.isNotBlank(messageStructure),
+        "messageStructure cannot be blank");
+    Preconditions.checkArgument(referencedSegments != null, "referencedSegments cannot be null");
+    try {
+      ModelClassFactory mcf = new CanonicalModelClassFactory(HL7_VERSION);
+      Class<? extends Message> messageClass =
+          mcf.getMessageClass(messageStructure, HL7_VERSION, true);
+      if (messageClass == null || GenericMessage.class.isAssignableFrom(messageClass)) {
+        LOGGER.warn("Message structure {} not known, segments are not filtered", messageStructure);
+        return null;
+      }
+      Message message =
+          messageClass.getConstructor(ModelClassFactory.class).newInstance(mcf);
+      Set<String> keep = new HashSet<>(referencedSegments);
+      keep.addAll(ENVELOPE_SEGMENTS);
+      collect(message, referencedSegments, keep);
+      LOGGER.debug("Segments parsed for {}: {}", messageStructure, keep);
+      return new SegmentFilter(ImmutableSet.copyOf(keep));
+    } catch (HL7Exception | InstantiationException | IllegalAccessException
+        | InvocationTargetException | NoSuchMethodException e) {
+      LOGGER.warn("Cannot inspect message structure {}, segments are not filtered",
+          messageStructure, e);
+      return null;
+    }
+  }
+
+
+  private static boolean collect(Group group, Set<String> referenced, Set<String> keep)
+      throws HL7Exception {
+    boolean containsReferenced = false;
+    for (String name : group.getNames()) {
+      Structure child = group.get(name);
+      if (child instanceof Group) {
+        containsReferenced = collect((Group) child, referenced, keep) || containsReferenced;
+      } else if (referenced.contains(child.getName())) {
+        containsReferenced = true;
+      }
+    }
+    if (containsReferenced) {
+      addLeadingSegments(group, keep);
+    }
+    return containsReferenced;
+  }
+
+
+  private static void addLeadingSegments(Group group, Set<String> keep) throws HL7Exception {
+    for (String name : group.getNames()) {
+      Structure child = group.get(name);
+      if (child instanceof Group) {
+        addLeadingSegments((Group) child, keep);
+      } else {
+        keep.add(child.getName());
+      }
+      if (group.isRequired(name)) {
+        break;
+      }
+    }
+  }
+
+
+  public Set<String> getSegmentsToKeep() {
+    return segmentsToKeep;
+  }
+
+  /**
+   * Removes the segments not needed for the conversion.
+   *
+   * @param hl7MessageData - raw ER7 message
+   * @return {@link FilteredMessage}
+   */
+  public FilteredMessage filter(String hl7MessageData) {
+    StringBuilder kept = new StringBuilder(hl7MessageData.length());
+    List<String> unparsed = new ArrayList<>();
+    for (String line : StringUtils.split(hl7MessageData, "\r\n")) {
+      if (StringUtils.isBlank(line)) {
+        continue;
+      }
+      String segmentName = StringUtils.upperCase(StringUtils.left(line.trim(), 3));
+      if (segmentsToKeep.contains(segmentName)) {
+        kept.append(line).append('\r');
+      } else {
+        unparsed.add(line);
+      }
+    }
+    return new FilteredMessage(kept.toString(), unparsed);
+  }
+
+
+  /**
+   * Result of filtering: the message to parse and the segments left unparsed.
+   */
+  public static class FilteredMessage {
+    private final String message;
+    private final List<String> unparsedSegments;
+
+    FilteredMessage(String message, List<String> unparsedSegments) {
+      this.message = message;
+      this.unparsedSegments = ImmutableList.copyOf(unparsedSegments);
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public List<String> getUnparsedSegments() {
+      return unparsedSegments;
+    }
+
+    public static FilteredMessage unfiltered(String message) {
+      return new FilteredMessage(message, Collections.emptyList());
+    }
+  }
+
+}
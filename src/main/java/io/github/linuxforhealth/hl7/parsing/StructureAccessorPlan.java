@@ -0,0 +1,197 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.AbstractGroup;
+import ca.uhn.hl7v2.model.AbstractSegment;
+import ca.uhn.hl7v2.model.Group;
+import ca.uhn.hl7v2.model.Segment;
+import ca.uhn.hl7v2.model.Structure;
+import ca.uhn.hl7v2.model.Type;
+
+/**
+ * Accessors for a HAPI structure class, compiled once per class and shared by every message with
+ * that structure (ADT_A01, ORU_R01 and their groups).
+ *
+ * HAPI keeps the repetitions of the children of a group in a map by child name, there are no
+ * positions to resolve. For group classes based on AbstractGroup the plan reads the repetition
+ * list from that map through a handle bound once, so a child that is not part of the group is
+ * answered with no repetitions instead of the HL7Exception HAPI throws, and the repetitions are
+ * not copied into a new array for every lookup. Field values are read by repetition index through
+ * a pre-bound handle to the field repetition count, instead of copying the field into a Type[].
+ *
+ * Both handles use non public HAPI members, the plan falls back to the public HAPI methods when
+ * they are not available.
+ *
+ */
+public final class StructureAccessorPlan {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StructureAccessorPlan.class);
+
+  private static final Map<Class<? extends Structure>, StructureAccessorPlan> PLANS =
+      new ConcurrentHashMap<>();
+  // AbstractSegment.getReps(int), null if the HAPI version does not provide it
+  private static final MethodHandle FIELD_REPS = bindFieldReps();
+  // AbstractGroup.structures, the repetitions of the children by name, null if not available
+  private static final MethodHandle GROUP_CHILDREN = bindGroupChildren();
+  private static final StructureAccessorPlan PUBLIC_ACCESS = new StructureAccessorPlan(false);
+
+  // true if the repetitions of the children are read from the map of the group
+  private final boolean direct;
+
+  private StructureAccessorPlan(boolean direct) {
+    this.direct = direct;
+  }
+
+
+  /**
+   * Returns the plan for the class of the structure, compiling it on first use.
+   *
+   * @param structure - group, message or segment
+   * @return {@link StructureAccessorPlan}
+   */
+  public static StructureAccessorPlan of(Structure structure) {
+    return PLANS.computeIfAbsent(structure.getClass(), StructureAccessorPlan::compile);
+  }
+
+
+  private static StructureAccessorPlan compile(Class<? extends Structure> structureClass) {
+    if (GROUP_CHILDREN != null && AbstractGroup.class.isAssignableFrom(structureClass)) {
+      return new StructureAccessorPlan(true);
+    }
+    return PUBLIC_ACCESS;
+  }
+
+
+  private static MethodHandle bindFieldReps() {
+    try {
+      Method reps = AbstractSegment.class.getDeclaredMethod("getReps", int.class);
+      reps.setAccessible(true);
+      return MethodHandles.lookup().unreflect(reps);
+    } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+      LOGGER.warn("Field repetition count not available, fields are read as arrays", e);
+      return null;
+    }
+  }
+
+
+  private static MethodHandle bindGroupChildren() {
+    try {
+      Field structures = AbstractGroup.class.getDeclaredField("structures");
+      Preconditions.checkState(Map.class.isAssignableFrom(structures.getType()),
+          "Unexpected type of AbstractGroup.structures %s", structures.getType());
+      structures.setAccessible(true);
+      return MethodHandles.lookup().unreflectGetter(structures)
+          .asType(MethodType.methodType(Map.class, AbstractGroup.class));
+    } catch (NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+      LOGGER.warn("Group children not available, groups are read through the HAPI methods", e);
+      return null;
+    }
+  }
+
+
+  /**
+   * Returns true if both handles to the HAPI internals are bound, false if the plan falls back to
+   * the public HAPI methods.
+   */
+  static boolean isBoundToHapiInternals() {
+    return FIELD_REPS != null && GROUP_CHILDREN != null;
+  }
+
+
+  /**
+   * Returns true if the group can contain a child with the name.
+   *
+   * @param group - group of the class this plan was compiled for
+   * @param name - group or segment name
+   * @return true if the name is defined by the group class or was added to this group instance
+   */
+  public boolean hasChild(Group group, String name) {
+    // HAPI keeps the class of every child, including non standard segments, in a map by name
+    return group.getClass(name) != null;
+  }
+
+
+  /**
+   * Returns all repetitions of the child, no repetitions if the group has no such child.
+   *
+   * @param group - group of the class this plan was compiled for
+   * @param name - group or segment name
+   * @return repetitions, the list cannot be modified
+   * @throws HL7Exception if HAPI cannot read the child
+   */
+  public List<Structure> getAll(Group group, String name) throws HL7Exception {
+    if (direct) {
+      List<Structure> reps = getChildren((AbstractGroup) group).get(name);
+      return reps != null ? Collections.unmodifiableList(reps) : Collections.emptyList();
+    }
+    if (!hasChild(group, name)) {
+      return Collections.emptyList();
+    }
+    return Arrays.asList(group.getAll(name));
+  }
+
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, List<Structure>> getChildren(AbstractGroup group) {
+    try {
+      return (Map<String, List<Structure>>) GROUP_CHILDREN.invokeExact(group);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot read children of group " + group.getName(), e);
+    }
+  }
+
+
+  /**
+   * Returns the repetitions of the field, same as {@link Segment#getField(int)}.
+   *
+   * @param segment - segment
+   * @param field - field number starting with 1
+   * @return repetitions of the field
+   * @throws HL7Exception if HAPI cannot read the field
+   */
+  public static List<Type> getFieldValues(Segment segment, int field) throws HL7Exception {
+    if (FIELD_REPS != null && segment instanceof AbstractSegment && field >= 1
+        && field <= segment.numFields()) {
+      int reps = getReps((AbstractSegment) segment, field);
+      List<Type> values = new ArrayList<>(reps);
+      for (int rep = 0; rep < reps; rep++) {
+        values.add(segment.getField(field, rep));
+      }
+      return values;
+    }
+    return Lists.newArrayList(segment.getField(field));
+  }
+
+
+  private static int getReps(AbstractSegment segment, int field) throws HL7Exception {
+    try {
+      return (int) FIELD_REPS.invokeExact(segment, field);
+    } catch (HL7Exception | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot read repetitions of field " + field, e);
+    }
+  }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import com.google.common.base.Preconditions;
+import ca.uhn.hl7v2.parser.EncodingCharacters;
+import ca.uhn.hl7v2.parser.Escape;
+
+/**
+ * Converts HL7 v2 XML encoded messages into ER7 (pipe and hat) in a single streaming pass using
+ * StAX, so the XML message is never loaded into a DOM. The ER7 output is then processed the same
+ * way as ER7 input.
+ *
+ * Elements are interpreted by nesting: elements inside the message or a group element whose name
+ * has no '.' are segments, the children of a segment are fields (SEG.n), their children components
+ * (TYPE.n) and the children of components sub components.
+ *
+ */
+public class XmlMessageReader {
+
+  private static final String MSH = "MSH";
+  private static final String ESCAPE_ELEMENT = "escape";
+  private static final String ESCAPE_VALUE_ATTRIBUTE = "V";
+  private static final String DEFAULT_ENCODING_CHARACTERS = "^~\\&";
+  private static final char DEFAULT_FIELD_SEPARATOR = '|';
+  // marks ER7 escape sequences coming from escape elements, cannot appear in XML 1.0 text
+  private static final char ESCAPE_MARKER = '\u0001';
+
+  private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+  private XmlMessageReader() {}
+
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  }
+
+  /**
+   * Returns true if the data looks like a XML encoded message.
+   *
+   * @param data - message data
+   * @return true if the first non blank character is '&lt;'
+   */
+  public static boolean isXml(String data) {
+    if (data == null) {
+      return false;
+    }
+    for (int i = 0; i < data.length(); i++) {
+      char c = data.charAt(i);
+      if (!Character.isWhitespace(c) && c != '\uFEFF') {
+        return c == '<';
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Converts the XML encoded message to ER7.
+   *
+   * @param xml - XML encoded HL7 v2 message
+   * @return ER7 encoded message, segments are separated by carriage return
+   * @throws IllegalArgumentException if the XML cannot be read
+   */
+  public static String toER7(String xml) {
+    Preconditions.checkArgument(xml != null, "xml cannot be null");
+    return toER7(new StringReader(xml));
+  }
+
+  /**
+   * Converts the XML encoded message to ER7.
+   *
+   * @param xml - XML encoded HL7 v2 message
+   * @return ER7 encoded message, segments are separated by carriage return
+   * @throws IllegalArgumentException if the XML cannot be read
+   */
+  public static String toER7(Reader xml) {
+    Preconditions.checkArgument(xml != null, "xml cannot be null");
+    XMLStreamReader reader = null;
+    try {
+      reader = XML_INPUT_FACTORY.createXMLStreamReader(xml);
+      return new Converter(reader).convert();
+    } catch (XMLStreamException e) {
+      throw new IllegalArgumentException("Cannot read the XML message.", e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // nothing to do, the result is already available
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Holds the conversion state for a single message.
+   */
+  private static class Converter {
+    private final XMLStreamReader reader;
+    private final StringBuilder er7 = new StringBuilder();
+    private char fieldSeparator = DEFAULT_FIELD_SEPARATOR;
+    private String encodingCharacters = DEFAULT_ENCODING_CHARACTERS;
+    private EncodingCharacters encoding;
+
+    // depth of the current segment element, -1 when outside a segment
+    private int segmentDepth = -1;
+    private String segmentName;
+    // field number -> repetitions -> component number -> sub component number -> value
+    private Map<Integer, List<Map<Integer, Map<Integer, StringBuilder>>>> fields;
+    private Map<Integer, Map<Integer, StringBuilder>> currentRep;
+    private int component;
+    private int subComponent;
+
+    Converter(XMLStreamReader reader) {
+      this.reader = reader;
+    }
+
+
+    String convert() throws XMLStreamException {
+      int depth = 0;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+          startElement(depth, reader.getLocalName());
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          if (depth == segmentDepth) {
+            endSegment();
+          }
+          depth--;
+        } else if (segmentDepth > 0 && currentRep != null
+            && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+          value().append(reader.getText());
+        }
+      }
+      return er7.toString();
+    }
+
+
+    private void startElement(int depth, String name) {
+      if (segmentDepth < 0) {
+        // message and group elements have a '.' in the name (except the message root element)
+        if (depth > 1 && !StringUtils.contains(name, '.')) {
+          segmentDepth = depth;
+          segmentName = name;
+          fields = new TreeMap<>();
+        }
+        return;
+      }
+      int level = depth - segmentDepth;
+      if (ESCAPE_ELEMENT.equals(name)) {
+        // formatting escapes such as \.br\ are kept as ER7 escape sequences
+        String escape = reader.getAttributeValue(null, ESCAPE_VALUE_ATTRIBUTE);
+        if (currentRep != null && escape != null) {
+          char escapeChar = encodingCharacters.length() > 2 ? encodingCharacters.charAt(2) : '\\';
+          value().append(ESCAPE_MARKER).append(escapeChar).append(escape).append(escapeChar)
+              .append(ESCAPE_MARKER);
+        }
+        return;
+      }
+      int position = NumberUtils.toInt(StringUtils.substringAfterLast(name, "."), 0);
+      if (position <= 0) {
+        return;
+      }
+      if (level == 1) {
+        currentRep = new TreeMap<>();
+        fields.computeIfAbsent(position, k -> new ArrayList<>()).add(currentRep);
+        component = 1;
+        subComponent = 1;
+      } else if (level == 2) {
+        component = position;
+        subComponent = 1;
+      } else if (level == 3) {
+        subComponent = position;
+      }
+    }
+
+
+    private StringBuilder value() {
+      return currentRep.computeIfAbsent(component, k -> new TreeMap<>())
+          .computeIfAbsent(subComponent, k -> new StringBuilder());
+    }
+
+
+    private void endSegment() {
+      if (MSH.equals(segmentName)) {
+        String fs = text(fields.remove(1));
+        String enc = text(fields.remove(2));
+        if (StringUtils.isNotEmpty(fs)) {
+          fieldSeparator = fs.charAt(0);
+        }
+        if (StringUtils.isNotEmpty(enc)) {
+          encodingCharacters = enc;
+        }
+        encoding = new EncodingCharacters(fieldSeparator, encodingCharacters);
+      } else if (encoding == null) {
+        encoding = new EncodingCharacters(fieldSeparator, encodingCharacters);
+      }
+
+      if (er7.length() > 0) {
+        er7.append('\r');
+      }
+      er7.append(segmentName);
+      int nextField = 1;
+      if (MSH.equals(segmentName)) {
+        er7.append(fieldSeparator).append(encodingCharacters);
+        nextField = 3;
+      }
+      for (Map.Entry<Integer, List<Map<Integer, Map<Integer, StringBuilder>>>> field : fields
+          .entrySet()) {
+        for (; nextField <= field.getKey(); nextField++) {
+          er7.append(fieldSeparator);
+        }
+        appendRepetitions(field.getValue());
+      }
+
+      segmentDepth = -1;
+      segmentName = null;
+      fields = null;
+      currentRep = null;
+    }
+
+
+    private void appendRepetitions(List<Map<Integer, Map<Integer, StringBuilder>>> reps) {
+      for (int r = 0; r < reps.size(); r++) {
+        if (r > 0) {
+          er7.append(encoding.getRepetitionSeparator());
+        }
+        int nextComponent = 1;
+        for (Map.Entry<Integer, Map<Integer, StringBuilder>> comp : reps.get(r).entrySet()) {
+          for (; nextComponent < comp.getKey(); nextComponent++) {
+            er7.append(encoding.getComponentSeparator());
+          }
+          int nextSub = 1;
+          for (Map.Entry<Integer, StringBuilder> sub : comp.getValue().entrySet()) {
+            for (; nextSub < sub.getKey(); nextSub++) {
+              er7.append(encoding.getSubcomponentSeparator());
+            }
+            er7.append(escape(sub.getValue().toString()));
+          }
+        }
+      }
+    }
+
+
+    /**
+     * Escapes the text of a value. The escape sequences of escape elements were marked so that they
+     * are not escaped again, the text around them is trimmed on its own the same way the DOM parser
+     * does. Trimming the whole value would also strip the markers, they are control characters.
+     */
+    private String escape(String value) {
+      StringBuilder sb = new StringBuilder(value.length());
+      int start = 0;
+      int marker;
+      while ((marker = value.indexOf(ESCAPE_MARKER, start)) >= 0) {
+        int end = value.indexOf(ESCAPE_MARKER, marker + 1);
+        if (end < 0) {
+          // only XML 1.1 text can contain the marker character itself, it is kept as text
+          break;
+        }
+        sb.append(Escape.escape(value.substring(start, marker).trim(), encoding));
+        sb.append(value, marker + 1, end);
+        start = end + 1;
+      }
+      sb.append(Escape.escape(value.substring(start).trim(), encoding));
+      return sb.toString();
+    }
+
+
+    private static String text(List<Map<Integer, Map<Integer, StringBuilder>>> reps) {
+      if (reps == null || reps.isEmpty()) {
+        return null;
+      }
+      Map<Integer, StringBuilder> comp = reps.get(0).get(1);
+      if (comp == null || comp.get(1) == null) {
+        return null;
+      }
+      return comp.get(1).toString().trim();
+    }
+  }
+
+}
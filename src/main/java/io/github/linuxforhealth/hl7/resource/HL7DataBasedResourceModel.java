@@ -11,11 +11,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.Expression;
@@ -31,6 +33,7 @@ import io.github.linuxforhealth.hl7.expression.Hl7Expression;
 import io.github.linuxforhealth.hl7.expression.JEXLExpression;
 import io.github.linuxforhealth.hl7.expression.ReferenceExpression;
 import io.github.linuxforhealth.hl7.expression.ResourceExpression;
+import io.github.linuxforhealth.hl7.expression.ResourceIdExpression;
 import io.github.linuxforhealth.hl7.expression.SimpleExpression;
 import io.github.linuxforhealth.hl7.expression.ValueExtractionGeneralExpression;
 import io.github.linuxforhealth.hl7.resource.deserializer.HL7DataBasedResourceDeserializer;
@@ -49,6 +52,9 @@ public class HL7DataBasedResourceModel implements ResourceModel {
   private String spec;
 
   private String name;
+  // context values read by this template and the templates it evaluates, see SubTemplateCache
+  private final Supplier<SubTemplateCache.ContextReferences> contextReferences =
+      Suppliers.memoize(() -> SubTemplateCache.collect(this));
 
   /**
    * 
@@ -124,6 +130,10 @@ public class HL7DataBasedResourceModel implements ResourceModel {
           expressionMap.entrySet().stream().filter(e -> (e.getValue() instanceof JEXLExpression))
               .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
+      Map<String, Expression> idExp = expressionMap.entrySet().stream()
+          .filter(e -> (e.getValue() instanceof ResourceIdExpression))
+          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
       // initialize the map and list to collect values
       List<ResourceValue> additionalResolveValues = new ArrayList<>();
       Map<String, Object> resolveValues = new HashMap<>();
@@ -147,6 +157,9 @@ public class HL7DataBasedResourceModel implements ResourceModel {
       LOGGER.info("Started Evaluating JEXL expressions for {}", this.name);
       executeExpression(dataSource, localContext, resolveValues, jexlExp, baseValue);
 
+      LOGGER.info("Started Evaluating resource id expressions for {}", this.name);
+      executeExpression(dataSource, localContext, resolveValues, idExp, baseValue);
+
 
       resolveValues.values().removeIf(Objects::isNull);
 
@@ -260,6 +273,11 @@ public class HL7DataBasedResourceModel implements ResourceModel {
   }
 
 
+  SubTemplateCache.ContextReferences getContextReferences() {
+    return contextReferences.get();
+  }
+
+
   public String getSpec() {
     return spec;
   }
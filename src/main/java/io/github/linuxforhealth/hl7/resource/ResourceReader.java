@@ -14,6 +14,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -43,10 +45,43 @@ public class ResourceReader {
 
   private final Logger LOGGER = LoggerFactory.getLogger(ResourceReader.class);
 
-  private static ResourceReader reader;
+  private static volatile ResourceReader reader;
+
+  // reader compiling templates on this thread, the templates they reference are compiled by the
+  // same reader
+  private static final ThreadLocal<ResourceReader> COMPILING = new ThreadLocal<>();
 
   private final ConverterConfiguration converterConfig = ConverterConfiguration.getInstance();
 
+  // compiled resource models keyed by template path, templates are immutable once compiled
+  private final Map<String, ResourceModel> resourceModels = new ConcurrentHashMap<>();
+
+  // parsed template trees read by this reader, written out when creating a snapshot
+  private final Map<String, TemplateSnapshot.Entry> templateTrees = new ConcurrentHashMap<>();
+
+  private final TemplateSnapshot snapshot;
+
+  /**
+   * Creates a reader with its own compiled templates, see {@link #getInstance()} for the shared
+   * reader. The template snapshot configured with template.snapshot.file is loaded when present.
+   */
+  public ResourceReader() {
+    this(loadSnapshot(ConverterConfiguration.getInstance().getTemplateSnapshotFile()));
+  }
+
+  ResourceReader(TemplateSnapshot snapshot) {
+    // templates are compiled on first use
+    this.snapshot = snapshot;
+  }
+
+
+  private static TemplateSnapshot loadSnapshot(String snapshotFile) {
+    if (StringUtils.isNotBlank(snapshotFile)) {
+      return TemplateSnapshot.load(new File(snapshotFile));
+    }
+    return null;
+  }
+
   /**
    * Loads a file resource configuration, returning a String
    * 
@@ -96,74 +131,157 @@ public class ResourceReader {
   }
 
   public Map<String, HL7MessageModel> getMessageTemplates() throws IOException {
-    Map<String, HL7MessageModel> messagetemplates = new HashMap<>();
-    List<String> supportedMessageTemplates =
-        ConverterConfiguration.getInstance().getSupportedMessageTemplates();
-    for (String template : supportedMessageTemplates) {
-      HL7MessageModel rm = getMessageModel(template.toString());
-      messagetemplates.put(com.google.common.io.Files.getNameWithoutExtension(template.toString()),
-          rm);
-    }
-    return messagetemplates;
+    return compile(() -> {
+      Map<String, HL7MessageModel> messagetemplates = new HashMap<>();
+      List<String> supportedMessageTemplates =
+          ConverterConfiguration.getInstance().getSupportedMessageTemplates();
+      for (String template : supportedMessageTemplates) {
+        HL7MessageModel rm = getMessageModel(template.toString());
+        messagetemplates.put(
+            com.google.common.io.Files.getNameWithoutExtension(template.toString()), rm);
+      }
+      return messagetemplates;
+    });
   }
 
 
 
   private HL7MessageModel getMessageModel(String templateName) {
 
-    String templateFileContent =
-        getResourceInHl7Folder(Constants.MESSAGE_BASE_PATH + templateName + ".yml");
-    if (StringUtils.isNotBlank(templateFileContent)) {
-      try {
+    String path = Constants.MESSAGE_BASE_PATH + templateName + ".yml";
+    JsonNode parent = readTemplateTree(path);
+    Preconditions.checkState(parent != null, "Parent node from template file cannot be null");
 
-        JsonNode parent = ObjectMapperUtil.getYAMLInstance().readTree(templateFileContent);
-        Preconditions.checkState(parent != null, "Parent node from template file cannot be null");
+    JsonNode resourceNodes = parent.get("resources");
+    Preconditions.checkState(resourceNodes != null && !resourceNodes.isEmpty(),
+        "List of resources from Parent node from template file cannot be null or empty");
+    List<HL7FHIRResourceTemplateAttributes> templateAttributes =
+        ObjectMapperUtil.getYAMLInstance().convertValue(resourceNodes,
+            new TypeReference<List<HL7FHIRResourceTemplateAttributes>>() {});
 
-        JsonNode resourceNodes = parent.get("resources");
-        Preconditions.checkState(resourceNodes != null && !resourceNodes.isEmpty(),
-            "List of resources from Parent node from template file cannot be null or empty");
-        List<HL7FHIRResourceTemplateAttributes> templateAttributes =
-            ObjectMapperUtil.getYAMLInstance().convertValue(resourceNodes,
-                new TypeReference<List<HL7FHIRResourceTemplateAttributes>>() {});
+    List<HL7FHIRResourceTemplate> templates = new ArrayList<>();
 
-        List<HL7FHIRResourceTemplate> templates = new ArrayList<>();
+    templateAttributes.forEach(t -> templates.add(new HL7FHIRResourceTemplate(t)));
+    Preconditions.checkState(templateAttributes != null && !templateAttributes.isEmpty(),
+        "TemplateAttributes generated from template file cannot be null or empty");
+    return new HL7MessageModel(templateName, templates);
 
-        templateAttributes.forEach(t -> templates.add(new HL7FHIRResourceTemplate(t)));
-        Preconditions.checkState(templateAttributes != null && !templateAttributes.isEmpty(),
-            "TemplateAttributes generated from template file cannot be null or empty");
-        return new HL7MessageModel(templateName, templates);
+  }
 
-      } catch (IOException e) {
-        throw new IllegalArgumentException(
-            "Error encountered in processing the template" + templateName, e);
+  /**
+   * Returns the compiled resource model for the template path. Templates are compiled once per
+   * reader and shared by all the expressions referencing them.
+   * 
+   * @param path - template path relative to the hl7 folder, without the file extension
+   * @return {@link ResourceModel}
+   */
+  public ResourceModel generateResourceModel(String path) {
+    Preconditions.checkArgument(StringUtils.isNotBlank(path), "Path for resource cannot be blank");
+    // compiling a template compiles the templates it references, so computeIfAbsent cannot be used
+    ResourceModel model = resourceModels.get(path);
+    if (model == null) {
+      model = compile(() -> compileResourceModel(path));
+      ResourceModel existing = resourceModels.putIfAbsent(path, model);
+      if (existing != null) {
+        model = existing;
       }
-    } else {
-      throw new IllegalArgumentException("File not present:" + templateName);
     }
-
+    return model;
   }
 
-  public ResourceModel generateResourceModel(String path) {
-    Preconditions.checkArgument(StringUtils.isNotBlank(path), "Path for resource cannot be blank");
-    String templateFileContent = getResourceInHl7Folder(path + ".yml");
 
+  private ResourceModel compileResourceModel(String path) {
+    JsonNode tree = readTemplateTree(path + ".yml");
     try {
       InjectableValues injValues = new InjectableValues.Std().addValue("resourceName", path);
-      return ObjectMapperUtil.getYAMLInstance().setInjectableValues(injValues)
-          .readValue(templateFileContent, HL7DataBasedResourceModel.class);
+      return ObjectMapperUtil.getYAMLInstance().readerFor(HL7DataBasedResourceModel.class)
+          .with(injValues).readValue(tree);
 
     } catch (IOException e) {
       throw new IllegalArgumentException("Error encountered in processing the template" + path, e);
     }
+  }
+
+  /**
+   * Reads the parsed tree of the template. The tree is taken from the template snapshot when the
+   * snapshot entry was built from the same template source, otherwise the YAML is parsed.
+   * 
+   * @param path - template path relative to the hl7 folder
+   * @return parsed template
+   */
+  private JsonNode readTemplateTree(String path) {
+    String templateFileContent = getResourceInHl7Folder(path);
+    if (StringUtils.isBlank(templateFileContent)) {
+      throw new IllegalArgumentException("File not present:" + path);
+    }
+    String hash = TemplateSnapshot.hash(templateFileContent);
+    JsonNode tree = null;
+    if (snapshot != null) {
+      tree = snapshot.getTree(path, hash);
+      if (tree == null) {
+        LOGGER.debug("Template snapshot entry missing or stale for {}", path);
+      }
+    }
+    if (tree == null) {
+      try {
+        tree = ObjectMapperUtil.getYAMLInstance().readTree(templateFileContent);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Error encountered in processing the template" + path,
+            e);
+      }
+    }
+    templateTrees.put(path, new TemplateSnapshot.Entry(hash, tree));
+    return tree;
+  }
 
+  /**
+   * Creates a snapshot of all the templates read so far by this reader.
+   * 
+   * @return {@link TemplateSnapshot}
+   */
+  public TemplateSnapshot createSnapshot() {
+    return new TemplateSnapshot(templateTrees);
+  }
 
+  /**
+   * Runs the compilation with this reader returned by {@link #getInstance()} on the calling thread.
+   */
+  private <T> T compile(Supplier<T> compilation) {
+    ResourceReader previous = COMPILING.get();
+    COMPILING.set(this);
+    try {
+      return compilation.get();
+    } finally {
+      if (previous != null) {
+        COMPILING.set(previous);
+      } else {
+        COMPILING.remove();
+      }
+    }
   }
 
+
+  /**
+   * Returns the shared reader, or the reader compiling templates on the calling thread.
+   * 
+   * @return {@link ResourceReader}
+   */
   public static ResourceReader getInstance() {
-    if (reader == null) {
-      reader = new ResourceReader();
+    ResourceReader compiling = COMPILING.get();
+    if (compiling != null) {
+      return compiling;
+    }
+    ResourceReader current = reader;
+    if (current == null) {
+      synchronized (ResourceReader.class) {
+        current = reader;
+        if (current == null) {
+          current = new ResourceReader();
+          reader = current;
+        }
+      }
     }
-    return reader;
+    return current;
   }
 
 
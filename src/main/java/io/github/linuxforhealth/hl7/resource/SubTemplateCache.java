@@ -0,0 +1,340 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import com.google.common.collect.ImmutableSet;
+import io.github.linuxforhealth.api.Condition;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.api.Expression;
+import io.github.linuxforhealth.api.InputDataExtractor;
+import io.github.linuxforhealth.api.Specification;
+import io.github.linuxforhealth.api.Variable;
+import io.github.linuxforhealth.core.Constants;
+import io.github.linuxforhealth.core.expression.condition.CheckNotNull;
+import io.github.linuxforhealth.core.expression.condition.CheckNull;
+import io.github.linuxforhealth.core.expression.condition.CompountAndCondition;
+import io.github.linuxforhealth.core.expression.condition.CompountORCondition;
+import io.github.linuxforhealth.core.expression.condition.SimpleBiCondition;
+import io.github.linuxforhealth.core.resource.ResourceResult;
+import io.github.linuxforhealth.hl7.expression.AbstractExpression;
+import io.github.linuxforhealth.hl7.expression.ExpressionAttributes;
+import io.github.linuxforhealth.hl7.expression.JEXLExpression;
+import io.github.linuxforhealth.hl7.expression.ReferenceExpression;
+import io.github.linuxforhealth.hl7.expression.ResourceExpression;
+import io.github.linuxforhealth.hl7.expression.ResourceIdExpression;
+import io.github.linuxforhealth.hl7.expression.specification.HL7Specification;
+import io.github.linuxforhealth.hl7.expression.specification.SimpleSpecification;
+import io.github.linuxforhealth.hl7.expression.variable.ExpressionVariable;
+import io.github.linuxforhealth.hl7.message.HL7MessageData;
+
+/**
+ * Per message cache of the results of sub templates evaluated by resource and reference
+ * expressions, for example datatype/CodeableConcept for the same CWE or datatype/Reference for the
+ * same Patient. A result is keyed by the template, the base value and the context values the
+ * template can read, so the same ordering provider on every OBX is converted once.
+ *
+ * Only templates that produce the same result for the same inputs are cached, templates that
+ * generate identifiers (a RESOURCE_ID expression or UUID in a JEXL expression,
+ * resource/Practitioner for example) are always evaluated. The context values a template can read
+ * are collected from the variable names, specs, conditions and JEXL expressions of the template
+ * and of the templates it evaluates, any name in them is treated as a context reference. HAPI
+ * structures and resources are compared by identity, strings, numbers and booleans by value.
+ *
+ * The cache is enabled with {@link io.github.linuxforhealth.hl7.ConverterOptions.Builder}, lives
+ * as long as the {@link HL7MessageData} of the message and is not thread safe.
+ *
+ */
+public final class SubTemplateCache {
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^A-Za-z0-9_]+");
+  private static final String RANDOM_ID_TOKEN = "UUID";
+
+  private final Map<Key, ResourceResult> results = new HashMap<>();
+  private int hits;
+
+
+  /**
+   * Evaluates the template, through the cache of the message if the data source has one.
+   *
+   * @param model - sub template
+   * @param dataSource - message data
+   * @param contextValues - context values passed to the template
+   * @param baseValue - base value passed to the template
+   * @return {@link ResourceResult}
+   */
+  public static ResourceResult evaluate(HL7DataBasedResourceModel model,
+      InputDataExtractor dataSource, Map<String, EvaluationResult> contextValues,
+      EvaluationResult baseValue) {
+    if (dataSource instanceof HL7MessageData) {
+      SubTemplateCache cache = ((HL7MessageData) dataSource).getSubTemplateCache();
+      if (cache != null) {
+        return cache.get(model, dataSource, contextValues, baseValue);
+      }
+    }
+    return model.evaluate(dataSource, contextValues, baseValue);
+  }
+
+
+  /**
+   * Returns the cached result of the template for the inputs, evaluating it on first use. Null
+   * results are cached too.
+   *
+   * @param model - sub template
+   * @param dataSource - message data
+   * @param contextValues - context values passed to the template
+   * @param baseValue - base value passed to the template
+   * @return {@link ResourceResult}
+   */
+  public ResourceResult get(HL7DataBasedResourceModel model, InputDataExtractor dataSource,
+      Map<String, EvaluationResult> contextValues, EvaluationResult baseValue) {
+    ContextReferences references = model.getContextReferences();
+    if (!references.isCacheable()) {
+      return model.evaluate(dataSource, contextValues, baseValue);
+    }
+    Key key = new Key(model, getValue(baseValue), references.bind(contextValues));
+    if (results.containsKey(key)) {
+      hits++;
+      return results.get(key);
+    }
+    ResourceResult result = model.evaluate(dataSource, contextValues, baseValue);
+    results.put(key, result);
+    return result;
+  }
+
+
+  public int getHits() {
+    return hits;
+  }
+
+
+  public int size() {
+    return results.size();
+  }
+
+
+  private static Object getValue(EvaluationResult result) {
+    return result != null ? result.getValue() : null;
+  }
+
+
+  /**
+   * Collects the context references of the template and the templates it evaluates.
+   *
+   * @param model - template
+   * @return {@link ContextReferences}
+   */
+  static ContextReferences collect(HL7DataBasedResourceModel model) {
+    Set<String> names = new HashSet<>();
+    names.add(StringUtils.upperCase(Constants.GROUP_ID));
+    boolean cacheable =
+        collect(model, names, Collections.newSetFromMap(new IdentityHashMap<>()));
+    return new ContextReferences(cacheable, ImmutableSet.copyOf(names));
+  }
+
+
+  private static boolean collect(HL7DataBasedResourceModel model, Set<String> names,
+      Set<HL7DataBasedResourceModel> visited) {
+    if (model == null || !visited.add(model)) {
+      return true;
+    }
+    boolean cacheable = true;
+    addTokens(model.getSpec(), names);
+    for (Expression exp : model.getExpressions().values()) {
+      for (Specification spec : exp.getspecs()) {
+        if (spec instanceof HL7Specification) {
+          addTokens(((HL7Specification) spec).getSegment(), names);
+          addTokens(((HL7Specification) spec).getField(), names);
+        } else if (spec instanceof SimpleSpecification) {
+          addTokens(((SimpleSpecification) spec).getVariable(), names);
+        }
+      }
+      for (Variable var : exp.getVariables()) {
+        var.getSpec().forEach(s -> addTokens(s, names));
+        if (var instanceof ExpressionVariable) {
+          cacheable &= addTokens(((ExpressionVariable) var).getExpression(), names);
+        }
+      }
+
+      if (exp instanceof AbstractExpression) {
+        ExpressionAttributes attr = ((AbstractExpression) exp).getExpressionAttr();
+        addCondition(attr.getFilter(), names);
+        addTokens(attr.getValue(), names);
+        boolean deterministic = addTokens(attr.getValueOf(), names);
+        cacheable &= deterministic || !(exp instanceof JEXLExpression);
+        cacheable &= !(exp instanceof ResourceIdExpression);
+        ImmutablePair<String, String> fetch = attr.getFetch();
+        if (fetch != null) {
+          addTokens(fetch.getLeft(), names);
+        }
+      }
+
+      if (exp instanceof ResourceExpression) {
+        cacheable &= collect(((ResourceExpression) exp).getData(), names, visited);
+      } else if (exp instanceof ReferenceExpression) {
+        cacheable &= collect(((ReferenceExpression) exp).getData(), names, visited);
+        cacheable &= collect(((ReferenceExpression) exp).getReferenceModel(), names, visited);
+      }
+    }
+    return cacheable;
+  }
+
+
+  private static void addCondition(Condition condition, Set<String> names) {
+    if (condition instanceof CompountAndCondition) {
+      ((CompountAndCondition) condition).getConditions().forEach(c -> addCondition(c, names));
+    } else if (condition instanceof CompountORCondition) {
+      ((CompountORCondition) condition).getConditions().forEach(c -> addCondition(c, names));
+    } else if (condition instanceof CheckNotNull) {
+      addTokens(((CheckNotNull) condition).getVar1(), names);
+    } else if (condition instanceof CheckNull) {
+      addTokens(((CheckNull) condition).getVar1(), names);
+    } else if (condition instanceof SimpleBiCondition) {
+      addTokens(((SimpleBiCondition) condition).getVar1(), names);
+      Object var2 = ((SimpleBiCondition) condition).getVar2();
+      if (var2 instanceof String) {
+        addTokens((String) var2, names);
+      }
+    }
+  }
+
+
+  /**
+   * Adds the tokens of the text and returns false if the text generates a random identifier.
+   */
+  private static boolean addTokens(String text, Set<String> names) {
+    if (StringUtils.isBlank(text)) {
+      return true;
+    }
+    boolean deterministic = true;
+    for (String token : TOKEN_SEPARATOR.split(text)) {
+      if (StringUtils.isNotEmpty(token)) {
+        String name = StringUtils.upperCase(token);
+        names.add(name);
+        deterministic = deterministic && !RANDOM_ID_TOKEN.equals(name);
+      }
+    }
+    return deterministic;
+  }
+
+
+  /**
+   * Context values a template can read and whether its results can be cached.
+   */
+  static final class ContextReferences {
+    private final boolean cacheable;
+    private final Set<String> names;
+
+    private ContextReferences(boolean cacheable, Set<String> names) {
+      this.cacheable = cacheable;
+      this.names = names;
+    }
+
+    boolean isCacheable() {
+      return cacheable;
+    }
+
+    Set<String> getNames() {
+      return names;
+    }
+
+    /**
+     * Returns the values of the referenced context entries, ordered by name.
+     */
+    private List<Object> bind(Map<String, EvaluationResult> contextValues) {
+      Map<String, Object> bound = new TreeMap<>();
+      for (Entry<String, EvaluationResult> e : contextValues.entrySet()) {
+        if (names.contains(StringUtils.upperCase(e.getKey()))) {
+          bound.put(e.getKey(), getValue(e.getValue()));
+        }
+      }
+      List<Object> values = new ArrayList<>(bound.size() * 2);
+      bound.forEach((k, v) -> {
+        values.add(k);
+        values.add(v);
+      });
+      return values;
+    }
+  }
+
+
+  private static final class Key {
+    private final HL7DataBasedResourceModel model;
+    private final Object baseValue;
+    private final List<Object> bindings;
+    private final int hash;
+
+    Key(HL7DataBasedResourceModel model, Object baseValue, List<Object> bindings) {
+      this.model = model;
+      this.baseValue = baseValue;
+      this.bindings = bindings;
+      int h = System.identityHashCode(model);
+      h = 31 * h + hashOf(baseValue);
+      for (Object o : bindings) {
+        h = 31 * h + hashOf(o);
+      }
+      this.hash = h;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      if (model != other.model || !same(baseValue, other.baseValue)
+          || bindings.size() != other.bindings.size()) {
+        return false;
+      }
+      for (int i = 0; i < bindings.size(); i++) {
+        if (!same(bindings.get(i), other.bindings.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isValue(Object o) {
+      return o instanceof String || o instanceof Number || o instanceof Boolean
+          || o instanceof Character || o instanceof Enum;
+    }
+
+    private static int hashOf(Object o) {
+      if (o == null) {
+        return 0;
+      }
+      return isValue(o) ? o.hashCode() : System.identityHashCode(o);
+    }
+
+    // HAPI structures and generated resources do not define equals, identity identifies them
+    private static boolean same(Object a, Object b) {
+      if (a == b) {
+        return true;
+      }
+      return isValue(a) && isValue(b) && a.equals(b);
+    }
+  }
+
+}
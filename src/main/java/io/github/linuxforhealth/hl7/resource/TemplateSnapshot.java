@@ -0,0 +1,176 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import io.github.linuxforhealth.core.ObjectMapperUtil;
+import io.github.linuxforhealth.core.config.ConverterConfiguration;
+
+/**
+ * Precompiled snapshot of the template files used by the converter. Each entry stores the parsed
+ * template tree together with the SHA-256 hash of the template source it was produced from. At
+ * runtime an entry is only used when the hash of the current template source matches, so edited
+ * templates are always re-parsed from YAML.
+ *
+ * <p>
+ * The snapshot is written by running {@link #main(String[])} (see the gradle task
+ * <code>templateSnapshot</code>) and picked up at runtime through the configuration property
+ * <code>template.snapshot.file</code>.
+ *
+ */
+public class TemplateSnapshot {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TemplateSnapshot.class);
+
+  private static final int MAGIC = 0x484C3746; // "HL7F"
+  private static final int VERSION = 1;
+
+  private static final ObjectMapper JSON = ObjectMapperUtil.getJSONInstance();
+
+  private final Map<String, Entry> entries;
+
+  TemplateSnapshot(Map<String, Entry> entries) {
+    this.entries = Collections.unmodifiableMap(new TreeMap<>(entries));
+  }
+
+  /**
+   * Returns the template tree stored for the path, if the snapshot entry was built from the exact
+   * same template source.
+   *
+   * @param path - template path
+   * @param sourceHash - hash of the current template source
+   * @return parsed template tree or null if the entry is missing or stale
+   */
+  public JsonNode getTree(String path, String sourceHash) {
+    Entry e = entries.get(path);
+    if (e != null && e.hash.equals(sourceHash)) {
+      return e.tree;
+    }
+    return null;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Hash used for validating the snapshot entries against the template sources.
+   *
+   * @param templateContent - template source
+   * @return hex encoded SHA-256 hash
+   */
+  public static String hash(String templateContent) {
+    return Hashing.sha256().hashString(templateContent, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * Loads a snapshot from the file.
+   *
+   * @param file - snapshot file
+   * @return snapshot or null if the file does not exist or cannot be read
+   */
+  public static TemplateSnapshot load(File file) {
+    if (file == null || !file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        LOGGER.warn("Ignoring template snapshot {} with unsupported format", file);
+        return null;
+      }
+      int count = in.readInt();
+      Map<String, Entry> entries = new TreeMap<>();
+      for (int i = 0; i < count; i++) {
+        String path = in.readUTF();
+        String hash = in.readUTF();
+        byte[] tree = new byte[in.readInt()];
+        in.readFully(tree);
+        entries.put(path, new Entry(hash, JSON.readTree(tree)));
+      }
+      LOGGER.info("Loaded template snapshot {} with {} entries", file, count);
+      return new TemplateSnapshot(entries);
+    } catch (IOException e) {
+      LOGGER.warn("Ignoring unreadable template snapshot {}", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the snapshot to the file.
+   *
+   * @param file - snapshot file
+   * @throws IOException if the file cannot be written
+   */
+  public void write(File file) throws IOException {
+    Preconditions.checkArgument(file != null, "Snapshot file cannot be null");
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IOException("Cannot create folder " + parent);
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, Entry> e : entries.entrySet()) {
+        byte[] tree = JSON.writeValueAsBytes(e.getValue().tree);
+        out.writeUTF(e.getKey());
+        out.writeUTF(e.getValue().hash);
+        out.writeInt(tree.length);
+        out.write(tree);
+      }
+    }
+  }
+
+  /**
+   * Build step: loads all supported message templates and the templates they reference and writes
+   * the snapshot to the file passed as first argument (or to <code>template.snapshot.file</code>).
+   *
+   * @param args - optional output file
+   * @throws IOException if templates or the snapshot file cannot be processed
+   */
+  public static void main(String[] args) throws IOException {
+    String target =
+        args.length > 0 ? args[0] : ConverterConfiguration.getInstance().getTemplateSnapshotFile();
+    Preconditions.checkArgument(target != null && !target.isEmpty(),
+        "Snapshot file must be passed as argument or configured using template.snapshot.file");
+    // read the templates from their sources, not from a previous snapshot
+    ResourceReader reader = new ResourceReader(null);
+    reader.getMessageTemplates();
+    TemplateSnapshot snapshot = reader.createSnapshot();
+    snapshot.write(new File(target));
+    LOGGER.info("Template snapshot with {} entries written to {}", snapshot.size(), target);
+  }
+
+
+  static class Entry {
+    private final String hash;
+    private final JsonNode tree;
+
+    Entry(String hash, JsonNode tree) {
+      this.hash = hash;
+      this.tree = tree;
+    }
+  }
+}
@@ -8,6 +8,7 @@ package io.github.linuxforhealth.hl7.resource.deserializer;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -23,6 +24,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.github.linuxforhealth.api.Expression;
 import io.github.linuxforhealth.core.ObjectMapperUtil;
 import io.github.linuxforhealth.hl7.expression.ExpressionAttributes;
+import io.github.linuxforhealth.hl7.expression.ExpressionType;
 import io.github.linuxforhealth.hl7.resource.HL7DataBasedResourceModel;
 
 
@@ -36,6 +38,19 @@ public class HL7DataBasedResourceDeserializer extends JsonDeserializer<HL7DataBa
   private static final Logger LOGGER =
       LoggerFactory.getLogger(HL7DataBasedResourceDeserializer.class);
 
+  // expression constructors resolved once per expression type instead of per template entry
+  private static final Map<ExpressionType, Constructor<?>> CONSTRUCTORS =
+      new EnumMap<>(ExpressionType.class);
+
+  static {
+    for (ExpressionType type : ExpressionType.values()) {
+      try {
+        CONSTRUCTORS.put(type, type.getEvaluator().getConstructor(ExpressionAttributes.class));
+      } catch (NoSuchMethodException | SecurityException e) {
+        LOGGER.error("No constructor for expression type {}", type, e);
+      }
+    }
+  }
 
 
   @Override
@@ -66,8 +81,11 @@ public class HL7DataBasedResourceDeserializer extends JsonDeserializer<HL7DataBa
       if (expAttr != null && expAttr.getExpressionType() != null) {
 
         try {
-          Constructor<?> ctor =
-              expAttr.getExpressionType().getEvaluator().getConstructor(ExpressionAttributes.class);
+          Constructor<?> ctor = CONSTRUCTORS.get(expAttr.getExpressionType());
+          if (ctor == null) {
+            throw new NoSuchMethodException(
+                "No constructor for expression type " + expAttr.getExpressionType());
+          }
           e = (Expression) ctor.newInstance(expAttr);
 
         } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
@@ -6,36 +6,69 @@
 package io.github.linuxforhealth;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.r4.model.Bundle.BundleType;
+import org.hl7.fhir.r4.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.ResourceType;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import ca.uhn.hl7v2.HL7Exception;
 import io.github.linuxforhealth.core.Constants;
+import io.github.linuxforhealth.core.config.ConverterConfiguration;
+import io.github.linuxforhealth.core.exception.ConversionTimeoutException;
+import io.github.linuxforhealth.core.id.StandardIdGenerator;
 import io.github.linuxforhealth.fhir.FHIRContext;
 import io.github.linuxforhealth.hl7.ConverterOptions;
 import io.github.linuxforhealth.hl7.ConverterOptions.Builder;
 import io.github.linuxforhealth.hl7.HL7ToFHIRConverter;
+import io.github.linuxforhealth.hl7.parsing.HL7HapiParser;
+import io.github.linuxforhealth.hl7.resource.ResourceReader;
 
 public class FHIRConverterTest {
   private static final String HL7_FILE_UNIX_NEWLINE = "src/test/resources/sample_unix.hl7";
   private static final String HL7_FILE_WIN_NEWLINE = "src/test/resources/sample_win.hl7";
   private static final String HL7_FILE_WIN_NEWLINE_BATCH =
       "src/test/resources/sample_win_batch.hl7";
+  private static final String ORU_MESSAGE =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ORU^R01|102|T|2.6|||AL|NE\r"
+          + "PID|0010||PID1234^5^M11^A^MR^HOSP||DOE^JOHN^A^||19800202|F\r"
+          + "PV1|1|ff|yyy|EL|ABC\r" + "ORC|NW|1000^OE|9999999^RX\r"
+          + "OBR|1||||||20120912011230\r" + "OBX|1|ST|1234^first^LN||ECHO||||||F\r"
+          + "NTE|1||comment\r" + "OBX|2|ST|5678^second^LN||ECHO||||||F\r";
   private static final ConverterOptions OPTIONS =
       new Builder().withValidateResource().withPrettyPrint().build();
 
   @Rule
   public ExpectedException exceptionRule = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
 
 
   @Test
@@ -103,6 +136,227 @@ public class FHIRConverterTest {
 
   }
 
+  @Test
+  public void convert_after_template_reload() throws IOException {
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+    verifyResult(ftv.convert(new File(HL7_FILE_UNIX_NEWLINE)), BundleType.COLLECTION);
+    ftv.reload();
+    verifyResult(ftv.convert(new File(HL7_FILE_UNIX_NEWLINE)), BundleType.COLLECTION);
+  }
+
+
+  @Test
+  public void conversion_in_progress_completes_with_the_templates_it_started_with()
+      throws IOException {
+    String hl7message = "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A01|102|T|2.6\r"
+        + "EVN||201209122222\r" + "PID|0010||PID1234^5^M11^A^MR^HOSP||DOE^JOHN^A^||19800202|F\r";
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+
+    File resources = folder.newFolder("resources");
+    Properties prop = new Properties();
+    prop.put("base.path.resource", resources.getAbsolutePath());
+    prop.put("supported.hl7.messages", "ADT_A01, ORU_R01, PPR_PC1, VXU_V04");
+    prop.put("default.zoneid", "+08:00");
+    try (FileOutputStream out = new FileOutputStream(folder.newFile("config.properties"))) {
+      prop.store(out, null);
+    }
+    // the new version of the mapping maps F to other
+    String mapping = IOUtils.resourceToString(
+        "/" + Constants.HL7_BASE_PATH + Constants.V2_TO_FHIR_MAPPING_PATH, StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(
+        new File(resources, Constants.HL7_BASE_PATH + Constants.V2_TO_FHIR_MAPPING_PATH),
+        mapping.replace("F: female", "F: other"), StandardCharsets.UTF_8);
+    System.setProperty("config.home", folder.getRoot().getAbsolutePath());
+    ConverterConfiguration.reset();
+    try {
+      AtomicBoolean reloaded = new AtomicBoolean();
+      // reloads while the first resource of the message is converted
+      ConverterOptions reloading = new Builder().withIdGenerator((key, sequence) -> {
+        if (reloaded.compareAndSet(false, true)) {
+          ftv.reload();
+        }
+        return StandardIdGenerator.SECURE_RANDOM.generateId(key, sequence);
+      }).build();
+
+      String inProgress = ftv.convert(hl7message, reloading);
+      String next = ftv.convert(hl7message, ConverterOptions.SIMPLE_OPTIONS);
+
+      assertThat(reloaded.get()).isTrue();
+      assertThat(getPatient(inProgress).getGender()).isEqualTo(AdministrativeGender.FEMALE);
+      assertThat(getPatient(next).getGender()).isEqualTo(AdministrativeGender.OTHER);
+    } finally {
+      System.clearProperty("config.home");
+      ConverterConfiguration.reset();
+    }
+  }
+
+
+  private static Patient getPatient(String json) {
+    Bundle b = (Bundle) new FHIRContext().getParser().parseResource(json);
+    return b.getEntry().stream().map(BundleEntryComponent::getResource)
+        .filter(r -> r.getResourceType() == ResourceType.Patient).map(r -> (Patient) r)
+        .findFirst().orElseThrow(() -> new AssertionError("No patient in bundle"));
+  }
+
+
+  @Test
+  public void convert_skipping_unreferenced_segments() throws IOException {
+    ConverterOptions options = new Builder().withSkipUnreferencedSegments().build();
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+    verifyResult(ftv.convert(new File(HL7_FILE_UNIX_NEWLINE), options), BundleType.COLLECTION);
+  }
+
+
+  @Test
+  public void convert_skipping_unreferenced_segments_does_not_change_the_bundle()
+      throws IOException {
+    String adt =
+        FileUtils.readFileToString(new File(HL7_FILE_UNIX_NEWLINE), StandardCharsets.UTF_8);
+    // Z segment, guarantor and insurance segments the ADT_A01 template does not read
+    List<String> segments = new ArrayList<>(Arrays.asList(adt.trim().split("\\r?\\n|\\r")));
+    assertThat(segments.get(2)).startsWith("PID|");
+    segments.add(3, "ZPI|custom|data");
+    segments.addAll(Arrays.asList("GT1|1||DOE^JANE", "IN1|1|PLAN01", "IN2|1"));
+    String adtWithUnreferenced = String.join("\r", segments);
+    assertThat(ResourceReader.getInstance().getMessageTemplates().get("ADT_A01")
+        .filterUnreferencedSegments(adtWithUnreferenced).getUnparsedSegments())
+            .contains("ZPI|custom|data", "GT1|1||DOE^JANE", "IN1|1|PLAN01", "IN2|1");
+
+    // name based ids are the same for both conversions if the same resources are created
+    ConverterOptions options =
+        new Builder().withIdGenerator(StandardIdGenerator.NAME_BASED).build();
+    ConverterOptions skipping = new Builder().withIdGenerator(StandardIdGenerator.NAME_BASED)
+        .withSkipUnreferencedSegments().build();
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+    for (String message : Arrays.asList(adt, adtWithUnreferenced, ORU_MESSAGE)) {
+      assertThat(withoutMeta(ftv.convert(message, skipping)))
+          .isEqualTo(withoutMeta(ftv.convert(message, options)));
+    }
+  }
+
+
+  private static String withoutMeta(String json) {
+    FHIRContext context = new FHIRContext();
+    Bundle b = (Bundle) context.getParser().parseResource(json);
+    b.setMeta(null);
+    return context.encodeResourceToString(b);
+  }
+
+
+  @Test
+  public void convert_with_name_based_ids_is_repeatable() throws IOException {
+    ConverterOptions options =
+        new Builder().withIdGenerator(StandardIdGenerator.NAME_BASED).build();
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+    String first = ftv.convert(new File(HL7_FILE_UNIX_NEWLINE), options);
+    String second = ftv.convert(new File(HL7_FILE_UNIX_NEWLINE), options);
+    verifyResult(first, BundleType.COLLECTION);
+
+    assertThat(getIds(second)).isEqualTo(getIds(first)).doesNotHaveDuplicates();
+  }
+
+
+  @Test
+  public void convert_past_timeout_fails_with_stage() throws IOException {
+    ConverterOptions options = new Builder().withTimeout(Duration.ofNanos(1)).build();
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+
+    assertThatThrownBy(() -> ftv.convert(new File(HL7_FILE_UNIX_NEWLINE), options))
+        .isInstanceOf(ConversionTimeoutException.class)
+        .satisfies(e -> assertThat(((ConversionTimeoutException) e).getStage())
+            .startsWith("resource "));
+  }
+
+
+  @Test
+  public void convert_past_timeout_returns_partial_result() throws IOException {
+    ConverterOptions options = new Builder().withTimeout(Duration.ofNanos(1))
+        .withPartialResultOnTimeout().build();
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+    String json = ftv.convert(new File(HL7_FILE_UNIX_NEWLINE), options);
+
+    Bundle b = (Bundle) new FHIRContext().getParser().parseResource(json);
+    assertThat(b.getId()).isNotNull();
+    assertThat(b.getEntry()).isEmpty();
+
+    // a timeout long enough for the conversion does not change the result
+    options = new Builder().withTimeout(Duration.ofMinutes(5)).build();
+    verifyResult(ftv.convert(new File(HL7_FILE_UNIX_NEWLINE), options), BundleType.COLLECTION);
+  }
+
+
+  @Test
+  public void convert_async_with_pipelined_stages() throws Exception {
+    ExecutorService parse = Executors.newSingleThreadExecutor();
+    ExecutorService evaluate = Executors.newFixedThreadPool(2);
+    ExecutorService serialize = Executors.newSingleThreadExecutor();
+    try {
+      HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+      String message = FileUtils.readFileToString(new File(HL7_FILE_UNIX_NEWLINE),
+          StandardCharsets.UTF_8);
+      List<CompletableFuture<String>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        results.add(ftv.convertAsync(message, OPTIONS, parse, evaluate, serialize));
+      }
+      for (CompletableFuture<String> result : results) {
+        verifyResult(result.get(30, TimeUnit.SECONDS), BundleType.COLLECTION);
+      }
+
+      Bundle bundle = ftv.convertToBundleAsync(message, OPTIONS, evaluate).get(30,
+          TimeUnit.SECONDS);
+      assertThat(bundle.getEntry()).isNotEmpty();
+
+      CompletableFuture<Bundle> unsupported = ftv.convertToBundleAsync(
+          "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ACK|102|T|2.6|||AL|NE\rMSA|AA|101",
+          OPTIONS, evaluate);
+      assertThatThrownBy(() -> unsupported.get(30, TimeUnit.SECONDS))
+          .isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(UnsupportedOperationException.class);
+    } finally {
+      parse.shutdown();
+      evaluate.shutdown();
+      serialize.shutdown();
+    }
+  }
+
+
+  private static List<String> getIds(String json) {
+    FHIRContext context = new FHIRContext();
+    Bundle b = (Bundle) context.getParser().parseResource(json);
+    List<String> ids = b.getEntry().stream()
+        .map(e -> e.getResource().getIdElement().getIdPart()).collect(Collectors.toList());
+    ids.add(b.getIdElement().getIdPart());
+    return ids;
+  }
+
+
+  @Test
+  public void convert_xml_encoded_message() throws IOException, HL7Exception {
+    String hl7message =
+        "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A01|102|T|2.6|||AL|NE|764|ASCII\r"
+            + "EVN||201209122222\r"
+            + "PID|0010||PID1234^5^M11^A^MR^HOSP~1234568965^^^USA^SS||DOE^JOHN^A^||19800202|F||W|111 TEST_STREET_NAME^^TEST_CITY^NY^111-1111^USA||(905)111-1111|||S|ZZ|12^^^124|34-13-312||||TEST_BIRTH_PLACE\r"
+            + "PV1|1|ff|yyy|EL|ABC||200^ATTEND_DOC_FAMILY_TEST^ATTEND_DOC_GIVEN_TEST|201^REFER_DOC_FAMILY_TEST^REFER_DOC_GIVEN_TEST|202^CONSULTING_DOC_FAMILY_TEST^CONSULTING_DOC_GIVEN_TEST|MED|||||B6|E|272^ADMITTING_DOC_FAMILY_TEST^ADMITTING_DOC_GIVEN_TEST||48390|||||||||||||||||||||||||201409122200|20150206031726\r"
+            + "AL1|1|DRUG|00000741^OXYCODONE||HYPOTENSION\r";
+    HL7HapiParser hparser = new HL7HapiParser();
+    String xml;
+    try {
+      xml = hparser.getContext().getXMLParser().encode(hparser.getParser().parse(hl7message));
+    } finally {
+      hparser.getContext().close();
+    }
+
+    // name based ids are the same for both encodings if the same resources are created
+    ConverterOptions options =
+        new Builder().withIdGenerator(StandardIdGenerator.NAME_BASED).build();
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+    String json = ftv.convert(xml, options);
+    // patient, encounter, allergy, two organizations and the bundle
+    assertThat(getIds(json)).hasSize(6);
+    assertThat(withoutMeta(json)).isEqualTo(withoutMeta(ftv.convert(hl7message, options)));
+  }
+
+
   @Test
   public void test_valid_message_but_unsupported_message_throws_exception() throws IOException {
     String hl7message = "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A02|102|T|2.6|||AL|NE\r"
@@ -122,6 +376,20 @@ public class FHIRConverterTest {
 
 
 
+  @Test
+  public void test_unsupported_message_passed_to_handler() throws IOException {
+    String hl7message = "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ACK|102|T|2.6|||AL|NE\r"
+        + "MSA|AA|101";
+
+    ConverterOptions options = new Builder()
+        .withUnsupportedMessageHandler((type, data) -> "unsupported " + type).build();
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+    assertThat(ftv.convert(hl7message, options)).isEqualTo("unsupported ACK");
+
+  }
+
+
+
   @Test
   public void test_invalid_message_throws_error() throws IOException {
     String hl7message = "some text";
@@ -0,0 +1,96 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import com.google.common.base.Preconditions;
+
+/**
+ * Minimal harness for the benchmarks in this package. The benchmarks are not part of the test
+ * suite, they are run with <code>./gradlew benchmark -Pbenchmark=&lt;class name&gt;</code>.
+ *
+ * An operation is run for the warm up rounds first, then timed for each measured round. The time
+ * reported is the median of the measured rounds, the allocated bytes are the average of the
+ * measured rounds on the calling thread (when the JVM supports measuring them).
+ *
+ */
+final class Benchmark {
+
+  private Benchmark() {}
+
+
+  static Result run(String name, int warmups, int rounds, Callable<?> operation)
+      throws Exception {
+    Preconditions.checkArgument(rounds > 0, "rounds must be positive");
+    Object result = null;
+    for (int i = 0; i < warmups; i++) {
+      result = operation.call();
+    }
+    com.sun.management.ThreadMXBean threadBean = getThreadBean();
+    long threadId = Thread.currentThread().getId();
+    long[] nanos = new long[rounds];
+    long allocated = 0;
+    for (int i = 0; i < rounds; i++) {
+      long bytes = threadBean != null ? threadBean.getThreadAllocatedBytes(threadId) : 0;
+      long start = System.nanoTime();
+      result = operation.call();
+      nanos[i] = System.nanoTime() - start;
+      if (threadBean != null) {
+        allocated += threadBean.getThreadAllocatedBytes(threadId) - bytes;
+      }
+    }
+    Preconditions.checkState(result != null, "%s did not return a result", name);
+    Arrays.sort(nanos);
+    Result r = new Result(name, nanos[rounds / 2], threadBean != null ? allocated / rounds : -1);
+    System.out.println(r);
+    return r;
+  }
+
+
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+      threadBean.setThreadAllocatedMemoryEnabled(true);
+      return threadBean;
+    }
+    return null;
+  }
+
+
+  static class Result {
+    private final String name;
+    private final long medianNanos;
+    private final long allocatedBytes;
+
+    Result(String name, long medianNanos, long allocatedBytes) {
+      this.name = name;
+      this.medianNanos = medianNanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+
+    long getMedianNanos() {
+      return medianNanos;
+    }
+
+    long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-40s %10.3f ms %14s bytes", name,
+          medianNanos / (double) TimeUnit.MILLISECONDS.toNanos(1),
+          allocatedBytes >= 0 ? String.format("%,d", allocatedBytes) : "n/a");
+    }
+  }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.benchmark;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import io.github.linuxforhealth.hl7.HL7ToFHIRConverter;
+
+/**
+ * Measures the time and the bytes allocated per conversion of HL7 messages with the default
+ * options, on a single thread.
+ *
+ * Arguments: HL7 message files (default src/test/resources/sample_unix.hl7).
+ */
+public class ConversionBenchmark {
+
+  private static final String HL7_FILE = "src/test/resources/sample_unix.hl7";
+  private static final int WARMUPS = 200;
+  private static final int ROUNDS = 500;
+
+
+  public static void main(String[] args) throws Exception {
+    String[] files = args.length > 0 ? args : new String[] {HL7_FILE};
+    HL7ToFHIRConverter converter = new HL7ToFHIRConverter();
+    for (String file : files) {
+      String message = FileUtils.readFileToString(new File(file), StandardCharsets.UTF_8);
+      Benchmark.run("convert " + new File(file).getName(), WARMUPS, ROUNDS,
+          () -> converter.convert(message));
+    }
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import com.google.common.base.Preconditions;
+import io.github.linuxforhealth.hl7.resource.ResourceReader;
+import io.github.linuxforhealth.hl7.resource.TemplateSnapshot;
+
+/**
+ * Compares loading the message templates at startup from the YAML sources against loading them
+ * with a template snapshot (template.snapshot.file). Every load runs in a new JVM, so the time
+ * includes class loading and the JIT warming up, as it does when a converter starts. The time is
+ * measured from creating the {@link ResourceReader}, which loads the snapshot, till all the
+ * supported message templates are compiled. Each JVM then reports the median of a few further
+ * loads with a new reader, once the JVM is warm.
+ *
+ * Arguments: number of JVMs started per mode (default 10).
+ */
+public class TemplateLoadingBenchmark {
+
+  private static final String CHILD = "--child";
+  private static final int WARM_LOADS = 20;
+
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && CHILD.equals(args[0])) {
+      load();
+      return;
+    }
+    int jvms = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    File dir = Files.createTempDirectory("template-benchmark").toFile();
+    try {
+      File snapshotFile = new File(dir, "templates.bin");
+      TemplateSnapshot.main(new String[] {snapshotFile.getPath()});
+      File yamlConfig = config(new File(dir, "yaml"), "");
+      File snapshotConfig = config(new File(dir, "snapshot"), snapshotFile.getPath());
+      System.out.println(String.format("Snapshot of %,d bytes, %d JVMs per mode",
+          snapshotFile.length(), jvms));
+      report("YAML templates", yamlConfig, jvms);
+      report("template snapshot", snapshotConfig, jvms);
+    } finally {
+      FileUtils.deleteDirectory(dir);
+    }
+  }
+
+
+  private static void load() throws IOException {
+    long start = System.nanoTime();
+    new ResourceReader().getMessageTemplates();
+    long cold = System.nanoTime() - start;
+    long[] warm = new long[WARM_LOADS];
+    for (int i = 0; i < WARM_LOADS; i++) {
+      start = System.nanoTime();
+      new ResourceReader().getMessageTemplates();
+      warm[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(warm);
+    System.out.println(cold + " " + warm[WARM_LOADS / 2]);
+  }
+
+
+  private static File config(File dir, String snapshotFile) throws IOException {
+    FileUtils.write(new File(dir, "config.properties"),
+        "base.path.resource=\n" + "supported.hl7.messages=ADT_A01, ORU_R01, PPR_PC1, VXU_V04\n"
+            + "default.zoneid=+08:00\n" + "template.snapshot.file=" + snapshotFile + "\n",
+        StandardCharsets.UTF_8);
+    return dir;
+  }
+
+
+  private static void report(String name, File configHome, int jvms) throws Exception {
+    long[] cold = new long[jvms];
+    long[] warm = new long[jvms];
+    for (int i = 0; i < jvms; i++) {
+      long[] times = runChild(configHome);
+      cold[i] = times[0];
+      warm[i] = times[1];
+    }
+    Arrays.sort(cold);
+    Arrays.sort(warm);
+    System.out.println(String.format("%-40s cold %10.3f ms   warm %10.3f ms", name,
+        cold[jvms / 2] / (double) TimeUnit.MILLISECONDS.toNanos(1),
+        warm[jvms / 2] / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+  }
+
+
+  private static long[] runChild(File configHome) throws Exception {
+    List<String> command = new ArrayList<>();
+    command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+    command.add("-Dconfig.home=" + configHome.getPath());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(TemplateLoadingBenchmark.class.getName());
+    command.add(CHILD);
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    String last = null;
+    try (BufferedReader out = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = out.readLine()) != null) {
+        last = line;
+      }
+    }
+    Preconditions.checkState(process.waitFor() == 0 && last != null, "Load failed: %s", last);
+    String[] times = last.trim().split(" ");
+    return new long[] {Long.parseLong(times[0]), Long.parseLong(times[1])};
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.benchmark;
+
+import com.google.common.base.Preconditions;
+import ca.uhn.hl7v2.model.Message;
+import io.github.linuxforhealth.hl7.parsing.HL7HapiParser;
+import io.github.linuxforhealth.hl7.parsing.XmlMessageReader;
+
+/**
+ * Compares parsing XML encoded ORU messages with HAPI's DOM based XML parser against streaming
+ * them into ER7 with {@link XmlMessageReader} and parsing the ER7.
+ *
+ * Arguments: number of OBX segments per message (default 100 1000 5000).
+ */
+public class XmlParsingBenchmark {
+
+  private static final String ORU_HEADER =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ORU^R01|102|T|2.6|||AL|NE|764|ASCII\r"
+          + "PID|1||PID1234^5^M11^A^MR^HOSP~1234568965^^^USA^SS||DOE^JOHN^A||19800202|F\r"
+          + "PV1|1|I|yyy|EL|ABC||200^ATTEND_DOC_FAMILY_TEST^ATTEND_DOC_GIVEN_TEST\r"
+          + "OBR|1||CD_000000|2244^General Order|||20170825010500||||||||||||||||||F\r";
+  private static final int WARMUPS = 10;
+  private static final int ROUNDS = 20;
+
+
+  public static void main(String[] args) throws Exception {
+    String[] sizes = args.length > 0 ? args : new String[] {"100", "1000", "5000"};
+    HL7HapiParser hparser = new HL7HapiParser();
+    try {
+      for (String size : sizes) {
+        int observations = Integer.parseInt(size);
+        String xml = hparser.getContext().getXMLParser()
+            .encode(hparser.getParser().parse(oru(observations)));
+        // both paths must produce the same message before their times are compared
+        Message fromDom = hparser.getContext().getXMLParser().parse(xml);
+        Message fromStax = hparser.getParser().parse(XmlMessageReader.toER7(xml));
+        Preconditions.checkState(hparser.getContext().getPipeParser().encode(fromDom)
+            .equals(hparser.getContext().getPipeParser().encode(fromStax)));
+
+        System.out.println(String.format("ORU_R01 with %d OBX, %,d characters of XML",
+            observations, xml.length()));
+        Benchmark.run("DOM parse", WARMUPS, ROUNDS,
+            () -> hparser.getContext().getXMLParser().parse(xml));
+        Benchmark.run("StAX to ER7 and pipe parse", WARMUPS, ROUNDS,
+            () -> hparser.getParser().parse(XmlMessageReader.toER7(xml)));
+        Benchmark.run("StAX to ER7 only", WARMUPS, ROUNDS, () -> XmlMessageReader.toER7(xml));
+      }
+    } finally {
+      hparser.getContext().close();
+    }
+  }
+
+
+  private static String oru(int observations) {
+    StringBuilder sb = new StringBuilder(ORU_HEADER);
+    for (int i = 1; i <= observations; i++) {
+      sb.append("OBX|").append(i).append("|NM|8867-4^Heart rate^LN||").append(60 + i % 40)
+          .append("|/min^beats/min|||||F|||20170825010500\r");
+    }
+    return sb.toString();
+  }
+
+}
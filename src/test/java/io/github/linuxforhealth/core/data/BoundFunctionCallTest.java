@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.data;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import com.google.common.collect.ImmutableMap;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.core.exception.DataExtractionException;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+import io.github.linuxforhealth.hl7.data.Hl7RelatedGeneralUtils;
+
+public class BoundFunctionCallTest {
+
+  private static final Map<String, Object> FUNCTIONS = ImmutableMap.of("GeneralUtils",
+      Hl7RelatedGeneralUtils.class, "StringUtils", StringUtils.class, "TestUtils",
+      TestUtils.class);
+
+
+  public static class TestUtils {
+    public static String fail(String value) {
+      throw new IllegalArgumentException("Cannot handle " + value);
+    }
+
+
+    public static String first(String value) {
+      return value.substring(0, 1);
+    }
+  }
+
+
+  @Test
+  public void static_call_is_bound_and_matches_jexl() {
+    String exp = "GeneralUtils.generateName( prefix, given,family, suffix)";
+    BoundFunctionCall call = BoundFunctionCall.bind(exp, FUNCTIONS);
+    assertThat(call).isNotNull();
+
+    Map<String, EvaluationResult> context = new HashMap<>();
+    context.put("prefix", EvaluationResultFactory.getEvaluationResult("Dr"));
+    context.put("given", EvaluationResultFactory.getEvaluationResult("John"));
+    context.put("family", EvaluationResultFactory.getEvaluationResult("Doe"));
+    context.put("suffix", EvaluationResultFactory.getEvaluationResult(null));
+
+    Map<String, Object> jexlContext = new HashMap<>();
+    context.forEach((k, v) -> jexlContext.put(k, v.getValue()));
+    Object expected = new JexlEngineUtil("GeneralUtils", Hl7RelatedGeneralUtils.class)
+        .evaluate(exp, jexlContext);
+
+    assertThat((Object) call.invoke(context).getValue()).isEqualTo("Dr John Doe")
+        .isEqualTo(expected);
+  }
+
+
+  @Test
+  public void literal_arguments_are_bound() {
+    BoundFunctionCall call = BoundFunctionCall.bind("GeneralUtils.split(var, ',', 1)", FUNCTIONS);
+    assertThat(call).isNotNull();
+
+    EvaluationResult result =
+        call.invoke(ImmutableMap.of("var", EvaluationResultFactory.getEvaluationResult("a,b,c")));
+    assertThat((Object) result.getValue()).isEqualTo("b");
+  }
+
+
+  @Test
+  public void complex_and_overloaded_expressions_are_not_bound() {
+    assertThat(BoundFunctionCall.bind("StringUtils.trim(var)", FUNCTIONS)).isNotNull();
+    // varargs method
+    assertThat(BoundFunctionCall.bind("StringUtils.join(var)", FUNCTIONS)).isNull();
+    assertThat(BoundFunctionCall.bind("GeneralUtils.extractLow(var) + 1", FUNCTIONS)).isNull();
+    assertThat(BoundFunctionCall.bind("GeneralUtils.extractLow(var.value)", FUNCTIONS)).isNull();
+    assertThat(BoundFunctionCall.bind("GeneralUtils.unknown(var)", FUNCTIONS)).isNull();
+    assertThat(BoundFunctionCall.bind("System.exit(1)", FUNCTIONS)).isNull();
+    assertThat(BoundFunctionCall.bind("GeneralUtils.split(var, ';', 1)", FUNCTIONS)).isNull();
+  }
+
+
+  @Test
+  public void calls_that_cannot_be_invoked_are_left_to_jexl() {
+    BoundFunctionCall call = BoundFunctionCall.bind("GeneralUtils.split(var, ',', 1)", FUNCTIONS);
+
+    // missing variable
+    assertThat(call.invoke(ImmutableMap.of())).isNull();
+    // context value hiding the function
+    assertThat(call.invoke(ImmutableMap.of("var", EvaluationResultFactory.getEvaluationResult("a"),
+        "GeneralUtils", EvaluationResultFactory.getEvaluationResult("b")))).isNull();
+
+    BoundFunctionCall typed = BoundFunctionCall.bind("GeneralUtils.split(var, sep, 1)", FUNCTIONS);
+    // parameter of type String with an Integer value
+    assertThat(typed.invoke(ImmutableMap.of("var", EvaluationResultFactory.getEvaluationResult("a"),
+        "sep", EvaluationResultFactory.getEvaluationResult(1)))).isNull();
+
+    BoundFunctionCall index = BoundFunctionCall.bind("GeneralUtils.split(var, ',', i)", FUNCTIONS);
+    // primitive parameter with a null value
+    assertThat(index.invoke(ImmutableMap.of("var", EvaluationResultFactory.getEvaluationResult("a"),
+        "i", EvaluationResultFactory.getEvaluationResult(null)))).isNull();
+  }
+
+
+  @Test
+  public void exceptions_thrown_by_the_method_are_not_left_to_jexl() {
+    BoundFunctionCall call = BoundFunctionCall.bind("TestUtils.fail(var)", FUNCTIONS);
+    assertThatThrownBy(
+        () -> call.invoke(ImmutableMap.of("var", EvaluationResultFactory.getEvaluationResult("a"))))
+            .isInstanceOf(DataExtractionException.class)
+            .hasCauseInstanceOf(IllegalArgumentException.class);
+
+    // null argument accepted by the parameter type, the method fails on it
+    BoundFunctionCall first = BoundFunctionCall.bind("TestUtils.first(var)", FUNCTIONS);
+    assertThatThrownBy(() -> first
+        .invoke(ImmutableMap.of("var", EvaluationResultFactory.getEvaluationResult(null))))
+            .isInstanceOf(DataExtractionException.class)
+            .hasCauseInstanceOf(NullPointerException.class);
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.expression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assume;
+import org.junit.Test;
+import com.google.common.collect.ImmutableList;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.api.ResourceValue;
+
+public class EvaluationResultFactoryTest {
+  private static final int RESULTS = 100_000;
+
+  @Test
+  public void empty_result_is_shared() {
+    EvaluationResult empty = EvaluationResultFactory.getEvaluationResult(null);
+    assertThat(empty.isEmpty()).isTrue();
+    assertThat(empty).isSameAs(EvaluationResultFactory.getEmptyEvaluationResult())
+        .isSameAs(EvaluationResultFactory.getEvaluationResult(null, new ArrayList<>()));
+    assertThat(empty.getAdditionalResources()).isEmpty();
+  }
+
+  @Test
+  public void specialized_results_match_simple_result() {
+    assertSameAsSimpleResult("abc", StringEvaluationResult.class);
+    assertSameAsSimpleResult(Boolean.TRUE, BooleanEvaluationResult.class);
+    assertSameAsSimpleResult(42, IntegerEvaluationResult.class);
+    assertSameAsSimpleResult(100_000, IntegerEvaluationResult.class);
+    assertThat(EvaluationResultFactory.getEvaluationResult(7))
+        .isSameAs(EvaluationResultFactory.getEvaluationResult(7));
+    assertThat(EvaluationResultFactory.getEvaluationResult(1.5f))
+        .isInstanceOf(SimpleEvaluationResult.class);
+  }
+
+  @Test
+  public void immutable_resource_lists_are_shared() {
+    List<ResourceValue> resources = ImmutableList.of();
+    SimpleEvaluationResult<String> result = new SimpleEvaluationResult<>("abc", resources);
+    assertThat(result.getAdditionalResources()).isSameAs(resources);
+
+    List<ResourceValue> mutable = new ArrayList<>();
+    mutable.add(null);
+    result = new SimpleEvaluationResult<>("abc", mutable);
+    mutable.clear();
+    assertThat(result.getAdditionalResources()).hasSize(1);
+  }
+
+  @Test
+  public void empty_results_allocate_nothing() {
+    com.sun.management.ThreadMXBean threadBean = getThreadBean();
+    long threadId = Thread.currentThread().getId();
+    // keep the results reachable so that the allocations cannot be optimized away
+    EvaluationResult[] results = new EvaluationResult[RESULTS];
+
+    long start = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < RESULTS; i++) {
+      results[i] = EvaluationResultFactory.getEvaluationResult(null);
+    }
+    long empty = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+    assertThat(empty / RESULTS).isZero();
+  }
+
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+    Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    return threadBean;
+  }
+
+
+  private static void assertSameAsSimpleResult(Object value, Class<?> expectedClass) {
+    EvaluationResult result = EvaluationResultFactory.getEvaluationResult(value);
+    SimpleEvaluationResult<Object> simple = new SimpleEvaluationResult<>(value);
+    assertThat(result).isInstanceOf(expectedClass);
+    assertThat((Object) result.getValue()).isEqualTo(value);
+    assertThat(result.getIdentifier()).isEqualTo(simple.getIdentifier());
+    assertThat(result.getValueType()).isEqualTo(simple.getValueType());
+    assertThat(result.isEmpty()).isFalse();
+    assertThat(result.getAdditionalResources()).isEmpty();
+  }
+
+}
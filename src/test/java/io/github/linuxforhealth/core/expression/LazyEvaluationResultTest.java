@@ -0,0 +1,40 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.expression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class LazyEvaluationResultTest {
+
+  @Test
+  public void value_is_computed_once_on_first_read() {
+    AtomicInteger calls = new AtomicInteger();
+    LazyEvaluationResult result = new LazyEvaluationResult(() -> {
+      calls.incrementAndGet();
+      return EvaluationResultFactory.getEvaluationResult("abc");
+    });
+    assertThat(result.toString()).isNotEmpty();
+    assertThat(calls.get()).isZero();
+    assertThat(result.isResolved()).isFalse();
+
+    assertThat(result.isEmpty()).isFalse();
+    assertThat((String) result.getValue()).isEqualTo("abc");
+    assertThat(result.getIdentifier()).isEqualTo("String");
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(result.isResolved()).isTrue();
+  }
+
+  @Test
+  public void null_is_resolved_to_empty() {
+    LazyEvaluationResult result = new LazyEvaluationResult(() -> null);
+    assertThat(result.isEmpty()).isTrue();
+    assertThat((Object) result.getValue()).isNull();
+    assertThat(result.getAdditionalResources()).isEmpty();
+  }
+
+}
@@ -0,0 +1,23 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.expression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.Test;
+
+public class VariableUtilsTest {
+
+  @Test
+  public void variable_names_are_normalized() {
+    assertThat(VariableUtils.getVarName("$var")).isEqualTo("var");
+    assertThat(VariableUtils.getVarName("$var.field")).isEqualTo("var");
+    assertThat(VariableUtils.getVarName("$var.field.sub")).isEqualTo("var");
+    assertThat(VariableUtils.getVarName("var.field")).isEqualTo("var.field");
+    assertThat(VariableUtils.getVarName("$")).isEqualTo("$");
+    assertThat(VariableUtils.getVarName(null)).isNull();
+  }
+
+}
@@ -6,7 +6,13 @@
 package io.github.linuxforhealth.core.expression.condition;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.Test;
+import io.github.linuxforhealth.api.Condition;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.core.expression.SimpleEvaluationResult;
 import io.github.linuxforhealth.core.expression.condition.CheckNotNull;
 import io.github.linuxforhealth.core.expression.condition.CheckNull;
 import io.github.linuxforhealth.core.expression.condition.CompountAndCondition;
@@ -84,4 +90,57 @@ public class ConditionUtilTest {
   }
 
 
+  @Test
+  public void and_binds_tighter_than_or() {
+    String condition = "$var1 EQUALS abc || $var2 EQUALS xyz && $var3 NOT_NULL";
+    CompountORCondition orCondition = (CompountORCondition) ConditionUtil.createCondition(condition);
+    assertThat(orCondition.getConditions()).hasSize(2);
+    assertThat(orCondition.getConditions().get(0)).isInstanceOf(SimpleBiCondition.class);
+    assertThat(orCondition.getConditions().get(1)).isInstanceOf(CompountAndCondition.class);
+
+    Map<String, EvaluationResult> contextVariables = new HashMap<>();
+    contextVariables.put("var1", new SimpleEvaluationResult<>("abc"));
+    assertThat(orCondition.test(contextVariables)).isTrue();
+
+    contextVariables.put("var1", new SimpleEvaluationResult<>("tuv"));
+    contextVariables.put("var2", new SimpleEvaluationResult<>("xyz"));
+    assertThat(orCondition.test(contextVariables)).isFalse();
+
+    contextVariables.put("var3", new SimpleEvaluationResult<>("any"));
+    assertThat(orCondition.test(contextVariables)).isTrue();
+  }
+
+  @Test
+  public void nested_parentheses_condition() {
+    String condition = "($var1 EQUALS abc || ($var2 NULL&&$var3 NOT_NULL)) && $var4 NOT_NULL";
+    CompountAndCondition andCondition =
+        (CompountAndCondition) ConditionUtil.createCondition(condition);
+    assertThat(andCondition.getConditions()).hasSize(2);
+    assertThat(andCondition.getConditions().get(0)).isInstanceOf(CompountORCondition.class);
+
+    Map<String, EvaluationResult> contextVariables = new HashMap<>();
+    contextVariables.put("var3", new SimpleEvaluationResult<>("abc"));
+    assertThat(andCondition.test(contextVariables)).isFalse();
+    contextVariables.put("var4", new SimpleEvaluationResult<>("abc"));
+    assertThat(andCondition.test(contextVariables)).isTrue();
+  }
+
+  @Test
+  public void integer_condition_with_constant_value() {
+    Condition condition = ConditionUtil.createCondition("$var1 GREATER_THAN 4");
+    Map<String, EvaluationResult> contextVariables = new HashMap<>();
+    contextVariables.put("var1", new SimpleEvaluationResult<>(5));
+    assertThat(condition.test(contextVariables)).isTrue();
+    contextVariables.put("var1", new SimpleEvaluationResult<>(3));
+    assertThat(condition.test(contextVariables)).isFalse();
+  }
+
+  @Test
+  public void unbalanced_parentheses_are_rejected() {
+    assertThatThrownBy(() -> ConditionUtil.createCondition("($var1 NULL || $var2 NULL"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ConditionUtil.createCondition("$var1 NULL) || $var2 NULL"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
 }
@@ -0,0 +1,63 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.core.id;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Test;
+
+public class StandardIdGeneratorTest {
+
+  @Test
+  public void generators_produce_valid_uuids() {
+    assertVersion(StandardIdGenerator.SECURE_RANDOM, 4);
+    assertVersion(StandardIdGenerator.FAST_RANDOM, 4);
+    assertVersion(StandardIdGenerator.TIME_ORDERED, 7);
+    assertVersion(StandardIdGenerator.NAME_BASED, 3);
+  }
+
+
+  @Test
+  public void random_ids_are_unique() {
+    Set<String> ids = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      ids.add(StandardIdGenerator.FAST_RANDOM.generateId("ADT_A01/102", 0));
+      ids.add(StandardIdGenerator.TIME_ORDERED.generateId("ADT_A01/102", 0));
+    }
+    assertThat(ids).hasSize(2000);
+  }
+
+
+  @Test
+  public void time_ordered_ids_start_with_the_time() {
+    long before = System.currentTimeMillis();
+    UUID id = UUID.fromString(StandardIdGenerator.TIME_ORDERED.generateId(null, 0));
+    long after = System.currentTimeMillis();
+
+    long millis = id.getMostSignificantBits() >>> 16;
+    assertThat(millis).isBetween(before, after);
+  }
+
+
+  @Test
+  public void name_based_ids_depend_on_message_and_sequence() {
+    StandardIdGenerator gen = StandardIdGenerator.NAME_BASED;
+
+    assertThat(gen.generateId("ADT_A01/102", 1)).isEqualTo(gen.generateId("ADT_A01/102", 1));
+    assertThat(gen.generateId("ADT_A01/102", 1)).isNotEqualTo(gen.generateId("ADT_A01/102", 2));
+    assertThat(gen.generateId("ADT_A01/102", 1)).isNotEqualTo(gen.generateId("ADT_A01/103", 1));
+  }
+
+
+  private static void assertVersion(StandardIdGenerator generator, int version) {
+    UUID id = UUID.fromString(generator.generateId("ADT_A01/102", 0));
+    assertThat(id.version()).isEqualTo(version);
+    assertThat(id.variant()).isEqualTo(2);
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class ConversionProcessorTest {
+
+
+  @Test
+  public void publisher_is_requested_as_results_are_consumed() {
+    ConversionProcessor processor = new ConversionProcessor(message -> {
+      CompletableFuture<String> result = new CompletableFuture<>();
+      if ("4".equals(message)) {
+        result.completeExceptionally(new IllegalArgumentException("Cannot parse the message."));
+      } else {
+        result.complete("bundle " + message);
+      }
+      return result;
+    }, 3);
+    MessagePublisher publisher = new MessagePublisher(10);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+    // nothing is published before the subscriber requests
+    assertThat(publisher.emitted).isEqualTo(3);
+
+    subscriber.subscription.request(2);
+    assertThat(subscriber.results).hasSize(2);
+    // two results consumed, three converted and waiting for demand
+    assertThat(publisher.emitted).isEqualTo(5);
+    assertThat(subscriber.completed).isFalse();
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertThat(subscriber.results).hasSize(10);
+    assertThat(subscriber.completed).isTrue();
+    assertThat(subscriber.results.get(0).getJson()).isEqualTo("bundle 0");
+    assertThat(subscriber.results.get(4).isSuccess()).isFalse();
+    assertThat(subscriber.results.get(4).getError())
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+
+  @Test
+  public void cancel_stops_the_publisher() {
+    ConversionProcessor processor =
+        new ConversionProcessor(message -> CompletableFuture.completedFuture(message), 2);
+    MessagePublisher publisher = new MessagePublisher(10);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(5);
+
+    assertThat(publisher.cancelled).isTrue();
+    assertThat(subscriber.results).hasSize(1);
+    assertThat(subscriber.completed).isFalse();
+  }
+
+
+  private static class MessagePublisher implements Publisher<String> {
+    private final int total;
+    private Subscriber<? super String> subscriber;
+    private long requested;
+    private int emitted;
+    private boolean emitting;
+    private boolean cancelled;
+
+    MessagePublisher(int total) {
+      this.total = total;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super String> s) {
+      this.subscriber = s;
+      s.onSubscribe(new Subscription() {
+        @Override
+        public void request(long n) {
+          requested += n;
+          emit();
+        }
+
+        @Override
+        public void cancel() {
+          cancelled = true;
+        }
+      });
+    }
+
+    private void emit() {
+      if (emitting) {
+        return;
+      }
+      emitting = true;
+      while (!cancelled && emitted < requested && emitted < total) {
+        subscriber.onNext(String.valueOf(emitted++));
+      }
+      if (!cancelled && emitted == total) {
+        cancelled = true;
+        subscriber.onComplete();
+      }
+      emitting = false;
+    }
+  }
+
+
+  private static class RecordingSubscriber implements Subscriber<ConversionResult> {
+    private Subscription subscription;
+    private final List<ConversionResult> results = new ArrayList<>();
+    private boolean completed;
+
+    @Override
+    public void onSubscribe(Subscription s) {
+      this.subscription = s;
+    }
+
+    @Override
+    public void onNext(ConversionResult result) {
+      results.add(result);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      throw new AssertionError(t);
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import io.github.linuxforhealth.hl7.ConversionScheduler.Lane;
+
+public class ConversionSchedulerTest {
+
+  private static final String ADT =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A01|102|T|2.6|||AL|NE\r"
+          + "PID|0010||PID1234^5^M11^A^MR^HOSP||DOE^JOHN^A^||19800202|F\r";
+
+
+  @Test
+  public void messages_are_routed_by_size() {
+    try (ConversionScheduler scheduler = new ConversionScheduler.Builder((m, o) -> m)
+        .withLargeMessageThreshold(1000, 5).build()) {
+      assertThat(scheduler.getLane(ADT)).isEqualTo(Lane.SMALL);
+      assertThat(scheduler.getLane(ADT + StringUtils.repeat("OBX|1|ST|||ECHO\r", 3)))
+          .isEqualTo(Lane.LARGE);
+      assertThat(scheduler.getLane(ADT + "NTE|" + StringUtils.repeat("x", 1000)))
+          .isEqualTo(Lane.LARGE);
+    }
+  }
+
+
+  @Test
+  public void full_lane_rejects_without_blocking_the_other_lane() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    ConversionScheduler scheduler = new ConversionScheduler.Builder((m, o) -> {
+      if (m.contains("OBX")) {
+        await(release);
+      }
+      return "converted";
+    }).withLargeLane(1, 1).withLargeMessageThreshold(1000, 3).build();
+    String large = ADT + StringUtils.repeat("OBX|1|ST|||ECHO\r", 3);
+
+    CompletableFuture<String> running = scheduler.submit(large, ConverterOptions.SIMPLE_OPTIONS);
+    CompletableFuture<String> queued = scheduler.submit(large, ConverterOptions.SIMPLE_OPTIONS);
+    // the first conversion runs on the thread, the second waits in the queue
+    assertThatThrownBy(() -> scheduler.submit(large, ConverterOptions.SIMPLE_OPTIONS))
+        .isInstanceOf(RejectedExecutionException.class);
+    assertThat(scheduler.getRejected(Lane.LARGE)).isEqualTo(1);
+
+    // small messages are converted while the large lane is busy
+    assertThat(scheduler.submit(ADT, ConverterOptions.SIMPLE_OPTIONS).get(5, TimeUnit.SECONDS))
+        .isEqualTo("converted");
+    assertThat(scheduler.getRejected(Lane.SMALL)).isZero();
+
+    release.countDown();
+    assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("converted");
+    assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("converted");
+    scheduler.close();
+    assertThat(scheduler.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PartitionedConverterTest {
+
+
+  @Test
+  public void patient_id_key_is_read_from_pid_3() {
+    PartitionKey key = PartitionKey.patientId();
+
+    assertThat(key.getKey(message("101", "PID1234^5^M11^A^MR^HOSP~1234568965^^^USA^SS")))
+        .isEqualTo("PID|PID1234|A");
+    assertThat(key.getKey(message("102", ""))).isEqualTo("102");
+    assertThat(key.getKey("not a message")).isNull();
+  }
+
+
+  @Test
+  public void message_control_id_prefix_key() {
+    PartitionKey key = PartitionKey.messageControlIdPrefix(4);
+
+    assertThat(key.getKey(message("ABCD-1", "P1"))).isEqualTo(key.getKey(message("ABCD-2", "P2")))
+        .isEqualTo("MSH|ABCD");
+  }
+
+
+  @Test
+  public void messages_of_a_patient_are_converted_in_order() throws Exception {
+    Map<String, List<String>> converted = new ConcurrentHashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    PartitionedConverter converter = new PartitionedConverter((m, o) -> {
+      String patient = PartitionKey.patientId().getKey(m);
+      sleep(ThreadLocalRandom.current().nextInt(3));
+      converted.computeIfAbsent(patient, p -> Collections.synchronizedList(new ArrayList<>()))
+          .add(m);
+      if (m.contains("|13|")) {
+        throw new IllegalArgumentException("failed");
+      }
+      return m;
+    }, PartitionKey.patientId(), executor);
+
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      messages.add(message(String.valueOf(i), "P" + (i % 3) + "^^^A"));
+    }
+    List<CompletableFuture<String>> results =
+        converter.submitAll(messages, ConverterOptions.SIMPLE_OPTIONS);
+    CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+        .handle((v, e) -> null).get(10, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    assertThat(results.get(13)).isCompletedExceptionally();
+    assertThat(results.get(14).get()).isEqualTo(messages.get(14));
+    for (int p = 0; p < 3; p++) {
+      List<String> expected = new ArrayList<>();
+      for (int i = p; i < 60; i += 3) {
+        expected.add(messages.get(i));
+      }
+      assertThat(converted.get("PID|P" + p + "|A")).containsExactlyElementsOf(expected);
+    }
+  }
+
+
+  @Test
+  public void conversions_can_run_on_the_calling_thread() throws Exception {
+    List<String> converted = new ArrayList<>();
+    List<CompletableFuture<String>> nested = new ArrayList<>();
+    PartitionedConverter[] converter = new PartitionedConverter[1];
+    converter[0] = new PartitionedConverter((m, o) -> {
+      converted.add(m);
+      if (m.contains("|1|")) {
+        // submitting a message of the same patient from within a conversion
+        nested.add(converter[0].submit(message("2", "P1^^^A"), o));
+      }
+      return m;
+    }, PartitionKey.patientId(), Runnable::run);
+
+    CompletableFuture<String> first =
+        converter[0].submit(message("1", "P1^^^A"), ConverterOptions.SIMPLE_OPTIONS);
+    CompletableFuture<String> other =
+        converter[0].submit(message("3", "P2^^^A"), ConverterOptions.SIMPLE_OPTIONS);
+
+    assertThat(first.get()).isEqualTo(message("1", "P1^^^A"));
+    assertThat(nested.get(0).get()).isEqualTo(message("2", "P1^^^A"));
+    assertThat(other.get()).isEqualTo(message("3", "P2^^^A"));
+    assertThat(converted).containsExactly(message("1", "P1^^^A"), message("2", "P1^^^A"),
+        message("3", "P2^^^A"));
+  }
+
+
+  @Test
+  public void rejected_conversions_complete_exceptionally() throws Exception {
+    List<Runnable> accepted = new ArrayList<>();
+    boolean[] rejecting = new boolean[1];
+    Executor executor = task -> {
+      if (rejecting[0]) {
+        throw new RejectedExecutionException("rejected");
+      }
+      accepted.add(task);
+    };
+    PartitionedConverter converter =
+        new PartitionedConverter((m, o) -> m, PartitionKey.patientId(), executor);
+
+    CompletableFuture<String> first =
+        converter.submit(message("1", "P1^^^A"), ConverterOptions.SIMPLE_OPTIONS);
+    // waits for the first conversion, it is rejected once the first one completed
+    CompletableFuture<String> deferred =
+        converter.submit(message("2", "P1^^^A"), ConverterOptions.SIMPLE_OPTIONS);
+    rejecting[0] = true;
+    CompletableFuture<String> withoutKey =
+        converter.submit("not a message", ConverterOptions.SIMPLE_OPTIONS);
+    CompletableFuture<String> otherPatient =
+        converter.submit(message("3", "P2^^^A"), ConverterOptions.SIMPLE_OPTIONS);
+    accepted.forEach(Runnable::run);
+
+    assertThat(first.get()).isEqualTo(message("1", "P1^^^A"));
+    for (CompletableFuture<String> rejected : Arrays.asList(deferred, withoutKey, otherPatient)) {
+      assertThat(rejected).isDone();
+      assertThatThrownBy(rejected::get).isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    // the key is released after a rejection
+    rejecting[0] = false;
+    accepted.clear();
+    CompletableFuture<String> next =
+        converter.submit(message("4", "P1^^^A"), ConverterOptions.SIMPLE_OPTIONS);
+    accepted.forEach(Runnable::run);
+    assertThat(next.get()).isEqualTo(message("4", "P1^^^A"));
+  }
+
+
+  private static String message(String controlId, String pid3) {
+    return "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A08|" + controlId + "|T|2.6\r"
+        + "PID|0010||" + pid3 + "||DOE^JOHN^A^||19800202|F\r";
+  }
+
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -104,5 +104,13 @@ public class DateUtilTest {
   }
 
 
+  @Test
+  public void simple_time() {
+    assertThat(DateUtil.formatToTime("1332")).isEqualTo("13:32:00");
+    assertThat(DateUtil.formatToTime("133206.34+0900")).isEqualTo("13:32:06.34");
+    assertThat(DateUtil.formatToTime("13")).isEqualTo("13:00:00");
+    assertThat(DateUtil.formatToTime("2561")).isNull();
+    assertThat(DateUtil.formatToTime("abc")).isNull();
+  }
 
 }
@@ -6,6 +6,7 @@
 package io.github.linuxforhealth.hl7.expression;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -19,6 +20,8 @@ import ca.uhn.hl7v2.model.Type;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.core.expression.SimpleEvaluationResult;
 import io.github.linuxforhealth.core.terminology.SimpleCode;
+import io.github.linuxforhealth.hl7.data.SimpleDataTypeMapper;
+import io.github.linuxforhealth.hl7.data.SimpleDataValueResolver;
 import io.github.linuxforhealth.hl7.message.HL7MessageData;
 import io.github.linuxforhealth.hl7.parsing.HL7DataExtractor;
 import io.github.linuxforhealth.hl7.parsing.HL7HapiParser;
@@ -232,6 +235,21 @@ public class Hl7ExpressionTest {
   }
 
 
+  @Test
+  public void unknown_type_fails_when_expression_is_built() {
+    assertThatThrownBy(() -> new ExpressionAttributes.Builder().withSpecs("PID.3")
+        .withType("NOT_A_TYPE").build()).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void value_extractor_is_bound_when_expression_is_built() {
+    ExpressionAttributes attr =
+        new ExpressionAttributes.Builder().withSpecs("PID.3").withType("string_all").build();
+    assertThat(attr.getDataType()).isEqualTo(SimpleDataTypeMapper.STRING_ALL);
+    assertThat(attr.getValueExtractor()).isSameAs(SimpleDataValueResolver.STRING_ALL);
+  }
+
+
   private static Message getMessage(String message) throws IOException {
     HL7HapiParser hparser = null;
 
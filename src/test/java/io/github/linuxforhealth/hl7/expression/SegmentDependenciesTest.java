@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.expression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import com.google.common.collect.ImmutableMap;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Message;
+import ca.uhn.hl7v2.model.Structure;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+import io.github.linuxforhealth.hl7.message.HL7MessageData;
+import io.github.linuxforhealth.hl7.parsing.HL7DataExtractor;
+import io.github.linuxforhealth.hl7.parsing.HL7HapiParser;
+
+public class SegmentDependenciesTest {
+
+  private static final String MESSAGE = "MSH|^~\\&|hl7Integration|hl7Integration|||||ADT^A01|||2.3|\r"
+      + "EVN|A01|20130617154644\r"
+      + "PID|1|465 306 5961|000010016^^^MR~000010017^^^MR|407623|Wood^Patrick^^^MR||19700101|female\r"
+      + "PV1|1||Location||||||||||||||||261938_6_201306171546\r";
+
+
+  @Test
+  public void hl7_expression_depends_on_value_of_segment() throws IOException {
+    Hl7Expression exp = new Hl7Expression(
+        new ExpressionAttributes.Builder().withValueOf("PV2.3").withType("STRING").build());
+    HL7MessageData data = getData();
+
+    assertThat(exp.getSegmentDependencies()).hasToString("[[PV2]]");
+    assertThat(exp.getSegmentDependencies().isMissingFrom(data)).isTrue();
+    assertThat(exp.evaluate(data, new HashMap<>(), EvaluationResultFactory.getEmptyEvaluationResult()))
+        .isNull();
+  }
+
+
+  @Test
+  public void hl7_expression_with_present_segment_is_evaluated() throws IOException {
+    Hl7Expression exp = new Hl7Expression(
+        new ExpressionAttributes.Builder().withValueOf("AL1.3 | PID.3").withType("STRING").build());
+    HL7MessageData data = getData();
+
+    assertThat(exp.getSegmentDependencies()).hasToString("[[AL1, PID]]");
+    assertThat(exp.getSegmentDependencies().isMissingFrom(data)).isFalse();
+    EvaluationResult value =
+        exp.evaluate(data, new HashMap<>(), EvaluationResultFactory.getEmptyEvaluationResult());
+    assertThat((String) value.getValue()).isEqualTo("000010016");
+  }
+
+
+  @Test
+  public void skipped_expression_returns_default_value() throws IOException {
+    Hl7Expression exp = new Hl7Expression(new ExpressionAttributes.Builder().withValueOf("PV2.3")
+        .withType("STRING").withDefault("unknown").build());
+
+    EvaluationResult value = exp.evaluate(getData(), new HashMap<>(),
+        EvaluationResultFactory.getEmptyEvaluationResult());
+    assertThat((String) value.getValue()).isEqualTo("unknown");
+  }
+
+
+  @Test
+  public void no_dependencies_when_type_converts_null() throws IOException {
+    Hl7Expression exp = new Hl7Expression(
+        new ExpressionAttributes.Builder().withValueOf("PV2.3").withType("BOOLEAN").build());
+
+    assertThat(exp.getSegmentDependencies().isNone()).isTrue();
+    EvaluationResult value = exp.evaluate(getData(), new HashMap<>(),
+        EvaluationResultFactory.getEmptyEvaluationResult());
+    assertThat((Boolean) value.getValue()).isFalse();
+  }
+
+
+  @Test
+  public void no_dependencies_for_values_read_from_variables() {
+    Hl7Expression exp = new Hl7Expression(
+        new ExpressionAttributes.Builder().withValueOf("$var").withType("STRING").build());
+
+    assertThat(exp.getSegmentDependencies().isNone()).isTrue();
+  }
+
+
+  @Test
+  public void condition_variables_add_dependencies() throws IOException {
+    Map<String, String> vars = new HashMap<>();
+    vars.put("var1", "AL1.3");
+    vars.put("var2", "PV2.3 | ORC.1");
+    vars.put("var3", "PID.3");
+    SimpleExpression exp = new SimpleExpression(new ExpressionAttributes.Builder()
+        .withValue("abc").withVars(vars).withCondition("$var1 NOT_NULL || $var2 EQUALS x").build());
+
+    assertThat(exp.getSegmentDependencies()).hasToString("[[AL1, ORC, PV2]]");
+    assertThat(exp.getSegmentDependencies().isMissingFrom(getData())).isTrue();
+    assertThat(exp.evaluate(getData(), new HashMap<>(),
+        EvaluationResultFactory.getEmptyEvaluationResult())).isNull();
+
+    SimpleExpression exp2 = new SimpleExpression(new ExpressionAttributes.Builder()
+        .withValue("abc").withVars(vars).withCondition("$var1 NOT_NULL || $var3 NOT_NULL").build());
+    assertThat(exp2.getSegmentDependencies().isMissingFrom(getData())).isFalse();
+    assertThat((String) exp2.evaluate(getData(), new HashMap<>(),
+        EvaluationResultFactory.getEmptyEvaluationResult()).getValue()).isEqualTo("abc");
+
+    SimpleExpression exp3 = new SimpleExpression(new ExpressionAttributes.Builder()
+        .withValue("abc").withVars(vars).withCondition("$var1 NULL").build());
+    assertThat(exp3.getSegmentDependencies().isNone()).isTrue();
+  }
+
+
+  @Test
+  public void segment_in_context_is_present_in_message() throws IOException {
+    HL7MessageData data = getData();
+    Structure pid = data.getHL7DataParser().getStructure("PID", 0).getValue();
+    Hl7Expression exp = new Hl7Expression(
+        new ExpressionAttributes.Builder().withValueOf("PID.3").withType("STRING").build());
+
+    EvaluationResult value = exp.evaluate(data, ImmutableMap.of(),
+        EvaluationResultFactory.getEvaluationResult(pid));
+    assertThat((String) value.getValue()).isEqualTo("000010016");
+  }
+
+
+  @Test
+  public void index_is_case_insensitive() throws IOException {
+    assertThat(SegmentDependencies.indexOf("pid")).isEqualTo(SegmentDependencies.indexOf("PID"))
+        .isGreaterThanOrEqualTo(0);
+    assertThat(SegmentDependencies.indexOf("ZZZ")).isEqualTo(-1);
+  }
+
+
+  private static HL7MessageData getData() throws IOException {
+    HL7HapiParser hparser = null;
+    try {
+      hparser = new HL7HapiParser();
+      Message hl7message = hparser.getParser().parse(MESSAGE);
+      return new HL7MessageData(new HL7DataExtractor(hl7message));
+    } catch (HL7Exception e) {
+      throw new IllegalArgumentException(e);
+    } finally {
+      if (hparser != null) {
+        hparser.getContext().close();
+      }
+    }
+  }
+
+}
@@ -7,11 +7,14 @@ package io.github.linuxforhealth.hl7.expression;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.Test;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.github.linuxforhealth.api.EvaluationResult;
 import io.github.linuxforhealth.api.InputDataExtractor;
+import io.github.linuxforhealth.api.Variable;
 import io.github.linuxforhealth.core.expression.EmptyEvaluationResult;
 import io.github.linuxforhealth.core.expression.SimpleEvaluationResult;
 import io.github.linuxforhealth.hl7.expression.util.TestBlankInputData;
@@ -86,4 +89,60 @@ public class SimpleExpressionTest {
     assertThat(value).isNull();
   }
 
+
+  @Test
+  public void test_only_variables_read_are_evaluated() {
+    CountingVariable var1 = new CountingVariable("var1", SOME_VALUE);
+    CountingVariable var2 = new CountingVariable("var2", "OTHER");
+    ExpressionAttributes attr = new ExpressionAttributes.Builder().withValueOf("$var1")
+        .withCondition("$var1 NOT_NULL").build();
+    SimpleExpression exp = new SimpleExpression(attr) {
+      @Override
+      public List<Variable> getVariables() {
+        return ImmutableList.of(var1, var2);
+      }
+    };
+
+    EvaluationResult value =
+        exp.evaluate(data, ImmutableMap.of(), new EmptyEvaluationResult());
+    assertThat((String) value.getValue()).isEqualTo(SOME_VALUE);
+    // read by the condition and the expression, evaluated once
+    assertThat(var1.evaluations).isEqualTo(1);
+    assertThat(var2.evaluations).isZero();
+  }
+
+
+  private static class CountingVariable implements Variable {
+    private final String name;
+    private final String value;
+    private int evaluations;
+
+    CountingVariable(String name, String value) {
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    public List<String> getSpec() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public String getType() {
+      return "STRING";
+    }
+
+    @Override
+    public String getVariableName() {
+      return name;
+    }
+
+    @Override
+    public EvaluationResult extractVariableValue(Map<String, EvaluationResult> contextValues,
+        InputDataExtractor dataSource) {
+      evaluations++;
+      return new SimpleEvaluationResult<>(value);
+    }
+  }
+
 }
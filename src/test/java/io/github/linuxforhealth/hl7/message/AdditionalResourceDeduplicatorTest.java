@@ -0,0 +1,66 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.github.linuxforhealth.api.ResourceValue;
+import io.github.linuxforhealth.core.resource.SimpleResourceValue;
+
+public class AdditionalResourceDeduplicatorTest {
+
+  @Test
+  public void duplicates_are_collapsed_and_references_rewritten() {
+    AdditionalResourceDeduplicator deduplicator = new AdditionalResourceDeduplicator();
+
+    List<ResourceValue> first = deduplicator.addAll(Lists.newArrayList(practitioner("a", "Smith")));
+    List<ResourceValue> second = deduplicator
+        .addAll(Lists.newArrayList(practitioner("b", "Smith"), practitioner("c", "Jones")));
+
+    assertThat(first).hasSize(1);
+    assertThat(second).hasSize(1);
+    assertThat(second.get(0).getResource().get("id")).isEqualTo("c");
+    assertThat(deduplicator.getCollapsed()).isEqualTo(1);
+
+    Map<String, Object> performer = ImmutableMap.of("reference", "Practitioner/b");
+    Map<String, Object> observation = new HashMap<>();
+    observation.put("id", "obs");
+    observation.put("performer", Lists.newArrayList(performer));
+    ResourceValue obs = new SimpleResourceValue(observation, "Observation");
+
+    ResourceValue rewritten = deduplicator.rewrite(obs);
+    List<Map<String, Object>> performers =
+        (List<Map<String, Object>>) rewritten.getResource().get("performer");
+    assertThat(performers.get(0).get("reference")).isEqualTo("Practitioner/a");
+    // the original resource is not modified
+    assertThat(performer.get("reference")).isEqualTo("Practitioner/b");
+  }
+
+
+  @Test
+  public void resource_without_collapsed_references_is_unchanged() {
+    AdditionalResourceDeduplicator deduplicator = new AdditionalResourceDeduplicator();
+    deduplicator.addAll(Lists.newArrayList(practitioner("a", "Smith"), practitioner("b", "Smith")));
+
+    ResourceValue jones = practitioner("c", "Jones");
+    assertThat(deduplicator.rewrite(jones)).isSameAs(jones);
+  }
+
+
+  private static ResourceValue practitioner(String id, String family) {
+    Map<String, Object> resource = new HashMap<>();
+    resource.put("resourceType", "Practitioner");
+    resource.put("id", id);
+    resource.put("name", Lists.newArrayList(ImmutableMap.of("family", family)));
+    return new SimpleResourceValue(resource, "Practitioner");
+  }
+
+}
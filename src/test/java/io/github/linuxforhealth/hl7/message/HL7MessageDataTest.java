@@ -0,0 +1,170 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Message;
+import ca.uhn.hl7v2.model.Segment;
+import ca.uhn.hl7v2.model.Type;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.api.Specification;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+import io.github.linuxforhealth.core.id.StandardIdGenerator;
+import io.github.linuxforhealth.hl7.data.Hl7DataHandlerUtil;
+import io.github.linuxforhealth.hl7.expression.SegmentDependencies;
+import io.github.linuxforhealth.hl7.expression.specification.SpecificationParser;
+import io.github.linuxforhealth.hl7.parsing.HL7DataExtractor;
+import io.github.linuxforhealth.hl7.parsing.HL7HapiParser;
+import io.github.linuxforhealth.hl7.parsing.result.ParsingResult;
+
+public class HL7MessageDataTest {
+
+  private static final String ADT_MESSAGE =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A01|102|T|2.6|||AL|NE\r"
+          + "EVN||201209122222\r"
+          + "PID|0010||PID1234^5^M11^A^MR^HOSP~1234568965^^^USA^SS||DOE^JOHN^A^||19800202|F\r"
+          + "PV1|1|ff|yyy|EL|ABC\r";
+
+  @Test
+  public void test_repeated_field_reads_are_extracted_once() throws IOException, HL7Exception {
+    Message message = getMessage(ADT_MESSAGE);
+    CountingDataExtractor hde = new CountingDataExtractor(message);
+    HL7MessageData data = new HL7MessageData(hde);
+    Map<String, EvaluationResult> context = new HashMap<>();
+    context.put("PID", EvaluationResultFactory
+        .getEvaluationResult(hde.getStructure("PID", 0).getValue()));
+
+    Specification spec = SpecificationParser.parse("PID.3", false, false);
+    EvaluationResult first = data.extractMultipleValuesForSpec(spec, context);
+    EvaluationResult second = data.extractMultipleValuesForSpec(spec, context);
+
+    assertThat(hde.typeReads).isEqualTo(1);
+    assertThat((List<?>) second.getValue()).hasSize(2)
+        .containsExactlyElementsOf((List<?>) first.getValue());
+  }
+
+  @Test
+  public void test_component_reads_are_memoized_per_component() throws IOException, HL7Exception {
+    Message message = getMessage(ADT_MESSAGE);
+    CountingDataExtractor hde = new CountingDataExtractor(message);
+    HL7MessageData data = new HL7MessageData(hde);
+    Map<String, EvaluationResult> context = new HashMap<>();
+    context.put("PID", EvaluationResultFactory
+        .getEvaluationResult(hde.getStructure("PID", 0).getValue()));
+
+    EvaluationResult family = data
+        .extractValueForSpec(SpecificationParser.parse("PID.5.1", false, false), context);
+    EvaluationResult given = data
+        .extractValueForSpec(SpecificationParser.parse("PID.5.2", false, false), context);
+    data.extractValueForSpec(SpecificationParser.parse("PID.5.2", false, false), context);
+
+    // PID.5.1 is a FN composite, its string value is the surname
+    assertThat(Hl7DataHandlerUtil.getStringValue(family.getValue())).isEqualTo("DOE");
+    assertThat(Hl7DataHandlerUtil.getStringValue(given.getValue())).isEqualTo("JOHN");
+    assertThat(hde.typeReads).isEqualTo(1);
+    assertThat(hde.componentReads).isEqualTo(2);
+  }
+
+  @Test
+  public void test_memo_is_per_message_data() throws IOException, HL7Exception {
+    Message message = getMessage(ADT_MESSAGE);
+    CountingDataExtractor hde = new CountingDataExtractor(message);
+    Specification spec = SpecificationParser.parse("MSH.7", false, false);
+
+    HL7MessageData data = new HL7MessageData(hde);
+    data.extractValueForSpec(spec, new HashMap<>());
+    data.extractValueForSpec(spec, new HashMap<>());
+    assertThat(data.getMemoizedResultCount()).isEqualTo(1);
+
+    assertThat(new HL7MessageData(hde).getMemoizedResultCount()).isZero();
+  }
+
+  @Test
+  public void test_segment_presence_includes_segments_in_groups()
+      throws IOException, HL7Exception {
+    String oru = "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ORU^R01|102|T|2.6|||AL|NE\r"
+        + "PID|0010||PID1234^5^M11^A^MR^HOSP||DOE^JOHN^A^||19800202|F\r"
+        + "OBR|1||||||20120912011230\r" + "OBX|1|ST|1234^test||ECHO||||||F\r";
+    HL7MessageData data = new HL7MessageData(new HL7DataExtractor(getMessage(oru)));
+
+    assertThat(data.isAnySegmentPresent(segments("PID"))).isTrue();
+    assertThat(data.isAnySegmentPresent(segments("OBX"))).isTrue();
+    assertThat(data.isAnySegmentPresent(segments("PV1", "AL1"))).isFalse();
+    assertThat(data.isAnySegmentPresent(segments("PV1", "OBR"))).isTrue();
+  }
+
+
+  private static BitSet segments(String... names) {
+    BitSet segments = new BitSet();
+    for (String name : names) {
+      segments.set(SegmentDependencies.indexOf(name));
+    }
+    return segments;
+  }
+
+
+  @Test
+  public void test_name_based_ids_identify_the_message() throws IOException, HL7Exception {
+    String otherSender = ADT_MESSAGE.replace("|SE050|050|", "|SE051|050|");
+    String otherTime = ADT_MESSAGE.replace("|20120912011230|", "|20120912011231|");
+    String noControlId = ADT_MESSAGE.replace("|ADT^A01|102|", "|ADT^A01||");
+    String otherNoControlId = noControlId.replace("DOE^JOHN", "DOE^JANE");
+
+    String id = firstNameBasedId(ADT_MESSAGE);
+    assertThat(firstNameBasedId(ADT_MESSAGE)).isEqualTo(id);
+    assertThat(firstNameBasedId(otherSender)).isNotEqualTo(id);
+    assertThat(firstNameBasedId(otherTime)).isNotEqualTo(id);
+    assertThat(firstNameBasedId(noControlId)).isEqualTo(firstNameBasedId(noControlId))
+        .isNotEqualTo(id).isNotEqualTo(firstNameBasedId(otherNoControlId));
+  }
+
+
+  private static String firstNameBasedId(String message) throws IOException, HL7Exception {
+    HL7MessageData data = new HL7MessageData(new HL7DataExtractor(getMessage(message)));
+    data.setIdGenerator(StandardIdGenerator.NAME_BASED);
+    return data.generateResourceId();
+  }
+
+
+  private static Message getMessage(String message) throws IOException, HL7Exception {
+    HL7HapiParser hparser = new HL7HapiParser();
+    try {
+      return hparser.getParser().parse(message);
+    } finally {
+      hparser.getContext().close();
+    }
+  }
+
+
+  private static class CountingDataExtractor extends HL7DataExtractor {
+    private int typeReads;
+    private int componentReads;
+
+    CountingDataExtractor(Message message) {
+      super(message);
+    }
+
+    @Override
+    public ParsingResult<Type> getTypes(Segment segment, int field) {
+      typeReads++;
+      return super.getTypes(segment, field);
+    }
+
+    @Override
+    public ParsingResult<Type> getComponent(Type inputType, int component) {
+      componentReads++;
+      return super.getComponent(inputType, component);
+    }
+  }
+
+}
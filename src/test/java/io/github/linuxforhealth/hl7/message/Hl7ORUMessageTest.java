@@ -14,6 +14,7 @@ import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.r4.model.Bundle.BundleType;
 import org.hl7.fhir.r4.model.DiagnosticReport;
+import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.ResourceType;
@@ -83,6 +84,44 @@ public class Hl7ORUMessageTest {
 
 
 
+  @Test
+  public void test_oru_dedupe_additional_resources() throws IOException {
+    String hl7message =
+        "MSH|^~\\\\&|SendTest1|Sendfac1|Receiveapp1|Receivefac1|200603081747|security|ORU^R01|MSGID000005|T|2.6\r"
+            + "PID||45483|45483||SMITH^SUZIE^||20160813|M|||123 MAIN STREET^^SCHENECTADY^NY^12345||(123)456-7890|||||^^^T||||||||||||\r"
+            + "OBR|1||986^IA PHIMS Stage^2.16.840.1.114222.4.3.3.5.1.2^ISO|1051-2^New Born Screening^LN|||20151009173644|||||||||||||002|||||F\r"
+            + "OBX|1|TX|TS-F-01-002^Endocrine Disorders^L||obs report||||||F|||||3065^Mahoney^Paul^J\r"
+            + "OBX|2|TX|GA-F-01-024^Galactosemia^L||ECHOCARDIOGRAPHIC REPORT||||||F|||||3065^Mahoney^Paul^J\r";
+
+    HL7ToFHIRConverter ftv = new HL7ToFHIRConverter();
+    List<Resource> practitioners = getResources(ftv.convert(hl7message, OPTIONS),
+        ResourceType.Practitioner);
+    assertThat(practitioners).hasSize(2);
+
+    String json = ftv.convert(hl7message,
+        new Builder().withValidateResource().withDedupeAdditionalResources().build());
+    practitioners = getResources(json, ResourceType.Practitioner);
+    assertThat(practitioners).hasSize(1);
+    String practitionerId = practitioners.get(0).getIdElement().getIdPart();
+
+    List<Resource> observations = getResources(json, ResourceType.Observation);
+    assertThat(observations).hasSize(2);
+    for (Resource obs : observations) {
+      List<Reference> performers = ((Observation) obs).getPerformer();
+      assertThat(performers).hasSize(1);
+      assertThat(performers.get(0).getReference()).endsWith(practitionerId);
+    }
+  }
+
+
+  private static List<Resource> getResources(String json, ResourceType type) {
+    Bundle b = (Bundle) context.getParser().parseResource(json);
+    return b.getEntry().stream().map(BundleEntryComponent::getResource)
+        .filter(r -> type == r.getResourceType()).collect(Collectors.toList());
+  }
+
+
+
   @Test
   public void test_oru_multiple() throws IOException {
     String hl7message =
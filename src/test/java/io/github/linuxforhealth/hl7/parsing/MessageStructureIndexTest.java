@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import com.google.common.collect.Lists;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Message;
+import ca.uhn.hl7v2.model.Structure;
+
+public class MessageStructureIndexTest {
+
+  private static final String ORU_MESSAGE =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ORU^R01|102|T|2.6|||AL|NE\r"
+          + "PID|0010||PID1234^5^M11^A^MR^HOSP||DOE^JOHN^A^||19800202|F\r"
+          + "OBR|1||||||20120912011230\r" + "OBX|1|ST|1234^first||ECHO||||||F\r"
+          + "OBX|2|ST|1234^second||ECHO||||||F\r" + "OBR|2||||||20120912011230\r"
+          + "OBX|1|ST|1234^third||ECHO||||||F\r";
+
+  private static final List<String> ORDER_OBSERVATION =
+      Lists.newArrayList("PATIENT_RESULT", "ORDER_OBSERVATION");
+
+  @Test
+  public void group_paths_resolve_to_repetitions() {
+    HL7DataExtractor hde = new HL7DataExtractor(getMessage(ORU_MESSAGE));
+    MessageStructureIndex index = hde.getStructureIndex();
+
+    List<Structure> orders = index.getGroups(ORDER_OBSERVATION);
+    assertThat(orders).hasSize(2);
+    assertThat(index.getGroups(Lists.newArrayList("PATIENT_RESULT"))).hasSize(1);
+    assertThat(index.getGroups(Lists.newArrayList("PATIENT_RESULT", "UNKNOWN"))).isEmpty();
+
+    List<Structure> observations = index.getGroups(
+        Lists.newArrayList("PATIENT_RESULT", "ORDER_OBSERVATION", "OBSERVATION"));
+    assertThat(observations).hasSize(3);
+  }
+
+  @Test
+  public void children_match_extractor_lookup() {
+    HL7DataExtractor hde = new HL7DataExtractor(getMessage(ORU_MESSAGE));
+    MessageStructureIndex index = hde.getStructureIndex();
+
+    for (Structure order : index.getGroups(ORDER_OBSERVATION)) {
+      for (String name : Lists.newArrayList("OBR", "ORC", "OBSERVATION", "SPECIMEN")) {
+        assertThat(index.getChildren(order, name))
+            .containsExactlyElementsOf(hde.getAllStructures(order, name).getValues());
+      }
+    }
+    assertThat(index.getChildren(null, "OBR")).isEmpty();
+  }
+
+  @Test
+  public void ancestors_are_found_without_walking_parents() {
+    HL7DataExtractor hde = new HL7DataExtractor(getMessage(ORU_MESSAGE));
+    MessageStructureIndex index = hde.getStructureIndex();
+
+    Structure secondOrder = index.getGroups(ORDER_OBSERVATION).get(1);
+    Structure observation = index.getChildren(secondOrder, "OBSERVATION").get(0);
+    Structure obx = index.getChildren(observation, "OBX").get(0);
+
+    assertThat(index.contains(obx)).isTrue();
+    assertThat(index.findAncestor(obx, "ORDER_OBSERVATION")).isSameAs(secondOrder);
+    assertThat(index.findAncestor(obx, "OBX")).isSameAs(obx);
+    assertThat(index.findAncestor(obx, "VISIT")).isNull();
+  }
+
+  @Test
+  public void segments_are_resolved_once_per_parent_group() {
+    HL7DataExtractor hde = new HL7DataExtractor(getMessage(ORU_MESSAGE));
+    MessageStructureIndex index = hde.getStructureIndex();
+    List<Structure> orders = index.getGroups(ORDER_OBSERVATION);
+    AtomicInteger calls = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      for (Structure order : orders) {
+        List<Structure> obr = index.getResolvedSegments(order, Lists.newArrayList(), "OBR", () -> {
+          calls.incrementAndGet();
+          return index.getChildren(order, "OBR");
+        });
+        assertThat(obr).containsExactlyElementsOf(index.getChildren(order, "OBR"));
+      }
+    }
+    assertThat(calls.get()).isEqualTo(2);
+
+    index.getResolvedSegments(orders.get(0), Lists.newArrayList("OBSERVATION"), "OBR", () -> {
+      calls.incrementAndGet();
+      return null;
+    });
+    assertThat(calls.get()).isEqualTo(3);
+  }
+
+
+  private static Message getMessage(String message) {
+    HL7HapiParser hparser = null;
+    try {
+      hparser = new HL7HapiParser();
+      return hparser.getParser().parse(message);
+    } catch (HL7Exception e) {
+      throw new IllegalArgumentException(e);
+    } finally {
+      if (hparser != null) {
+        try {
+          hparser.getContext().close();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.Test;
+
+public class RawMessageHeaderTest {
+
+  private static final String PID =
+      "PID|0010||PID1234^5^M11^A^MR^HOSP~1234568965^^^USA^SS||DOE^JOHN^A^||19800202|F\r";
+
+  @Test
+  public void test_explicit_message_structure() {
+    RawMessageHeader header = RawMessageHeader.scan(
+        "MSH|^~\\&|MYEHR2.5|RI88140101|KIDSNET_IFL|RIHEALTH|20130531||VXU^V04^VXU_V04|20130531RI881401010105|P|2.6\r"
+            + PID);
+    assertThat(header.getMessageStructure()).isEqualTo("VXU_V04");
+    assertThat(header.getMessageControlId()).isEqualTo("20130531RI881401010105");
+  }
+
+  @Test
+  public void test_message_structure_from_type_and_trigger() {
+    RawMessageHeader header = RawMessageHeader
+        .scan("MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A01|102|T|2.6\r" + PID);
+    assertThat(header.getMessageStructure()).isEqualTo("ADT_A01");
+    assertThat(header.getComponent(9, 2)).isEqualTo("A01");
+  }
+
+  @Test
+  public void test_trigger_mapped_through_event_map() {
+    RawMessageHeader header = RawMessageHeader
+        .scan("MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A04|102|T|2.6\r" + PID);
+    assertThat(header.getMessageStructure()).isEqualTo("ADT_A01");
+  }
+
+  @Test
+  public void test_message_type_without_trigger() {
+    RawMessageHeader header =
+        RawMessageHeader.scan("MSH|^~\\&|SE050|050|PACS|050|20120912011230||ACK|102|T|2.6\r"
+            + "MSA|AA|101\r");
+    assertThat(header.getMessageStructure()).isEqualTo("ACK");
+  }
+
+  @Test
+  public void test_custom_separators_and_leading_batch_header() {
+    RawMessageHeader header =
+        RawMessageHeader.scan("\nBHS#$~\\&#SE050\nMSH#$~\\&#SE050#050#PACS#050#20120912011230##ORU$R01#5#T#2.6\n");
+    assertThat(header.getMessageStructure()).isEqualTo("ORU_R01");
+    assertThat(header.getField(3)).isEqualTo("SE050");
+  }
+
+  @Test
+  public void test_data_without_msh_is_not_scanned() {
+    assertThat(RawMessageHeader.scan("some text")).isNull();
+    assertThat(RawMessageHeader.scan("")).isNull();
+    assertThat(RawMessageHeader.scan(null)).isNull();
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.util.Set;
+import org.junit.Test;
+import com.google.common.collect.ImmutableSet;
+import io.github.linuxforhealth.hl7.message.HL7MessageModel;
+import io.github.linuxforhealth.hl7.message.util.SegmentReferenceCollector;
+import io.github.linuxforhealth.hl7.parsing.SegmentFilter.FilteredMessage;
+import io.github.linuxforhealth.hl7.resource.ResourceReader;
+
+public class SegmentFilterTest {
+
+  private static final String ADT_MESSAGE =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A01|102|T|2.6|||AL|NE\r"
+          + "EVN||201209122222\r"
+          + "PID|0010||PID1234^5^M11^A^MR^HOSP||DOE^JOHN^A^||19800202|F\r"
+          + "ZPI|custom|data\r"
+          + "PV1|1|ff|yyy|EL|ABC\r"
+          + "GT1|1||DOE^JANE\r"
+          + "IN1|1|PLAN01\r"
+          + "IN2|1\r"
+          + "AL1|1|DRUG|00000741^OXYCODONE||HYPOTENSION\r";
+
+  @Test
+  public void test_template_segments_are_collected() throws IOException {
+    HL7MessageModel model = ResourceReader.getInstance().getMessageTemplates().get("ADT_A01");
+    Set<String> segments = SegmentReferenceCollector.collect(model.getResources());
+    assertThat(segments).contains("MSH", "EVN", "PID", "PV1", "PV2", "OBX", "AL1");
+    assertThat(segments).doesNotContain("GT1", "IN1", "IN2");
+  }
+
+  @Test
+  public void test_unreferenced_segments_are_not_parsed() {
+    SegmentFilter filter =
+        SegmentFilter.create("ADT_A01", ImmutableSet.of("MSH", "EVN", "PID", "PV1", "AL1"));
+    FilteredMessage filtered = filter.filter(ADT_MESSAGE);
+    assertThat(filtered.getMessage()).startsWith("MSH|").contains("PID|", "PV1|", "AL1|")
+        .doesNotContain("ZPI|", "GT1|", "IN1|", "IN2|");
+    assertThat(filtered.getUnparsedSegments()).containsExactly("ZPI|custom|data", "GT1|1||DOE^JANE",
+        "IN1|1|PLAN01", "IN2|1");
+  }
+
+  @Test
+  public void test_leading_segment_of_referenced_group_is_kept() {
+    // OBX is in ORDER_OBSERVATION.OBSERVATION, OBR starts ORDER_OBSERVATION repetitions
+    SegmentFilter filter = SegmentFilter.create("ORU_R01", ImmutableSet.of("MSH", "OBX"));
+    assertThat(filter.getSegmentsToKeep()).contains("OBR", "PID", "OBX", "MSH");
+  }
+
+  @Test
+  public void test_unknown_structure_is_not_filtered() {
+    assertThat(SegmentFilter.create("XYZ_Z99", ImmutableSet.of("MSH"))).isNull();
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Group;
+import ca.uhn.hl7v2.model.Message;
+import ca.uhn.hl7v2.model.Segment;
+import ca.uhn.hl7v2.model.Structure;
+import ca.uhn.hl7v2.model.Type;
+
+public class StructureAccessorPlanTest {
+
+  private static final String ADT_MESSAGE =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A01|102|T|2.6|||AL|NE\r"
+          + "EVN||201209122222\r"
+          + "PID|0010||PID1234^5^M11^A^MR^HOSP~1234568965^^^USA^SS||DOE^JOHN^A^||19800202|F\r"
+          + "ZPD|1|custom\r" + "PV1|1|ff|yyy|EL|ABC\r";
+
+  private static final String ORU_MESSAGE =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ORU^R01|102|T|2.6|||AL|NE\r"
+          + "PID|0010||PID1234^5^M11^A^MR^HOSP||DOE^JOHN^A^||19800202|F\r"
+          + "OBR|1||||||20120912011230\r" + "OBX|1|ST|1234^first^LN||ECHO||||||F\r"
+          + "NTE|1||note\r" + "OBX|2|ST|5678^second^LN||ECHO||||||F\r";
+
+  @Test
+  public void field_values_match_hapi_field_array() throws HL7Exception {
+    Message message = getMessage(ADT_MESSAGE);
+    Segment pid = (Segment) message.get("PID");
+
+    for (int field = 1; field <= pid.numFields(); field++) {
+      List<Type> values = StructureAccessorPlan.getFieldValues(pid, field);
+      assertThat(values).containsExactlyElementsOf(Arrays.asList(pid.getField(field)));
+    }
+    assertThat(StructureAccessorPlan.getFieldValues(pid, 3)).hasSize(2);
+    assertThat(StructureAccessorPlan.getFieldValues(pid, 4)).isEmpty();
+  }
+
+  @Test
+  public void hapi_internals_are_bound() {
+    // the plan falls back to the public HAPI methods if the handles cannot be bound, this makes a
+    // HAPI upgrade that removes them visible
+    assertThat(StructureAccessorPlan.isBoundToHapiInternals()).isTrue();
+  }
+
+  @Test
+  public void repetitions_match_hapi_repetitions() throws HL7Exception {
+    Message message = getMessage(ORU_MESSAGE);
+    assertRepetitionsMatch(message);
+
+    Group order = (Group) ((Group) message.get("PATIENT_RESULT")).get("ORDER_OBSERVATION");
+    assertThat(StructureAccessorPlan.of(order).getAll(order, "OBSERVATION")).hasSize(2);
+  }
+
+  @Test
+  public void plan_is_shared_by_messages_with_same_structure() {
+    Message first = getMessage(ADT_MESSAGE);
+    Message second = getMessage(ADT_MESSAGE);
+
+    assertThat(StructureAccessorPlan.of(first)).isSameAs(StructureAccessorPlan.of(second));
+  }
+
+  @Test
+  public void unknown_child_has_no_repetitions() throws HL7Exception {
+    Message message = getMessage(ADT_MESSAGE);
+    StructureAccessorPlan plan = StructureAccessorPlan.of(message);
+
+    assertThat(plan.hasChild(message, "PATIENT_RESULT")).isFalse();
+    assertThat(plan.getAll(message, "PATIENT_RESULT")).isEmpty();
+    assertThat(plan.getAll(message, "PID")).hasSize(1);
+  }
+
+  @Test
+  public void non_standard_segment_is_found() throws HL7Exception {
+    Message message = getMessage(ADT_MESSAGE);
+    StructureAccessorPlan plan = StructureAccessorPlan.of(message);
+
+    assertThat(plan.hasChild(message, "ZPD")).isTrue();
+    assertThat(plan.getAll(message, "ZPD")).hasSize(1);
+  }
+
+  @Test
+  public void non_standard_segment_is_not_shared_with_other_messages() throws HL7Exception {
+    Message withZpd = getMessage(ADT_MESSAGE);
+    StructureAccessorPlan plan = StructureAccessorPlan.of(withZpd);
+    Message withoutZpd = getMessage(ADT_MESSAGE.replace("ZPD|1|custom\r", ""));
+
+    assertThat(StructureAccessorPlan.of(withoutZpd)).isSameAs(plan);
+    assertThat(plan.hasChild(withoutZpd, "ZPD")).isFalse();
+    assertThat(plan.getAll(withoutZpd, "ZPD")).isEmpty();
+    assertThat(plan.hasChild(withoutZpd, "PV1")).isTrue();
+  }
+
+  @Test
+  public void extractor_returns_empty_for_unknown_group() {
+    HL7DataExtractor hde = new HL7DataExtractor(getMessage(ADT_MESSAGE));
+
+    assertThat(hde.getAllStructures("PATIENT_RESULT", 0, "PID").isEmpty()).isTrue();
+    assertThat(hde.doesSegmentExists("ORC")).isFalse();
+    assertThat(hde.getAllStructures("PID").getValues()).hasSize(1);
+  }
+
+
+  private static void assertRepetitionsMatch(Group group) throws HL7Exception {
+    StructureAccessorPlan plan = StructureAccessorPlan.of(group);
+    for (String name : group.getNames()) {
+      List<Structure> reps = plan.getAll(group, name);
+      assertThat(reps).containsExactly(group.getAll(name));
+      for (Structure rep : reps) {
+        if (rep instanceof Group) {
+          assertRepetitionsMatch((Group) rep);
+        }
+      }
+    }
+  }
+
+
+  private static Message getMessage(String message) {
+    HL7HapiParser hparser = null;
+    try {
+      hparser = new HL7HapiParser();
+      return hparser.getParser().parse(message);
+    } catch (HL7Exception e) {
+      throw new IllegalArgumentException(e);
+    } finally {
+      if (hparser != null) {
+        try {
+          hparser.getContext().close();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.parsing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.io.IOException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Message;
+
+public class XmlMessageReaderTest {
+  private static final String ORU_HEADER =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ORU^R01|102|T|2.6|||AL|NE|764|ASCII\r"
+          + "PID|1||PID1234^5^M11^A^MR^HOSP~1234568965^^^USA^SS||DOE\\T\\SMITH^JOHN^A||19800202|F\r"
+          + "PV1|1|I|yyy|EL|ABC||200^ATTEND_DOC_FAMILY_TEST^ATTEND_DOC_GIVEN_TEST\r"
+          + "OBR|1||CD_000000|2244^General Order|||20170825010500||||||||||||||||||F\r";
+
+  private static HL7HapiParser hparser;
+
+  @BeforeClass
+  public static void setup() {
+    hparser = new HL7HapiParser();
+  }
+
+  @AfterClass
+  public static void cleanup() throws IOException {
+    hparser.getContext().close();
+  }
+
+
+  @Test
+  public void test_is_xml() {
+    assertThat(XmlMessageReader.isXml("  <ORU_R01/>")).isTrue();
+    assertThat(XmlMessageReader.isXml("\uFEFF<ORU_R01/>")).isTrue();
+    assertThat(XmlMessageReader.isXml(ORU_HEADER)).isFalse();
+    assertThat(XmlMessageReader.isXml(" ")).isFalse();
+    assertThat(XmlMessageReader.isXml(null)).isFalse();
+  }
+
+  @Test
+  public void test_conversion_matches_dom_parsing() throws HL7Exception {
+    String xml = toXml(oru(5));
+
+    Message fromDom = hparser.getContext().getXMLParser().parse(xml);
+    Message fromStax = hparser.getParser().parse(XmlMessageReader.toER7(xml));
+
+    assertThat(encode(fromStax)).isEqualTo(encode(fromDom));
+  }
+
+  @Test
+  public void test_separators_and_escapes() throws HL7Exception {
+    String er7 = XmlMessageReader.toER7(toXml(oru(1)));
+
+    assertThat(er7).startsWith("MSH|^~\\&|SE050|050|PACS|050|20120912011230||ORU^R01|102|T|2.6");
+    assertThat(er7).contains("DOE\\T\\SMITH^JOHN^A");
+    assertThat(er7).contains("PID1234^5^M11^A^MR^HOSP~1234568965^^^USA^SS");
+  }
+
+  @Test
+  public void test_invalid_xml_is_rejected() {
+    assertThatThrownBy(() -> XmlMessageReader.toER7("<ORU_R01><MSH>"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void test_escape_elements_match_dom_parsing() throws HL7Exception {
+    // escape elements at the start, in the middle and at the end of FT and TX values
+    String xml = toXml(ORU_HEADER + "OBX|1|FT|1234||\\.br\\start||||||F\r"
+        + "OBX|2|FT|1234||start \\.br\\ middle\\.br\\end||||||F\r"
+        + "OBX|3|TX|1234||end\\.br\\||||||F\r"
+        + "OBX|4|TX|1234||\\.br\\start \\.br\\ middle\\.br\\end\\.br\\||||||F\r"
+        + "OBX|5|TX|1234||\\.br\\||||||F\r");
+    assertThat(xml).contains("<escape V=\".br\"/>");
+
+    Message fromDom = hparser.getContext().getXMLParser().parse(xml);
+    String er7 = XmlMessageReader.toER7(xml);
+    Message fromStax = hparser.getParser().parse(er7);
+
+    assertThat(er7).doesNotContain("\u0001").contains("||\\.br\\start||")
+        .contains("||end\\.br\\||").contains("||\\.br\\||");
+    assertThat(encode(fromStax)).isEqualTo(encode(fromDom));
+  }
+
+
+  private static String oru(int observations) {
+    StringBuilder sb = new StringBuilder(ORU_HEADER);
+    for (int i = 1; i <= observations; i++) {
+      sb.append("OBX|").append(i)
+          .append("|NM|8867-4^Heart rate^LN||").append(60 + i % 40)
+          .append("|/min^beats/min|||||F|||20170825010500\r");
+    }
+    return sb.toString();
+  }
+
+  private static String toXml(String er7) throws HL7Exception {
+    Message message = hparser.getParser().parse(er7);
+    return hparser.getContext().getXMLParser().encode(message);
+  }
+
+  private static String encode(Message message) throws HL7Exception {
+    return hparser.getContext().getPipeParser().encode(message);
+  }
+
+}
@@ -0,0 +1,24 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.Test;
+import io.github.linuxforhealth.api.ResourceModel;
+
+public class ResourceReaderTest {
+
+  @Test
+  public void test_resource_model_is_compiled_once_per_reader() {
+    ResourceReader reader = ResourceReader.getInstance();
+    ResourceModel model = reader.generateResourceModel("resource/Observation");
+
+    assertThat(model).isNotNull();
+    assertThat(reader.generateResourceModel("resource/Observation")).isSameAs(model);
+    assertThat(reader.generateResourceModel("datatype/Reference")).isNotSameAs(model);
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import com.google.common.collect.ImmutableMap;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.Message;
+import ca.uhn.hl7v2.model.Structure;
+import io.github.linuxforhealth.api.EvaluationResult;
+import io.github.linuxforhealth.core.expression.EvaluationResultFactory;
+import io.github.linuxforhealth.hl7.expression.ExpressionAttributes;
+import io.github.linuxforhealth.hl7.expression.ReferenceExpression;
+import io.github.linuxforhealth.hl7.expression.ResourceExpression;
+import io.github.linuxforhealth.hl7.message.HL7MessageData;
+import io.github.linuxforhealth.hl7.parsing.HL7DataExtractor;
+import io.github.linuxforhealth.hl7.parsing.HL7HapiParser;
+
+public class SubTemplateCacheTest {
+
+  // OBX segments are direct children of ADT_A01, so they can be looked up by name
+  private static final String MESSAGE =
+      "MSH|^~\\&|SE050|050|PACS|050|20120912011230||ADT^A01|102|T|2.6|||AL|NE\r"
+          + "EVN|A01|20120912011230\r"
+          + "PID|0010||PID1234^5^M11^A^MR^HOSP||DOE^JOHN^A^||19800202|F\r" + "PV1|1|I\r"
+          + "OBX|1|ST|1234^first^LN||ECHO||||||F\r"
+          + "OBX|2|ST|5678^second^LN||ECHO||||||F\r";
+
+
+  @Test
+  public void same_inputs_reuse_the_result() throws IOException {
+    HL7MessageData data = getData(true);
+    Structure obx = data.getHL7DataParser().getStructure("OBX", 0).getValue();
+    ResourceExpression exp = new ResourceExpression(new ExpressionAttributes.Builder()
+        .withSpecs("OBX.3").withValueOf("datatype/CodeableConcept").build());
+
+    EvaluationResult first = exp.evaluate(data, new HashMap<>(),
+        EvaluationResultFactory.getEvaluationResult(obx));
+    EvaluationResult second = exp.evaluate(data, new HashMap<>(),
+        EvaluationResultFactory.getEvaluationResult(obx));
+
+    assertThat(exp.getData().getContextReferences().isCacheable()).isTrue();
+    assertThat((Object) second.getValue()).isSameAs(first.getValue());
+    assertThat(data.getSubTemplateCache().getHits()).isEqualTo(1);
+    assertThat(((Map<String, Object>) first.getValue()).get("text")).isEqualTo("first");
+  }
+
+
+  @Test
+  public void different_inputs_are_evaluated() throws IOException {
+    HL7MessageData data = getData(true);
+    ResourceExpression exp = new ResourceExpression(new ExpressionAttributes.Builder()
+        .withSpecs("OBX.3").withValueOf("datatype/CodeableConcept").build());
+
+    for (int rep = 0; rep < 2; rep++) {
+      Structure obx = data.getHL7DataParser().getStructure("OBX", rep).getValue();
+      EvaluationResult value = exp.evaluate(data, ImmutableMap.of(),
+          EvaluationResultFactory.getEvaluationResult(obx));
+      assertThat(((Map<String, Object>) value.getValue()).get("text"))
+          .isEqualTo(rep == 0 ? "first" : "second");
+    }
+    assertThat(data.getSubTemplateCache().getHits()).isZero();
+  }
+
+
+  @Test
+  public void context_values_read_by_the_template_are_part_of_the_key() throws IOException {
+    HL7MessageData data = getData(true);
+    Structure obx = data.getHL7DataParser().getStructure("OBX", 0).getValue();
+    ResourceExpression exp = new ResourceExpression(new ExpressionAttributes.Builder()
+        .withSpecs("OBX.3").withValueOf("datatype/CodeableConcept").build());
+
+    exp.evaluate(data, ImmutableMap.of("code", EvaluationResultFactory.getEvaluationResult("a")),
+        EvaluationResultFactory.getEvaluationResult(obx));
+    exp.evaluate(data, ImmutableMap.of("code", EvaluationResultFactory.getEvaluationResult("b")),
+        EvaluationResultFactory.getEvaluationResult(obx));
+    exp.evaluate(data,
+        ImmutableMap.of("unrelated", EvaluationResultFactory.getEvaluationResult("b")),
+        EvaluationResultFactory.getEvaluationResult(obx));
+    exp.evaluate(data, ImmutableMap.of(), EvaluationResultFactory.getEvaluationResult(obx));
+
+    // CodeableConcept for code a, code b and without code, the unrelated value is not part of the
+    // key. datatype/Coding reads code from its own variables, its result is shared by all four.
+    assertThat(data.getSubTemplateCache().size()).isEqualTo(4);
+    assertThat(data.getSubTemplateCache().getHits()).isEqualTo(3);
+  }
+
+
+  @Test
+  public void templates_generating_ids_are_not_cached() {
+    ReferenceExpression exp = new ReferenceExpression(new ExpressionAttributes.Builder()
+        .withSpecs("PID").withValueOf("resource/Practitioner").build());
+
+    assertThat(exp.getData().getContextReferences().isCacheable()).isFalse();
+    assertThat(exp.getReferenceModel().getContextReferences().isCacheable()).isTrue();
+  }
+
+
+  @Test
+  public void cache_is_disabled_by_default() throws IOException {
+    assertThat(getData(false).getSubTemplateCache()).isNull();
+  }
+
+
+  private static HL7MessageData getData(boolean cache) throws IOException {
+    HL7HapiParser hparser = null;
+    try {
+      hparser = new HL7HapiParser();
+      Message hl7message = hparser.getParser().parse(MESSAGE);
+      HL7MessageData data = new HL7MessageData(new HL7DataExtractor(hl7message));
+      if (cache) {
+        data.enableSubTemplateCache();
+      }
+      return data;
+    } catch (HL7Exception e) {
+      throw new IllegalArgumentException(e);
+    } finally {
+      if (hparser != null) {
+        hparser.getContext().close();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package io.github.linuxforhealth.hl7.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableMap;
+import io.github.linuxforhealth.api.ResourceModel;
+import io.github.linuxforhealth.core.ObjectMapperUtil;
+
+public class TemplateSnapshotTest {
+
+  private static final String OBSERVATION = "resource/Observation";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void test_snapshot_round_trip_returns_tree_for_unchanged_template() throws IOException {
+    ResourceReader reader = new ResourceReader(null);
+    reader.getMessageTemplates();
+    TemplateSnapshot snapshot = reader.createSnapshot();
+    assertThat(snapshot.size()).isGreaterThan(0);
+
+    File file = folder.newFile("templates.bin");
+    snapshot.write(file);
+    TemplateSnapshot loaded = TemplateSnapshot.load(file);
+    assertThat(loaded).isNotNull();
+    assertThat(loaded.size()).isEqualTo(snapshot.size());
+
+    String content = reader.getResourceInHl7Folder(OBSERVATION + ".yml");
+    JsonNode tree = loaded.getTree(OBSERVATION + ".yml", TemplateSnapshot.hash(content));
+    assertThat(tree).isEqualTo(ObjectMapperUtil.getYAMLInstance().readTree(content));
+  }
+
+  @Test
+  public void test_snapshot_ignores_changed_template() throws IOException {
+    ResourceReader reader = new ResourceReader(null);
+    reader.getMessageTemplates();
+    File file = folder.newFile("templates.bin");
+    reader.createSnapshot().write(file);
+
+    TemplateSnapshot loaded = TemplateSnapshot.load(file);
+    String content = reader.getResourceInHl7Folder(OBSERVATION + ".yml");
+    assertThat(loaded.getTree(OBSERVATION + ".yml", TemplateSnapshot.hash(content + "\n")))
+        .isNull();
+    assertThat(loaded.getTree("resource/Unknown.yml", TemplateSnapshot.hash(content))).isNull();
+  }
+
+  @Test
+  public void test_load_returns_null_for_missing_or_invalid_file() throws IOException {
+    assertThat(TemplateSnapshot.load(new File(folder.getRoot(), "missing.bin"))).isNull();
+    File invalid = folder.newFile("invalid.bin");
+    assertThat(TemplateSnapshot.load(invalid)).isNull();
+  }
+
+  @Test
+  public void test_reader_compiles_snapshot_tree_of_unchanged_template() throws IOException {
+    String content = new ResourceReader(null).getResourceInHl7Folder(OBSERVATION + ".yml");
+    // a tree that differs from the YAML source shows which of the two was compiled
+    ObjectNode tree = (ObjectNode) ObjectMapperUtil.getYAMLInstance().readTree(content);
+    tree.remove("identifier");
+    TemplateSnapshot snapshot = new TemplateSnapshot(ImmutableMap.of(OBSERVATION + ".yml",
+        new TemplateSnapshot.Entry(TemplateSnapshot.hash(content), tree)));
+
+    ResourceModel model = new ResourceReader(snapshot).generateResourceModel(OBSERVATION);
+    assertThat(model.getExpressions()).containsKey("status").doesNotContainKey("identifier");
+  }
+
+  @Test
+  public void test_reader_parses_yaml_of_changed_template() throws IOException {
+    String content = new ResourceReader(null).getResourceInHl7Folder(OBSERVATION + ".yml");
+    ObjectNode tree = (ObjectNode) ObjectMapperUtil.getYAMLInstance().readTree(content);
+    tree.remove("identifier");
+    TemplateSnapshot snapshot = new TemplateSnapshot(ImmutableMap.of(OBSERVATION + ".yml",
+        new TemplateSnapshot.Entry(TemplateSnapshot.hash(content + "\n"), tree)));
+
+    ResourceModel model = new ResourceReader(snapshot).generateResourceModel(OBSERVATION);
+    assertThat(model.getExpressions()).containsKeys("status", "identifier");
+  }
+
+}